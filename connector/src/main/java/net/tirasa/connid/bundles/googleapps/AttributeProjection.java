@@ -0,0 +1,134 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
+
+/**
+ * Attributes to be returned for a given object type, compiled once per operation from
+ * {@link org.identityconnectors.framework.common.objects.OperationOptions#getAttributesToGet()}: converting an
+ * object is then a plain loop over the extractors of the requested attributes, with no further lookup.
+ *
+ * @param <T> Google API model type
+ */
+public final class AttributeProjection<T> {
+
+    /**
+     * Adds an attribute, read from the given object, to the connector object being built.
+     *
+     * @param <T> Google API model type
+     */
+    @FunctionalInterface
+    public interface Extractor<T> {
+
+        void extract(T source, ConnectorObjectBuilder builder);
+    }
+
+    /**
+     * @param <T> Google API model type
+     * @param name attribute name
+     * @param getter reads the attribute value
+     * @return extractor for a single-valued attribute
+     */
+    public static <T> Extractor<T> single(final String name, final Function<T, Object> getter) {
+        return (source, builder) -> builder.addAttribute(AttributeBuilder.build(name, getter.apply(source)));
+    }
+
+    /**
+     * @param <T> Google API model type
+     * @param name attribute name
+     * @param getter reads the attribute values
+     * @return extractor for a multi-valued attribute
+     */
+    public static <T> Extractor<T> multi(final String name, final Function<T, Collection<?>> getter) {
+        return (source, builder) -> builder.addAttribute(AttributeBuilder.build(name, getter.apply(source)));
+    }
+
+    /**
+     * Selects the extractors for the given attributes.
+     *
+     * @param <T> Google API model type
+     * @param extractors extractors of all attributes returned by default, in the order they shall be added
+     * @param attributesToGet attributes to get, null for default
+     * @return projection
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> AttributeProjection<T> compile(
+            final Map<String, Extractor<T>> extractors,
+            final Set<String> attributesToGet) {
+
+        List<Extractor<T>> plan = new ArrayList<>(extractors.size());
+        extractors.forEach((name, extractor) -> {
+            if (null == attributesToGet || attributesToGet.contains(name)) {
+                plan.add(extractor);
+            }
+        });
+        return new AttributeProjection<>(plan.toArray(new Extractor[0]), attributesToGet);
+    }
+
+    private final Extractor<T>[] plan;
+
+    private final Set<String> attributesToGet;
+
+    private AttributeProjection(final Extractor<T>[] plan, final Set<String> attributesToGet) {
+        this.plan = plan;
+        this.attributesToGet = attributesToGet;
+    }
+
+    /**
+     * @return whether no attributes to get were specified, e.g. all attributes returned by default are included
+     */
+    public boolean isDefault() {
+        return null == attributesToGet;
+    }
+
+    /**
+     * Tells whether the given attribute was explicitly requested; to be used for attributes not returned by
+     * default, which are usually expensive to get.
+     *
+     * @param name attribute name
+     * @return whether the given attribute was explicitly requested
+     */
+    public boolean isRequested(final String name) {
+        return null != attributesToGet && attributesToGet.contains(name);
+    }
+
+    /**
+     * Adds all projected attributes read from the given object.
+     *
+     * @param source Google API object
+     * @param builder connector object builder
+     */
+    public void apply(final T source, final ConnectorObjectBuilder builder) {
+        for (Extractor<T> extractor : plan) {
+            extractor.extract(source, builder);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.identityconnectors.common.CollectionUtil;
+import org.identityconnectors.common.StringUtil;
+import org.identityconnectors.framework.common.objects.AttributeUtil;
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationalAttributes;
+
+/**
+ * Builds the {@code fields} parameter of Google API requests, so that only what is actually read from responses
+ * is transferred and parsed; masks for list requests always keep {@code nextPageToken}.
+ *
+ * @see <a href="https://developers.google.com/admin-sdk/directory/v1/guides/performance#partial-response">
+ * Partial response</a>
+ */
+public final class FieldMask {
+
+    public static final String NEXT_PAGE_TOKEN = "nextPageToken";
+
+    public static final String MEMBER_FIELDS = "id,email,role,type,etag";
+
+    public static final String MEMBER_EMAIL_ROLE = "email,role";
+
+    public static final String ALIAS_FIELDS = "alias";
+
+    /**
+     * Response fields for attributes whose name differs from the field path.
+     */
+    private static final Map<String, String> FIELDS = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        FIELDS.put(GoogleAppsUtil.GIVEN_NAME_ATTR, "name/givenName");
+        FIELDS.put(GoogleAppsUtil.FAMILY_NAME_ATTR, "name/familyName");
+        FIELDS.put(GoogleAppsUtil.FULL_NAME_ATTR, "name/fullName");
+        FIELDS.put(GoogleAppsUtil.DESCRIPTION_ATTR, GoogleAppsUtil.DESCRIPTION_ATTR);
+        FIELDS.put(OperationalAttributes.ENABLE_NAME, GoogleAppsUtil.SUSPENDED_ATTR);
+    }
+
+    /**
+     * Fields to request for the given attributes.
+     *
+     * @param configuration configuration, providing custom schemas and projection
+     * @param attributes attributes to be read from response
+     * @param always fields to request anyway, e.g. for building Uid and Name
+     * @return comma-separated fields
+     */
+    public static String of(
+            final GoogleAppsConfiguration configuration,
+            final Collection<String> attributes,
+            final String... always) {
+
+        Set<String> fields = CollectionUtil.newCaseInsensitiveSet();
+        fields.addAll(Arrays.asList(always));
+
+        GoogleAppsCustomSchemas customSchemas = configuration.getCustomSchemas();
+        boolean custom = "full".equals(configuration.getProjection());
+        for (String attribute : attributes) {
+            if (FIELDS.containsKey(attribute)) {
+                fields.add(FIELDS.get(attribute));
+            } else if (customSchemas.getFieldNames().contains(attribute)) {
+                custom = true;
+            } else if (!AttributeUtil.isSpecialName(attribute)) {
+                fields.add(attribute);
+            }
+        }
+        // return also customSchemas according to configuration
+        if (custom && !customSchemas.isEmpty()) {
+            fields.add(GoogleAppsUtil.CUSTOM_SCHEMAS);
+        }
+
+        return StringUtil.join(fields, GoogleAppsUtil.COMMA);
+    }
+
+    /**
+     * Fields to request for reading users.
+     *
+     * @param configuration configuration
+     * @param options operation options, providing attributes to get
+     * @return comma-separated fields
+     */
+    public static String users(final GoogleAppsConfiguration configuration, final OperationOptions options) {
+        Collection<String> attributes;
+        if (null == options.getAttributesToGet()) {
+            // custom schema fields are returned by default as well
+            attributes = new ArrayList<>(UserHandler.defaultAttributes());
+            attributes.addAll(configuration.getCustomSchemas().getFieldNames());
+        } else {
+            attributes = Arrays.asList(options.getAttributesToGet());
+        }
+        return of(configuration,
+                attributes,
+                GoogleAppsUtil.ID_ATTR,
+                GoogleAppsUtil.ETAG_ATTR,
+                GoogleAppsUtil.PRIMARY_EMAIL_ATTR,
+                GoogleAppsUtil.SUSPENDED_ATTR);
+    }
+
+    /**
+     * Fields to request for reading groups.
+     *
+     * @param configuration configuration
+     * @param options operation options, providing attributes to get
+     * @return comma-separated fields
+     */
+    public static String groups(final GoogleAppsConfiguration configuration, final OperationOptions options) {
+        return of(configuration,
+                null == options.getAttributesToGet()
+                ? GroupHandler.defaultAttributes()
+                : Arrays.asList(options.getAttributesToGet()),
+                GoogleAppsUtil.ID_ATTR,
+                GoogleAppsUtil.ETAG_ATTR,
+                GoogleAppsUtil.EMAIL_ATTR);
+    }
+
+    /**
+     * Fields to request for reading organizational units.
+     *
+     * @param configuration configuration
+     * @param options operation options, providing attributes to get
+     * @return comma-separated fields
+     */
+    public static String orgUnits(final GoogleAppsConfiguration configuration, final OperationOptions options) {
+        return of(configuration,
+                null == options.getAttributesToGet()
+                ? OrgunitsHandler.defaultAttributes()
+                : Arrays.asList(options.getAttributesToGet()),
+                GoogleAppsUtil.ORG_UNIT_PATH_ATTR,
+                GoogleAppsUtil.ETAG_ATTR,
+                GoogleAppsUtil.NAME_ATTR);
+    }
+
+    /**
+     * Fields to request for a page of a list request.
+     *
+     * @param collection name of the collection in the response, e.g. {@code users}
+     * @param fields fields of each item
+     * @return fields, including the next page token
+     */
+    public static String page(final String collection, final String fields) {
+        return NEXT_PAGE_TOKEN + GoogleAppsUtil.COMMA + collection + '(' + fields + ')';
+    }
+
+    private FieldMask() {
+        // private constructor for static utility class
+    }
+}
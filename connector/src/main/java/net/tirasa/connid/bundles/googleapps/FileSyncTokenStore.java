@@ -0,0 +1,110 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * {@link SyncTokenStore} keeping snapshots as JSON files in the given directory, so that they survive restarts.
+ */
+public class FileSyncTokenStore implements SyncTokenStore {
+
+    private static final Log LOG = Log.getLog(FileSyncTokenStore.class);
+
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+
+    public FileSyncTokenStore(final Path directory) {
+        this.directory = directory;
+    }
+
+    private Path file(final String key) {
+        return directory.resolve(key.replaceAll("[^A-Za-z0-9._-]", "_") + SUFFIX);
+    }
+
+    @Override
+    public void save(final String key, final Map<String, String> snapshot) {
+        try {
+            Files.createDirectories(directory);
+
+            // write to temporary file first, so that a crash never leaves a truncated snapshot behind
+            Path tmp = Files.createTempFile(directory, "snapshot", ".tmp");
+            GoogleAppsUtil.MAPPER.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error(e, "While saving snapshot {0}", key);
+            throw ConnectorException.wrap(e);
+        }
+    }
+
+    @Override
+    public Map<String, String> load(final String key) {
+        Path file = file(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return GoogleAppsUtil.MAPPER.readValue(file.toFile(), new TypeReference<Map<String, String>>() {
+            });
+        } catch (IOException e) {
+            LOG.error(e, "While loading snapshot {0}", key);
+            throw ConnectorException.wrap(e);
+        }
+    }
+
+    @Override
+    public void remove(final String key) {
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException e) {
+            LOG.warn(e, "While removing snapshot {0}", key);
+        }
+    }
+
+    @Override
+    public Set<String> keys() {
+        if (!Files.isDirectory(directory)) {
+            return Set.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).
+                    filter(name -> name.endsWith(SUFFIX)).
+                    map(name -> name.substring(0, name.length() - SUFFIX.length())).
+                    collect(Collectors.toSet());
+        } catch (IOException e) {
+            LOG.warn(e, "While listing snapshots");
+            return Set.of();
+        }
+    }
+}
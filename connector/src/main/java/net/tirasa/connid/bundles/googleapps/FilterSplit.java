@@ -0,0 +1,176 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.client.util.GenericData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.identityconnectors.common.CollectionUtil;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.filter.AndFilter;
+import org.identityconnectors.framework.common.objects.filter.AttributeFilter;
+import org.identityconnectors.framework.common.objects.filter.CompositeFilter;
+import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
+import org.identityconnectors.framework.common.objects.filter.FilterVisitor;
+import org.identityconnectors.framework.common.objects.filter.NotFilter;
+import org.identityconnectors.framework.common.objects.filter.OrFilter;
+
+/**
+ * Splits a filter into the part which can be sent to Google as query and the residual part, evaluated on the
+ * returned objects; the original filter is matched by objects matching both.
+ * Operands of top-level AND filters are split one by one; any other filter goes entirely to one side, depending on
+ * whether the given visitor can translate it or not.
+ */
+public final class FilterSplit {
+
+    private static final FilterSplit NONE = new FilterSplit(null, null);
+
+    /**
+     * Splits the given filter.
+     *
+     * @param <R> list request type
+     * @param filter filter, may be null
+     * @param visitor translates filters into Google query
+     * @param scratch provides new list requests, used to check which filters can be translated
+     * @return split filter
+     */
+    public static <R extends GenericData> FilterSplit split(
+            final Filter filter,
+            final FilterVisitor<StringBuilder, R> visitor,
+            final Supplier<R> scratch) {
+
+        if (null == filter) {
+            return NONE;
+        }
+
+        if (filter instanceof AndFilter) {
+            List<Filter> pushdown = new ArrayList<>();
+            List<Filter> residual = new ArrayList<>();
+            for (Filter operand : ((AndFilter) filter).getFilters()) {
+                FilterSplit split = split(operand, visitor, scratch);
+                if (null != split.getPushdown()) {
+                    pushdown.add(split.getPushdown());
+                }
+                if (null != split.getResidual()) {
+                    residual.add(split.getResidual());
+                }
+            }
+            return new FilterSplit(and(pushdown), and(residual));
+        }
+
+        return isTranslatable(filter, visitor, scratch.get())
+                ? new FilterSplit(filter, null)
+                : new FilterSplit(null, filter);
+    }
+
+    private static Filter and(final List<Filter> filters) {
+        switch (filters.size()) {
+            case 0:
+                return null;
+
+            case 1:
+                return filters.get(0);
+
+            default:
+                return FilterBuilder.and(filters);
+        }
+    }
+
+    /**
+     * Tells whether the given visitor translates the given filter, either into a query string or into some
+     * request parameter, as {@code customer} or {@code domain}.
+     */
+    private static <R extends GenericData> boolean isTranslatable(
+            final Filter filter,
+            final FilterVisitor<StringBuilder, R> visitor,
+            final R request) {
+
+        if (filter instanceof OrFilter) {
+            // no OR in Google's query syntax
+            return false;
+        }
+
+        Map<String, Object> before = new HashMap<>(request);
+        try {
+            StringBuilder query = filter.accept(visitor, request);
+            return (null != query && query.length() > 0) || !before.equals(new HashMap<>(request));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void collectAttributes(final Filter filter, final Set<String> names) {
+        if (filter instanceof AttributeFilter) {
+            names.add(((AttributeFilter) filter).getName());
+        } else if (filter instanceof CompositeFilter) {
+            ((CompositeFilter) filter).getFilters().forEach(operand -> collectAttributes(operand, names));
+        } else if (filter instanceof NotFilter) {
+            collectAttributes(((NotFilter) filter).getFilter(), names);
+        }
+    }
+
+    private final Filter pushdown;
+
+    private final Filter residual;
+
+    private FilterSplit(final Filter pushdown, final Filter residual) {
+        this.pushdown = pushdown;
+        this.residual = residual;
+    }
+
+    /**
+     * @return filter to translate into Google query, null if none
+     */
+    public Filter getPushdown() {
+        return pushdown;
+    }
+
+    /**
+     * @return filter to evaluate on returned objects, null if none
+     */
+    public Filter getResidual() {
+        return residual;
+    }
+
+    /**
+     * @return names of the attributes needed to evaluate the residual filter
+     */
+    public Set<String> getResidualAttributes() {
+        Set<String> names = CollectionUtil.newCaseInsensitiveSet();
+        collectAttributes(residual, names);
+        return names;
+    }
+
+    /**
+     * @param object object returned by Google
+     * @return whether the given object matches the residual filter
+     */
+    public boolean accept(final ConnectorObject object) {
+        return null == residual || residual.accept(object);
+    }
+}
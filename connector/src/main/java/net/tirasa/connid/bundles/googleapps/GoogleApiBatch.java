@@ -0,0 +1,270 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.AbstractGoogleClient;
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import org.identityconnectors.common.Assertions;
+import org.identityconnectors.common.logging.Log;
+
+/**
+ * Collects Google API requests and sends them as HTTP batch requests: one round trip per target API and per
+ * {@link #MAX_BATCH_SIZE} requests. The outcome of every single part is passed back to its own
+ * {@link RequestResultHandler}, exactly as {@link GoogleApiExecutor#execute} would do.
+ *
+ * @see <a href="https://developers.google.com/admin-sdk/directory/v1/guides/batch">Sending Batch Requests</a>
+ */
+public final class GoogleApiBatch {
+
+    private static final Log LOG = Log.getLog(GoogleApiBatch.class);
+
+    /**
+     * Maximum number of calls allowed by Google in a single batch request.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private final List<Part<?, ?, ?>> parts = new ArrayList<>();
+
+    private final List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+
+    public <G extends AbstractGoogleJsonClientRequest<T>, T, R> GoogleApiBatch queue(
+            final G request, final RequestResultHandler<G, T, R> handler) {
+
+        parts.add(new Part<>(
+                Assertions.nullChecked(request, "Google Json ClientRequest"),
+                Assertions.nullChecked(handler, "handler")));
+        return this;
+    }
+
+    public int size() {
+        return parts.size();
+    }
+
+    public boolean isEmpty() {
+        return parts.isEmpty();
+    }
+
+    /**
+     * Sends all queued requests; queue is emptied afterwards, so this instance can be reused.
+     * Transient failures of single parts are retried; other failures are passed to the part's own handler, and
+     * finally to its {@link RequestResultHandler#handleError}. If any handler raised an exception, the first one
+     * is rethrown once all parts were processed, with the others attached as suppressed.
+     */
+    public void execute() {
+        execute(null, 1);
+    }
+
+    /**
+     * Same as {@link #execute()}, but with up to {@code parallelism} batch requests in flight when more than
+     * {@link #MAX_BATCH_SIZE} requests are queued; handlers may then be invoked concurrently.
+     *
+     * @param executor executor service
+     * @param parallelism maximum number of concurrent batch requests; when lower than 2, all runs on calling thread
+     */
+    public void execute(final ExecutorService executor, final int parallelism) {
+        if (parts.isEmpty()) {
+            return;
+        }
+
+        Map<AbstractGoogleClient, List<Part<?, ?, ?>>> byClient = new LinkedHashMap<>();
+        parts.forEach(part -> byClient.computeIfAbsent(
+                part.request.getAbstractGoogleClient(), k -> new ArrayList<>()).add(part));
+        parts.clear();
+        failures.clear();
+
+        byClient.forEach((client, clientParts) -> {
+            List<List<Part<?, ?, ?>>> chunks = new ArrayList<>();
+            for (int i = 0; i < clientParts.size(); i += MAX_BATCH_SIZE) {
+                chunks.add(clientParts.subList(i, Math.min(i + MAX_BATCH_SIZE, clientParts.size())));
+            }
+            GoogleAppsParallel.forEachOrdered(
+                    executor,
+                    Math.min(parallelism, chunks.size()),
+                    chunks,
+                    chunk -> {
+                        execute(client, chunk);
+                        return chunk;
+                    },
+                    chunk -> true);
+        });
+
+        if (!failures.isEmpty()) {
+            RuntimeException failure = failures.get(0);
+            failures.subList(1, failures.size()).forEach(failure::addSuppressed);
+            failures.clear();
+            throw failure;
+        }
+    }
+
+    private void execute(final AbstractGoogleClient client, final List<Part<?, ?, ?>> chunk) {
+        Optional<GoogleApiRateLimiter> rateLimiter = GoogleApiRequestInitializer.rateLimiter(client);
+        GoogleApiRetryPolicy retryPolicy = GoogleApiRequestInitializer.retryPolicy(client);
+
+        long start = System.nanoTime();
+        List<Part<?, ?, ?>> pending = chunk;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            Round round = new Round(attempt, start, rateLimiter, retryPolicy);
+            try {
+                BatchRequest batch = client.batch(client.getRequestFactory().getInitializer());
+                for (Part<?, ?, ?> part : pending) {
+                    part.queue(batch, round);
+                }
+                // each part counts as one request against quota
+                int permits = pending.size();
+                rateLimiter.ifPresent(limiter -> limiter.acquire(permits));
+                batch.execute();
+            } catch (IOException e) {
+                // the response may have been cut short: parts whose outcome was already handled are not sent again
+                List<Part<?, ?, ?>> unfinished = pending.stream().
+                        filter(part -> !round.handled.contains(part)).collect(Collectors.toList());
+                long delay = retryPolicy.nextDelay(e, attempt, start);
+                if (delay < 0) {
+                    LOG.error(e, "Batch request failed, giving up");
+                    unfinished.forEach(part -> part.error(e));
+                    return;
+                }
+                LOG.warn(e, "Batch request failed, retrying {0} out of {1} requests",
+                        unfinished.size(), pending.size());
+                round.retryable.clear();
+                round.retryable.addAll(unfinished);
+                round.delay = Math.max(round.delay, delay);
+            }
+
+            pending = round.retryable;
+            if (!pending.isEmpty()) {
+                LOG.ok("Retrying {0} batched requests in {1} ms", pending.size(), round.delay);
+                GoogleApiRetryPolicy.sleep(round.delay);
+            }
+        }
+    }
+
+    /**
+     * Outcome of one batch round trip: parts already handled, parts to send again, and how long to wait before
+     * doing that.
+     */
+    private static final class Round {
+
+        private final int attempt;
+
+        private final long start;
+
+        private final Optional<GoogleApiRateLimiter> rateLimiter;
+
+        private final GoogleApiRetryPolicy retryPolicy;
+
+        private final List<Part<?, ?, ?>> retryable = new ArrayList<>();
+
+        private final Set<Part<?, ?, ?>> handled = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private long delay = 0;
+
+        Round(
+                final int attempt,
+                final long start,
+                final Optional<GoogleApiRateLimiter> rateLimiter,
+                final GoogleApiRetryPolicy retryPolicy) {
+
+            this.attempt = attempt;
+            this.start = start;
+            this.rateLimiter = rateLimiter;
+            this.retryPolicy = retryPolicy;
+        }
+    }
+
+    private final class Part<G extends AbstractGoogleJsonClientRequest<T>, T, R> {
+
+        private final G request;
+
+        private final RequestResultHandler<G, T, R> handler;
+
+        Part(final G request, final RequestResultHandler<G, T, R> handler) {
+            this.request = request;
+            this.handler = handler;
+        }
+
+        void queue(final BatchRequest batch, final Round round) throws IOException {
+            request.queue(batch, new JsonBatchCallback<T>() {
+
+                @Override
+                public void onSuccess(final T value, final HttpHeaders responseHeaders) {
+                    round.handled.add(Part.this);
+                    round.rateLimiter.ifPresent(GoogleApiRateLimiter::onSuccess);
+                    try {
+                        handler.handleResult(request, value);
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }
+
+                @Override
+                public void onFailure(final GoogleJsonError error, final HttpHeaders responseHeaders) {
+                    GoogleJsonResponseException e = new GoogleJsonResponseException(
+                            new HttpResponseException.Builder(error.getCode(), error.getMessage(), responseHeaders),
+                            error);
+                    if (GoogleApiRetryPolicy.isRateLimited(e)) {
+                        round.rateLimiter.ifPresent(GoogleApiRateLimiter::onThrottled);
+                    }
+
+                    long delay = round.retryPolicy.nextDelay(e, round.attempt, round.start);
+                    if (delay >= 0) {
+                        round.retryable.add(Part.this);
+                        round.delay = Math.max(round.delay, delay);
+                    } else {
+                        round.handled.add(Part.this);
+                        try {
+                            GoogleApiExecutor.handleResponseException(e, handler);
+                        } catch (RuntimeException re) {
+                            // let the handler decide about this part alone, instead of failing the whole batch
+                            error(re);
+                        }
+                    }
+                }
+            });
+        }
+
+        void error(final Throwable e) {
+            try {
+                handler.handleError(e);
+            } catch (RuntimeException re) {
+                failures.add(re);
+            }
+        }
+    }
+}
@@ -25,9 +25,10 @@ package net.tirasa.connid.bundles.googleapps;
 import com.google.api.client.googleapis.json.GoogleJsonError;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.HttpStatusCodes;
 import java.io.IOException;
-import java.security.SecureRandom;
+import java.util.Optional;
 import org.identityconnectors.common.Assertions;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
@@ -37,95 +38,150 @@ public final class GoogleApiExecutor {
 
     private static final Log LOG = Log.getLog(GoogleApiExecutor.class);
 
-    private static final SecureRandom RANDOM = new SecureRandom();
-
     public static <G extends AbstractGoogleJsonClientRequest<T>, T, R> R execute(
             final G request, final RequestResultHandler<G, T, R> handler) {
 
-        return execute(
-                Assertions.nullChecked(request, "Google Json ClientRequest"),
-                Assertions.nullChecked(handler, "handler"), -1);
+        Assertions.nullCheck(request, "Google Json ClientRequest");
+        Assertions.nullCheck(handler, "handler");
+
+        return execute(request, handler,
+                GoogleApiRequestInitializer.retryPolicy(request.getAbstractGoogleClient()));
     }
 
+    /**
+     * Executes the given request, retrying it at most {@code 5 - retry} more times.
+     *
+     * @param <G> request type
+     * @param <T> response type
+     * @param <R> handler result type
+     * @param request request
+     * @param handler handler
+     * @param retry number of retries already performed, -1 for none
+     * @return handler result
+     * @deprecated retries are driven by the {@link GoogleApiRetryPolicy} of the client, use
+     * {@link #execute(AbstractGoogleJsonClientRequest, RequestResultHandler)} instead
+     */
+    @Deprecated
     public static <G extends AbstractGoogleJsonClientRequest<T>, T, R> R execute(
             final G request, final RequestResultHandler<G, T, R> handler, final int retry) {
 
-        try {
-            if (retry >= 0) {
-                long sleep = (long) ((1000 * Math.pow(2, retry)) + nextLong(1000));
-                try {
-                    Thread.sleep(sleep);
-                } catch (InterruptedException e) {
-                    throw ConnectorException.wrap(e);
+        Assertions.nullCheck(request, "Google Json ClientRequest");
+        Assertions.nullCheck(handler, "handler");
+
+        GoogleApiRetryPolicy retryPolicy = GoogleApiRequestInitializer.retryPolicy(request.getAbstractGoogleClient());
+        return execute(request, handler, new GoogleApiRetryPolicy(
+                Math.max(1, 6 - retry),
+                retryPolicy.getBaseDelay(),
+                retryPolicy.getMaxDelay(),
+                retryPolicy.getMaxElapsedTime()));
+    }
+
+    private static <G extends AbstractGoogleJsonClientRequest<T>, T, R> R execute(
+            final G request, final RequestResultHandler<G, T, R> handler, final GoogleApiRetryPolicy retryPolicy) {
+
+        Optional<GoogleApiRateLimiter> rateLimiter =
+                GoogleApiRequestInitializer.rateLimiter(request.getAbstractGoogleClient());
+
+        long start = System.nanoTime();
+        for (int attempt = 1;; attempt++) {
+            T result;
+            try {
+                rateLimiter.ifPresent(limiter -> limiter.acquire(1));
+                result = request.execute();
+            } catch (IOException e) {
+                if (e instanceof HttpResponseException
+                        && GoogleApiRetryPolicy.isRateLimited((HttpResponseException) e)) {
+
+                    rateLimiter.ifPresent(GoogleApiRateLimiter::onThrottled);
                 }
-            }
-            return handler.handleResult(request, request.execute());
-        } catch (GoogleJsonResponseException e) {
-            GoogleJsonError details = e.getDetails();
-            if (null != details && null != details.getErrors()) {
-                GoogleJsonError.ErrorInfo errorInfo = details.getErrors().get(0);
-                // error: 403
-                LOG.error("Unable to execute request {0} - {1} - {2}",
-                        e.getStatusCode(), e.getStatusMessage(), errorInfo.getReason());
-                switch (e.getStatusCode()) {
-                    case HttpStatusCodes.STATUS_CODE_FORBIDDEN:
-                        if ("userRateLimitExceeded".equalsIgnoreCase(errorInfo.getReason())
-                                || "rateLimitExceeded".equalsIgnoreCase(errorInfo.getReason())) {
-                            return handler.handleError(e);
-                        }
-                        break;
-                    case HttpStatusCodes.STATUS_CODE_NOT_FOUND:
-                        if ("notFound".equalsIgnoreCase(errorInfo.getReason())) {
-                            return handler.handleNotFound(e);
-                        }
-                        break;
-                    case 409:
-                        if ("duplicate".equalsIgnoreCase(errorInfo.getReason())) {
-                            // Already Exists
-                            handler.handleDuplicate(e);
-                        }
-                        break;
-                    case 400:
-                        if ("invalid".equalsIgnoreCase(errorInfo.getReason())) {
-                            // Already Exists "Invalid Ou Id"
-                        }
-                        break;
-                    case HttpStatusCodes.STATUS_CODE_SERVICE_UNAVAILABLE:
-                        if ("backendError".equalsIgnoreCase(errorInfo.getReason())) {
-                            throw RetryableException.wrap(e.getMessage(), e);
-                        }
-                        break;
-                    default:
-                        break;
+
+                long delay = retryPolicy.nextDelay(e, attempt, start);
+                if (delay >= 0) {
+                    LOG.ok("Attempt {0} failed with {1}, retrying in {2} ms", attempt, e.getMessage(), delay);
+                    GoogleApiRetryPolicy.sleep(delay);
+                    continue;
                 }
-            }
 
-            if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_FORBIDDEN) {
-                LOG.error("Forbidden request");
-                handler.handleError(e);
-            } else if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
-                LOG.error("Endpoint not found for request");
-                return handler.handleNotFound(e);
-            }
-            throw ConnectorException.wrap(e);
-        } catch (IOException e) {
-            // https://developers.google.com/admin-sdk/directory/v1/limits
-            // rateLimitExceeded or userRateLimitExceeded
-            if (retry < 5) {
-                return execute(request, handler, retry + 1);
-            } else {
+                if (e instanceof GoogleJsonResponseException) {
+                    return handleResponseException((GoogleJsonResponseException) e, handler);
+                }
                 return handler.handleError(e);
             }
+
+            rateLimiter.ifPresent(GoogleApiRateLimiter::onSuccess);
+            return handler.handleResult(request, result);
+        }
+    }
+
+    /**
+     * Maps a Google JSON error response onto the given handler; shared by single and batched execution.
+     *
+     * @param <R> handler result type
+     * @param e error response
+     * @param handler handler to notify
+     * @return handler result, when the handler chooses to swallow the error
+     */
+    static <R> R handleResponseException(
+            final GoogleJsonResponseException e, final RequestResultHandler<?, ?, R> handler) {
+
+        if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED) {
+            return handler.handleNotModified(e);
+        }
+        if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_PRECONDITION_FAILED) {
+            return handler.handlePreconditionFailed(e);
+        }
+
+        GoogleJsonError details = e.getDetails();
+        if (null != details && null != details.getErrors() && !details.getErrors().isEmpty()) {
+            GoogleJsonError.ErrorInfo errorInfo = details.getErrors().get(0);
+            // error: 403
+            LOG.error("Unable to execute request {0} - {1} - {2}",
+                    e.getStatusCode(), e.getStatusMessage(), errorInfo.getReason());
+            switch (e.getStatusCode()) {
+                case HttpStatusCodes.STATUS_CODE_FORBIDDEN:
+                    if (isRateLimitExceeded(errorInfo)) {
+                        return handler.handleError(e);
+                    }
+                    break;
+                case HttpStatusCodes.STATUS_CODE_NOT_FOUND:
+                    if ("notFound".equalsIgnoreCase(errorInfo.getReason())) {
+                        return handler.handleNotFound(e);
+                    }
+                    break;
+                case 409:
+                    if ("duplicate".equalsIgnoreCase(errorInfo.getReason())) {
+                        // Already Exists
+                        return handler.handleDuplicate(e);
+                    }
+                    break;
+                case 400:
+                    if ("invalid".equalsIgnoreCase(errorInfo.getReason())) {
+                        // Already Exists "Invalid Ou Id"
+                    }
+                    break;
+                case HttpStatusCodes.STATUS_CODE_SERVICE_UNAVAILABLE:
+                    if ("backendError".equalsIgnoreCase(errorInfo.getReason())) {
+                        throw RetryableException.wrap(e.getMessage(), e);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_FORBIDDEN) {
+            LOG.error("Forbidden request");
+            handler.handleError(e);
+        } else if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
+            LOG.error("Endpoint not found for request");
+            return handler.handleNotFound(e);
         }
+        throw ConnectorException.wrap(e);
     }
 
-    private static long nextLong(final long n) {
-        long bits, val;
-        do {
-            bits = (RANDOM.nextLong() << 1) >>> 1;
-            val = bits % n;
-        } while (bits - val + (n - 1) < 0L);
-        return val;
+    private static boolean isRateLimitExceeded(final GoogleJsonError.ErrorInfo errorInfo) {
+        return "userRateLimitExceeded".equalsIgnoreCase(errorInfo.getReason())
+                || "rateLimitExceeded".equalsIgnoreCase(errorInfo.getReason());
     }
 
     private GoogleApiExecutor() {
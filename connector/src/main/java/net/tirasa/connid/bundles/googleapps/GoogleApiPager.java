@@ -0,0 +1,282 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.identityconnectors.common.StringUtil;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * Walks through the pages returned by a Google API list request.
+ * With a positive prefetch depth, pages are fetched by a worker thread while the previous ones are being consumed,
+ * so that network and processing time overlap instead of adding up; at most {@code prefetchDepth} pages wait to be
+ * consumed, plus the one being fetched.
+ * Several list requests can also be walked through concurrently, with their pages merged into one stream.
+ */
+public final class GoogleApiPager {
+
+    private static final class Page<G, T> {
+
+        private final G request;
+
+        private final T value;
+
+        private final String nextPageToken;
+
+        private final RuntimeException error;
+
+        Page(final G request, final T value, final String nextPageToken, final RuntimeException error) {
+            this.request = request;
+            this.value = value;
+            this.nextPageToken = nextPageToken;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Passes all pages returned by the given request to {@code consumer}, on the calling thread and in order.
+     * Fetching stops as soon as {@code consumer} returns {@code false}; any page being prefetched is discarded.
+     *
+     * @param <G> request type
+     * @param <T> page type
+     * @param request list request, with page token already set for the first page
+     * @param nextPageToken extracts the next page token from a page
+     * @param setPageToken sets the page token on request
+     * @param executor executor service, for prefetching
+     * @param prefetchDepth maximum number of pages fetched ahead; 0 disables prefetching
+     * @param singlePage whether to fetch only the first page, as for paged searches
+     * @param consumer page consumer
+     * @return token of the page following the last one consumed, or null if there are no more pages
+     */
+    public static <G extends AbstractGoogleJsonClientRequest<T>, T> String forEachPage(
+            final G request,
+            final Function<T, String> nextPageToken,
+            final BiConsumer<G, String> setPageToken,
+            final ExecutorService executor,
+            final int prefetchDepth,
+            final boolean singlePage,
+            final Predicate<T> consumer) {
+
+        if (singlePage || prefetchDepth < 1) {
+            String token;
+            do {
+                T page = fetch(request);
+                token = nextPageToken.apply(page);
+                if (!consumer.test(page)) {
+                    return token;
+                }
+                setPageToken.accept(request, token);
+            } while (!singlePage && StringUtil.isNotBlank(token));
+            return StringUtil.isBlank(token) ? null : token;
+        }
+
+        BlockingQueue<Page<G, T>> pages = new ArrayBlockingQueue<>(prefetchDepth);
+        Future<?> producer = executor.submit(() -> {
+            try {
+                String token;
+                do {
+                    T page;
+                    try {
+                        page = fetch(request);
+                        token = nextPageToken.apply(page);
+                    } catch (RuntimeException e) {
+                        pages.put(new Page<>(request, null, null, e));
+                        return;
+                    }
+                    pages.put(new Page<>(request, page, token, null));
+                    setPageToken.accept(request, token);
+                } while (StringUtil.isNotBlank(token));
+            } catch (InterruptedException e) {
+                // consumer stopped
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            while (true) {
+                Page<G, T> page = pages.take();
+                if (null != page.error) {
+                    throw page.error;
+                }
+                if (!consumer.test(page.value)) {
+                    return page.nextPageToken;
+                }
+                if (StringUtil.isBlank(page.nextPageToken)) {
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ConnectorException.wrap(e);
+        } finally {
+            producer.cancel(true);
+        }
+    }
+
+    /**
+     * Passes all pages returned by the given requests to {@code consumer}, on the calling thread; requests are walked
+     * through concurrently, so pages of different requests are interleaved as they arrive, while pages of the same
+     * request keep their order.
+     * Fetching stops as soon as {@code consumer} returns {@code false} or any request fails.
+     *
+     * @param <G> request type
+     * @param <T> page type
+     * @param requests list requests, with page token already set for their first page
+     * @param nextPageToken extracts the next page token from a page
+     * @param setPageToken sets the page token on request
+     * @param executor executor service
+     * @param parallelism maximum number of requests walked through at the same time; when lower than 2, requests
+     * are walked through one after the other, with prefetching
+     * @param prefetchDepth maximum number of pages fetched ahead, when walking through requests one after the other
+     * @param consumer page consumer
+     * @return whether all pages were consumed, e.g. {@code consumer} never returned {@code false}
+     */
+    public static <G extends AbstractGoogleJsonClientRequest<T>, T> boolean forEachPageMerged(
+            final List<G> requests,
+            final Function<T, String> nextPageToken,
+            final BiConsumer<G, String> setPageToken,
+            final ExecutorService executor,
+            final int parallelism,
+            final int prefetchDepth,
+            final Predicate<T> consumer) {
+
+        return forEachPageMerged(requests, nextPageToken, setPageToken, executor, parallelism, prefetchDepth,
+                (request, page) -> consumer.test(page));
+    }
+
+    /**
+     * Same as {@link #forEachPageMerged(List, Function, BiConsumer, ExecutorService, int, int, Predicate)}, but
+     * every page is passed to {@code consumer} along with the request it was returned by.
+     *
+     * @param <G> request type
+     * @param <T> page type
+     * @param requests list requests, with page token already set for their first page
+     * @param nextPageToken extracts the next page token from a page
+     * @param setPageToken sets the page token on request
+     * @param executor executor service
+     * @param parallelism maximum number of requests walked through at the same time
+     * @param prefetchDepth maximum number of pages fetched ahead, when walking through requests one after the other
+     * @param consumer request and page consumer
+     * @return whether all pages were consumed, e.g. {@code consumer} never returned {@code false}
+     */
+    public static <G extends AbstractGoogleJsonClientRequest<T>, T> boolean forEachPageMerged(
+            final List<G> requests,
+            final Function<T, String> nextPageToken,
+            final BiConsumer<G, String> setPageToken,
+            final ExecutorService executor,
+            final int parallelism,
+            final int prefetchDepth,
+            final BiPredicate<G, T> consumer) {
+
+        if (parallelism < 2 || requests.size() < 2) {
+            for (G request : requests) {
+                boolean[] proceed = { true };
+                forEachPage(request, nextPageToken, setPageToken, executor, prefetchDepth, false, page -> {
+                    proceed[0] = consumer.test(request, page);
+                    return proceed[0];
+                });
+                if (!proceed[0]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int workers = Math.min(parallelism, requests.size());
+        BlockingQueue<Page<G, T>> pages = new ArrayBlockingQueue<>(workers);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> producers = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            producers.add(executor.submit(() -> {
+                try {
+                    int idx;
+                    while ((idx = next.getAndIncrement()) < requests.size()) {
+                        G request = requests.get(idx);
+                        String token;
+                        do {
+                            T page;
+                            try {
+                                page = fetch(request);
+                                token = nextPageToken.apply(page);
+                            } catch (RuntimeException e) {
+                                pages.put(new Page<>(request, null, null, e));
+                                return;
+                            }
+                            pages.put(new Page<>(request, page, token, null));
+                            setPageToken.accept(request, token);
+                        } while (StringUtil.isNotBlank(token));
+                    }
+                    // this worker is done
+                    pages.put(new Page<>(null, null, null, null));
+                } catch (InterruptedException e) {
+                    // consumer stopped
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        try {
+            int done = 0;
+            while (done < workers) {
+                Page<G, T> page = pages.take();
+                if (null != page.error) {
+                    throw page.error;
+                }
+                if (null == page.value) {
+                    done++;
+                } else if (!consumer.test(page.request, page.value)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ConnectorException.wrap(e);
+        } finally {
+            producers.forEach(producer -> producer.cancel(true));
+        }
+    }
+
+    private static <G extends AbstractGoogleJsonClientRequest<T>, T> T fetch(final G request) {
+        return GoogleApiExecutor.execute(request, new RequestResultHandler<G, T, T>() {
+
+            @Override
+            public T handleResult(final G request, final T value) {
+                return value;
+            }
+        });
+    }
+
+    private GoogleApiPager() {
+        // private constructor for static utility class
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * Token bucket limiting the rate of requests sent to a Google API, shared by all connector instances in the JVM
+ * working on the same domain and API, as Google quotas are; when these instances are configured with different
+ * maximum rates, the lowest one applies.
+ * The rate is adapted to the responses received: it is halved on rate limit errors (403 / 429) and slowly raised
+ * back towards the configured maximum on successful responses, so that throughput settles just below quota.
+ */
+public final class GoogleApiRateLimiter {
+
+    private static final Log LOG = Log.getLog(GoogleApiRateLimiter.class);
+
+    private static final Map<String, GoogleApiRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    /**
+     * Minimum interval between two consecutive rate decreases, so that a burst of throttled responses to requests
+     * sent at the same time does not bring the rate down to the minimum.
+     */
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final double MIN_RATE = 1.0;
+
+    /**
+     * Returns the rate limiter for the given domain and API, creating it if needed; if the given maximum rate is
+     * lower than the one of the existing limiter, the latter is lowered accordingly.
+     *
+     * @param domain Google domain
+     * @param api API name, e.g. directory or licensing
+     * @param maxRate maximum number of requests per second
+     * @return rate limiter
+     */
+    public static GoogleApiRateLimiter get(final String domain, final String api, final double maxRate) {
+        GoogleApiRateLimiter limiter = LIMITERS.computeIfAbsent(
+                domain + '/' + api, key -> new GoogleApiRateLimiter(key, maxRate));
+        limiter.limitMaxRate(maxRate);
+        return limiter;
+    }
+
+    private final String key;
+
+    private double maxRate;
+
+    private double rate;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    private long lastDecrease;
+
+    GoogleApiRateLimiter(final String key, final double maxRate) {
+        this.key = key;
+        this.maxRate = maxRate;
+        this.rate = maxRate;
+        this.tokens = maxRate;
+        this.lastRefill = System.nanoTime();
+        this.lastDecrease = lastRefill - DECREASE_INTERVAL_NANOS;
+    }
+
+    synchronized void limitMaxRate(final double maxRate) {
+        if (maxRate < this.maxRate) {
+            LOG.ok("Lowering maximum rate for {0} from {1} to {2} requests per second", key, this.maxRate, maxRate);
+            this.maxRate = maxRate;
+            this.rate = Math.min(rate, maxRate);
+            this.tokens = Math.min(tokens, maxRate);
+        }
+    }
+
+    private void refill(final long now) {
+        // bucket capacity is one second worth of requests
+        tokens = Math.min(rate, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+    }
+
+    /**
+     * Reserves the given number of permits, waiting until they are available.
+     *
+     * @param permits number of requests about to be sent
+     */
+    public void acquire(final int permits) {
+        long wait;
+        synchronized (this) {
+            refill(System.nanoTime());
+            tokens -= permits;
+            wait = tokens >= 0 ? 0 : (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / rate);
+        }
+
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw ConnectorException.wrap(e);
+            }
+        }
+    }
+
+    /**
+     * To be invoked upon successful response: additive increase of the current rate.
+     */
+    public synchronized void onSuccess() {
+        if (rate < maxRate) {
+            refill(System.nanoTime());
+            rate = Math.min(maxRate, rate + maxRate / 200);
+        }
+    }
+
+    /**
+     * To be invoked upon rate limit error: multiplicative decrease of the current rate; the bucket is also
+     * emptied, to stop bursts immediately.
+     */
+    public synchronized void onThrottled() {
+        long now = System.nanoTime();
+        if (now - lastDecrease >= DECREASE_INTERVAL_NANOS) {
+            refill(now);
+            rate = Math.max(MIN_RATE, rate / 2);
+            tokens = Math.min(tokens, 0);
+            lastDecrease = now;
+            LOG.warn("Rate limit exceeded for {0}, now sending at most {1} requests per second", key, rate);
+        }
+    }
+
+    /**
+     * @return permits which can be acquired right now without waiting
+     */
+    public synchronized int getAvailablePermits() {
+        refill(System.nanoTime());
+        return (int) Math.max(0, Math.floor(tokens));
+    }
+
+    /**
+     * @return current rate, as number of requests per second
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized double getMaxRate() {
+        return maxRate;
+    }
+
+    @Override
+    public String toString() {
+        return GoogleApiRateLimiter.class.getSimpleName() + "{" + key + ", rate=" + getRate() + '}';
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.client.googleapis.services.AbstractGoogleClient;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Initializes every HTTP request sent by a Google API client built by {@link GoogleAppsConfiguration}, and carries
+ * the per-API execution settings looked up by {@link GoogleApiExecutor} and {@link GoogleApiBatch}.
+ */
+public class GoogleApiRequestInitializer implements HttpRequestInitializer {
+
+    /**
+     * Finds the rate limiter configured for the given client, if any.
+     *
+     * @param client Google API client
+     * @return rate limiter, if configured
+     */
+    public static Optional<GoogleApiRateLimiter> rateLimiter(final AbstractGoogleClient client) {
+        HttpRequestInitializer initializer = client.getRequestFactory().getInitializer();
+        return initializer instanceof GoogleApiRequestInitializer
+                ? Optional.ofNullable(((GoogleApiRequestInitializer) initializer).getRateLimiter())
+                : Optional.empty();
+    }
+
+    /**
+     * Finds the retry policy configured for the given client, or the default one.
+     *
+     * @param client Google API client
+     * @return retry policy
+     */
+    public static GoogleApiRetryPolicy retryPolicy(final AbstractGoogleClient client) {
+        HttpRequestInitializer initializer = client.getRequestFactory().getInitializer();
+        return initializer instanceof GoogleApiRequestInitializer
+                ? ((GoogleApiRequestInitializer) initializer).getRetryPolicy()
+                : GoogleApiRetryPolicy.DEFAULT;
+    }
+
+    private final HttpRequestInitializer delegate;
+
+    private final GoogleApiRateLimiter rateLimiter;
+
+    private final GoogleApiRetryPolicy retryPolicy;
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    public GoogleApiRequestInitializer(
+            final HttpRequestInitializer delegate,
+            final GoogleApiRateLimiter rateLimiter,
+            final GoogleApiRetryPolicy retryPolicy) {
+
+        this(delegate, rateLimiter, retryPolicy, -1, -1);
+    }
+
+    /**
+     * @param delegate initializer to invoke first, e.g. for credentials
+     * @param rateLimiter rate limiter, may be null
+     * @param retryPolicy retry policy, default if null
+     * @param connectTimeout connect timeout in milliseconds, 0 for infinite; negative keeps client default
+     * @param readTimeout read timeout in milliseconds, 0 for infinite; negative keeps client default
+     */
+    public GoogleApiRequestInitializer(
+            final HttpRequestInitializer delegate,
+            final GoogleApiRateLimiter rateLimiter,
+            final GoogleApiRetryPolicy retryPolicy,
+            final int connectTimeout,
+            final int readTimeout) {
+
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+        this.retryPolicy = Optional.ofNullable(retryPolicy).orElse(GoogleApiRetryPolicy.DEFAULT);
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    public GoogleApiRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public GoogleApiRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    @Override
+    public void initialize(final HttpRequest request) throws IOException {
+        delegate.initialize(request);
+        if (connectTimeout >= 0) {
+            request.setConnectTimeout(connectTimeout);
+        }
+        if (readTimeout >= 0) {
+            request.setReadTimeout(readTimeout);
+        }
+    }
+}
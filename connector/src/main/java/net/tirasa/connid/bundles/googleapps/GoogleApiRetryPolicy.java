@@ -0,0 +1,219 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.identityconnectors.common.StringUtil;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * Decides whether and when a failed Google API request is sent again.
+ * Retried are I/O errors, rate limit errors (403 {@code rateLimitExceeded} / {@code userRateLimitExceeded}, 429)
+ * and server errors (500, 502, 503, 504); the delay is the one requested by Google via {@code Retry-After}, when
+ * available, or an exponential backoff with full jitter otherwise.
+ * No retry is attempted once the maximum number of attempts is reached, or when the delay would go past the
+ * maximum elapsed time since the first attempt.
+ *
+ * @see <a href="https://developers.google.com/admin-sdk/directory/v1/limits">Limits and Quotas</a>
+ */
+public final class GoogleApiRetryPolicy {
+
+    private static final Log LOG = Log.getLog(GoogleApiRetryPolicy.class);
+
+    public static final GoogleApiRetryPolicy DEFAULT = new GoogleApiRetryPolicy(6, 1000, 64000, 300000);
+
+    /**
+     * Tells whether the given error reports that quota was exceeded.
+     *
+     * @param e error response
+     * @return whether the request was throttled
+     */
+    public static boolean isRateLimited(final HttpResponseException e) {
+        if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_FORBIDDEN && e instanceof GoogleJsonResponseException) {
+            GoogleJsonError details = ((GoogleJsonResponseException) e).getDetails();
+            if (null != details && null != details.getErrors() && !details.getErrors().isEmpty()) {
+                String reason = details.getErrors().get(0).getReason();
+                return "userRateLimitExceeded".equalsIgnoreCase(reason) || "rateLimitExceeded".equalsIgnoreCase(reason);
+            }
+        }
+        return e.getStatusCode() == 429;
+    }
+
+    private final int maxAttempts;
+
+    private final long baseDelay;
+
+    private final long maxDelay;
+
+    private final long maxElapsedTime;
+
+    /**
+     * @param maxAttempts maximum number of attempts, including the first one
+     * @param baseDelay delay before first retry, in milliseconds; doubles on every further retry
+     * @param maxDelay upper bound of the computed delay, in milliseconds
+     * @param maxElapsedTime maximum time, in milliseconds, after the first attempt when retrying is allowed;
+     * 0 means no limit
+     */
+    public GoogleApiRetryPolicy(
+            final int maxAttempts,
+            final long baseDelay,
+            final long maxDelay,
+            final long maxElapsedTime) {
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxElapsedTime = maxElapsedTime;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public long getMaxElapsedTime() {
+        return maxElapsedTime;
+    }
+
+    /**
+     * Tells whether the given error is transient, e.g. the very same request can be sent again.
+     *
+     * @param e error
+     * @return whether retrying makes sense
+     */
+    public boolean isRetryable(final IOException e) {
+        if (e instanceof HttpResponseException) {
+            HttpResponseException hre = (HttpResponseException) e;
+            switch (hre.getStatusCode()) {
+                case HttpStatusCodes.STATUS_CODE_SERVER_ERROR:
+                case HttpStatusCodes.STATUS_CODE_BAD_GATEWAY:
+                case HttpStatusCodes.STATUS_CODE_SERVICE_UNAVAILABLE:
+                case 504:
+                    return true;
+
+                default:
+                    return isRateLimited(hre);
+            }
+        }
+        // network errors
+        return true;
+    }
+
+    /**
+     * Computes how long to wait before the next attempt.
+     *
+     * @param e error received by the last attempt
+     * @param attempt number of attempts made so far
+     * @param start {@link System#nanoTime()} of the first attempt
+     * @return delay in milliseconds, or -1 if no further attempt shall be made
+     */
+    public long nextDelay(final IOException e, final int attempt, final long start) {
+        if (attempt >= maxAttempts || !isRetryable(e)) {
+            return -1;
+        }
+
+        long delay = e instanceof HttpResponseException
+                ? retryAfter(((HttpResponseException) e).getHeaders())
+                : -1;
+        if (delay < 0) {
+            // full jitter
+            long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+            delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        }
+
+        if (maxElapsedTime > 0
+                && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + delay > maxElapsedTime) {
+
+            LOG.warn("Not retrying after {0} attempts: waiting {1} ms would exceed {2} ms",
+                    attempt, delay, maxElapsedTime);
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * Reads the {@code Retry-After} header, either delay in seconds or HTTP date.
+     *
+     * @param headers response headers
+     * @return delay in milliseconds, or -1 if not available
+     */
+    static long retryAfter(final HttpHeaders headers) {
+        String retryAfter = null == headers ? null : headers.getFirstHeaderStringValue("Retry-After");
+        if (StringUtil.isBlank(retryAfter)) {
+            return -1;
+        }
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException nfe) {
+            try {
+                return Math.max(0, Duration.between(
+                        ZonedDateTime.now(),
+                        ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)).toMillis());
+            } catch (DateTimeParseException dtpe) {
+                LOG.ok("Unparseable Retry-After: {0}", retryAfter);
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Waits for the given delay.
+     *
+     * @param delay delay in milliseconds
+     */
+    public static void sleep(final long delay) {
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw ConnectorException.wrap(e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return GoogleApiRetryPolicy.class.getSimpleName() + "{maxAttempts=" + maxAttempts
+                + ", baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + ", maxElapsedTime=" + maxElapsedTime + '}';
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.identityconnectors.common.logging.Log;
+
+/**
+ * Renews OAuth2 access tokens in background, before they expire, so that no request thread has to wait for a token
+ * round trip; tokens are renewed {@link #REFRESH_AHEAD_SECONDS} before expiry, earlier than the Google auth library
+ * itself would consider them stale.
+ * Should background renewal fail, the token is still renewed on first use after expiry, as usual.
+ */
+public final class GoogleApiTokenRefresher {
+
+    private static final Log LOG = Log.getLog(GoogleApiTokenRefresher.class);
+
+    public static final long REFRESH_AHEAD_SECONDS = 600;
+
+    public static final long CHECK_INTERVAL_SECONDS = 60;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "googleapps-token-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Starts renewing the access token of the given credentials.
+     *
+     * @param credentials credentials
+     * @return handle to cancel renewal, e.g. when credentials are discarded
+     */
+    public static ScheduledFuture<?> schedule(final GoogleCredentials credentials) {
+        return SCHEDULER.scheduleWithFixedDelay(
+                () -> refreshIfExpiring(credentials), 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    static void refreshIfExpiring(final GoogleCredentials credentials) {
+        AccessToken token = credentials.getAccessToken();
+        if (null == token || (null != token.getExpirationTime()
+                && token.getExpirationTime().getTime() - System.currentTimeMillis()
+                < TimeUnit.SECONDS.toMillis(REFRESH_AHEAD_SECONDS))) {
+
+            try {
+                credentials.refresh();
+                LOG.ok("Access token renewed, expiring at {0}", credentials.getAccessToken().getExpirationTime());
+            } catch (IOException | RuntimeException e) {
+                LOG.warn(e, "Could not renew access token in background");
+            }
+        }
+    }
+
+    private GoogleApiTokenRefresher() {
+        // private constructor for static utility class
+    }
+}
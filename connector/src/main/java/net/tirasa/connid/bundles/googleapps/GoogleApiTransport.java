@@ -0,0 +1,123 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.identityconnectors.common.logging.Log;
+
+/**
+ * HTTP transports backed by a pool of keep-alive connections, shared by all connector instances in the JVM using
+ * the same proxy and pool size, so that concurrent requests reuse TLS connections instead of opening new ones.
+ * Idle connections are closed after {@link #IDLE_TIMEOUT_SECONDS}, well before Google front ends drop them.
+ */
+public final class GoogleApiTransport {
+
+    private static final Log LOG = Log.getLog(GoogleApiTransport.class);
+
+    private static final Map<String, HttpTransport> TRANSPORTS = new ConcurrentHashMap<>();
+
+    public static final long IDLE_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Keep-alive as advertised by server, if any, but never longer than idle timeout.
+     */
+    private static final ConnectionKeepAliveStrategy KEEP_ALIVE = (response, context) -> {
+        long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        long max = TimeUnit.SECONDS.toMillis(IDLE_TIMEOUT_SECONDS);
+        return keepAlive > 0 ? Math.min(keepAlive, max) : max;
+    };
+
+    /**
+     * Returns the transport for the given proxy and pool size, creating it if needed.
+     *
+     * @param proxy HTTP proxy, may be null
+     * @param maxConnectionsPerRoute maximum number of connections to the same host
+     * @return HTTP transport
+     */
+    public static HttpTransport get(final HttpHost proxy, final int maxConnectionsPerRoute) {
+        return TRANSPORTS.computeIfAbsent(
+                (null == proxy ? "direct" : proxy.toHostString()) + '/' + maxConnectionsPerRoute,
+                key -> {
+                    LOG.ok("Creating HTTP transport {0}", key);
+                    return new ApacheHttpTransport(builder(proxy).
+                            setMaxConnPerRoute(maxConnectionsPerRoute).
+                            // Directory and Licensing endpoints
+                            setMaxConnTotal(maxConnectionsPerRoute * 4).
+                            build());
+                });
+    }
+
+    /**
+     * Returns the transport for OAuth2 token requests with the given proxy and timeouts, creating it if needed.
+     * Such requests are built by google-auth with no initializer, hence with the default timeouts of
+     * google-http-client: the given ones are enforced by the HTTP client instead, overriding whatever is set on
+     * the request.
+     * With no HTTP proxy, connections are opened by JDK sockets, so the SOCKS proxy set by the {@code socksProxyHost}
+     * and {@code socksProxyPort} system properties, if any, is used.
+     *
+     * @param proxy HTTP proxy, may be null
+     * @param connectTimeout connect timeout in milliseconds, 0 for infinite
+     * @param readTimeout read timeout in milliseconds, 0 for infinite
+     * @return HTTP transport
+     */
+    public static HttpTransport credentials(final HttpHost proxy, final int connectTimeout, final int readTimeout) {
+        return TRANSPORTS.computeIfAbsent(
+                "credentials/" + (null == proxy ? "direct" : proxy.toHostString())
+                + '/' + connectTimeout + '/' + readTimeout,
+                key -> {
+                    LOG.ok("Creating HTTP transport {0}", key);
+                    return new ApacheHttpTransport(builder(proxy).
+                            addInterceptorLast((HttpRequestInterceptor) (request, context) -> {
+                                HttpClientContext clientContext = HttpClientContext.adapt(context);
+                                clientContext.setRequestConfig(RequestConfig.copy(clientContext.getRequestConfig()).
+                                        setConnectTimeout(connectTimeout).
+                                        setSocketTimeout(readTimeout).
+                                        build());
+                            }).
+                            build());
+                });
+    }
+
+    private static HttpClientBuilder builder(final HttpHost proxy) {
+        return ApacheHttpTransport.newDefaultHttpClientBuilder().
+                setProxy(proxy).
+                setKeepAliveStrategy(KEEP_ALIVE).
+                evictExpiredConnections().
+                evictIdleConnections(IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private GoogleApiTransport() {
+        // private constructor for static utility class
+    }
+}
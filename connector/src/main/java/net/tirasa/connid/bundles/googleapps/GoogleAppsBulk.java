@@ -0,0 +1,445 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.services.directory.Directory;
+import com.google.api.services.directory.model.Group;
+import com.google.api.services.directory.model.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.identityconnectors.common.StringUtil;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.common.security.GuardedString;
+import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.InvalidAttributeValueException;
+import org.identityconnectors.framework.common.exceptions.PreconditionFailedException;
+import org.identityconnectors.framework.common.exceptions.UnknownUidException;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.AttributesAccessor;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationalAttributes;
+import org.identityconnectors.framework.common.objects.PredefinedAttributes;
+import org.identityconnectors.framework.common.objects.Uid;
+
+/**
+ * Applies many create, update and delete operations in one go, for bulk provisioning via
+ * {@link org.identityconnectors.framework.spi.operations.ScriptOnConnectorOp} with script language
+ * {@value #SCRIPT_LANGUAGE}; the operations are passed as the {@value #OPERATIONS} script argument, each being a
+ * map with keys {@value #OPERATION} (CREATE, UPDATE or DELETE), {@value #OBJECT_CLASS}, {@value #UID} and
+ * {@value #REVISION} (update and delete only) and {@value #ATTRIBUTES} (create and update only, attribute name to
+ * value or list of values).
+ * <p>
+ * Operations which translate into a single Google API call - deletes, and creates or updates of users and groups
+ * not involving aliases, memberships, photos, admin status or licenses - are sent as batch requests; all
+ * others are run as single operations, concurrently.
+ * Operations on the same Uid are applied in the given order, the others in no particular order.
+ * <p>
+ * One result map per operation is returned, in the same order, with {@value #UID} and {@value #REVISION} on
+ * success, with {@value #ERROR_TYPE} and {@value #ERROR} on failure.
+ */
+public class GoogleAppsBulk {
+
+    private static final Log LOG = Log.getLog(GoogleAppsBulk.class);
+
+    public static final String SCRIPT_LANGUAGE = "bulk";
+
+    public static final String OPERATIONS = "operations";
+
+    public static final String OPERATION = "operation";
+
+    public static final String OBJECT_CLASS = "objectClass";
+
+    public static final String UID = "uid";
+
+    public static final String REVISION = "revision";
+
+    public static final String ATTRIBUTES = "attributes";
+
+    public static final String ERROR_TYPE = "errorType";
+
+    public static final String ERROR = "error";
+
+    private enum Type {
+        CREATE,
+        UPDATE,
+        DELETE
+
+    }
+
+    private static final Set<String> USER_SIDE_ATTRS = new LinkedHashSet<>(List.of(
+            GoogleAppsUtil.ALIASES_ATTR, GoogleAppsUtil.PHOTO_ATTR, GoogleAppsUtil.IS_ADMIN_ATTR,
+            PredefinedAttributes.GROUPS_NAME));
+
+    private static final Set<String> GROUP_SIDE_ATTRS = new LinkedHashSet<>(List.of(
+            GoogleAppsUtil.ALIASES_ATTR, GoogleAppsUtil.MEMBERS_ATTR));
+
+    private static final class Item {
+
+        private final int index;
+
+        private final Type type;
+
+        private final ObjectClass objectClass;
+
+        private final Uid uid;
+
+        private final Set<Attribute> attributes;
+
+        private Item(final int index, final Map<?, ?> operation) {
+            this.index = index;
+
+            Object typeValue = operation.get(OPERATION);
+            if (null == typeValue) {
+                throw new InvalidAttributeValueException("Missing '" + OPERATION + "'");
+            }
+            this.type = Type.valueOf(typeValue.toString().toUpperCase(Locale.ROOT));
+
+            Object objectClassValue = operation.get(OBJECT_CLASS);
+            if (null == objectClassValue) {
+                throw new InvalidAttributeValueException("Missing '" + OBJECT_CLASS + "'");
+            }
+            this.objectClass = new ObjectClass(objectClassValue.toString());
+
+            Object uidValue = operation.get(UID);
+            if (type == Type.CREATE) {
+                this.uid = null;
+            } else if (null == uidValue) {
+                throw new InvalidAttributeValueException("Missing '" + UID + "'");
+            } else {
+                Object revision = operation.get(REVISION);
+                this.uid = null == revision
+                        ? new Uid(uidValue.toString())
+                        : new Uid(uidValue.toString(), revision.toString());
+            }
+
+            this.attributes = new LinkedHashSet<>();
+            if (operation.get(ATTRIBUTES) instanceof Map) {
+                ((Map<?, ?>) operation.get(ATTRIBUTES)).forEach((name, value) -> attributes.add(
+                        attribute(name.toString(), value)));
+            } else if (type != Type.DELETE) {
+                throw new InvalidAttributeValueException("Missing '" + ATTRIBUTES + "'");
+            }
+        }
+
+        private String key() {
+            return objectClass.getObjectClassValue() + '/' + (null == uid ? "#" + index : uid.getUidValue());
+        }
+    }
+
+    private static Attribute attribute(final String name, final Object value) {
+        if (OperationalAttributes.PASSWORD_NAME.equals(name) && value instanceof String) {
+            return AttributeBuilder.buildPassword(new GuardedString(((String) value).toCharArray()));
+        }
+        return value instanceof Collection
+                ? AttributeBuilder.build(name, (Collection<?>) value)
+                : null == value
+                        ? AttributeBuilder.build(name)
+                        : AttributeBuilder.build(name, value);
+    }
+
+    private static Map<String, Object> success(final Uid uid) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (null != uid) {
+            result.put(UID, uid.getUidValue());
+            result.put(REVISION, uid.getRevision());
+        }
+        return result;
+    }
+
+    private static Map<String, Object> failure(final Throwable e) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(ERROR_TYPE, e.getClass().getSimpleName());
+        result.put(ERROR, e.getMessage());
+        return result;
+    }
+
+    private final GoogleAppsConfiguration configuration;
+
+    private final List<?> operations;
+
+    private final List<Map<String, Object>> results;
+
+    public GoogleAppsBulk(final GoogleAppsConfiguration configuration, final Object operations) {
+        if (!(operations instanceof List)) {
+            throw new InvalidAttributeValueException("Script argument '" + OPERATIONS + "' must be a list");
+        }
+        this.configuration = configuration;
+        this.operations = (List<?>) operations;
+        this.results = Collections.synchronizedList(new ArrayList<>(Collections.nCopies(this.operations.size(), null)));
+    }
+
+    /**
+     * Handler recording the outcome of a batched operation in the results, instead of throwing.
+     */
+    private abstract class ItemHandler<G extends AbstractGoogleJsonClientRequest<T>, T>
+            extends RequestResultHandler<G, T, Void> {
+
+        private final Item item;
+
+        ItemHandler(final Item item) {
+            this.item = item;
+        }
+
+        protected abstract Uid uid(T value);
+
+        @Override
+        public Void handleResult(final G request, final T value) {
+            try {
+                results.set(item.index, success(uid(value)));
+            } catch (RuntimeException e) {
+                results.set(item.index, failure(e));
+            }
+            return null;
+        }
+
+        @Override
+        public Void handleNotFound(final IOException e) {
+            results.set(item.index, failure(new UnknownUidException(item.uid, item.objectClass)));
+            return null;
+        }
+
+        @Override
+        public Void handleDuplicate(final IOException e) {
+            results.set(item.index, failure(new AlreadyExistsException(e.getMessage(), e)));
+            return null;
+        }
+
+        @Override
+        public Void handlePreconditionFailed(final IOException e) {
+            results.set(item.index, failure(new PreconditionFailedException(e.getMessage(), e)));
+            return null;
+        }
+
+        @Override
+        public Void handleError(final Throwable e) {
+            results.set(item.index, failure(e));
+            return null;
+        }
+    }
+
+    private <G extends AbstractGoogleJsonClientRequest<?>> G ifMatch(final G request, final Uid uid) {
+        if (configuration.isOptimisticConcurrency() && StringUtil.isNotBlank(uid.getRevision())) {
+            request.getRequestHeaders().setIfMatch(uid.getRevision());
+        }
+        return request;
+    }
+
+    private static boolean hasAny(final Set<Attribute> attributes, final Set<String> names) {
+        return attributes.stream().anyMatch(attr -> names.contains(attr.getName()));
+    }
+
+    /**
+     * Queues the given operation, if it translates into a single request.
+     *
+     * @param item operation
+     * @param batch batch
+     * @return whether the operation was queued
+     * @throws IOException if the request could not be built
+     */
+    private boolean queue(final Item item, final GoogleApiBatch batch) throws IOException {
+        AttributesAccessor accessor = new AttributesAccessor(item.attributes);
+        Directory directory = configuration.getDirectory();
+
+        if (item.type == Type.DELETE) {
+            if (ObjectClass.ACCOUNT.equals(item.objectClass)) {
+                batch.queue(directory.users().delete(item.uid.getUidValue()),
+                        new ItemHandler<Directory.Users.Delete, Void>(item) {
+
+                    @Override
+                    protected Uid uid(final Void value) {
+                        return item.uid;
+                    }
+                });
+                return true;
+            }
+            if (ObjectClass.GROUP.equals(item.objectClass)) {
+                batch.queue(directory.groups().delete(item.uid.getUidValue()),
+                        new ItemHandler<Directory.Groups.Delete, Void>(item) {
+
+                    @Override
+                    protected Uid uid(final Void value) {
+                        return item.uid;
+                    }
+                });
+                return true;
+            }
+            return false;
+        }
+
+        if (ObjectClass.ACCOUNT.equals(item.objectClass) && !hasAny(item.attributes, USER_SIDE_ATTRS)) {
+            if (item.type == Type.CREATE) {
+                batch.queue(UserHandler.createUser(directory.users(), accessor, configuration.getCustomSchemas()),
+                        new ItemHandler<Directory.Users.Insert, User>(item) {
+
+                    @Override
+                    protected Uid uid(final User value) {
+                        return new Uid(value.getId(), value.getEtag());
+                    }
+                });
+                return true;
+            }
+
+            boolean removeLicenses = configuration.getRemoveLicenseOnDisable()
+                    && accessor.hasAttribute(OperationalAttributes.ENABLE_NAME)
+                    && !accessor.findBoolean(OperationalAttributes.ENABLE_NAME);
+            if (!removeLicenses) {
+                Directory.Users.Patch patch = UserHandler.updateUser(
+                        directory.users(), item.uid.getUidValue(), accessor, configuration.getCustomSchemas());
+                if (null == patch) {
+                    results.set(item.index, success(item.uid));
+                } else {
+                    batch.queue(ifMatch(patch, item.uid), new ItemHandler<Directory.Users.Patch, User>(item) {
+
+                        @Override
+                        protected Uid uid(final User value) {
+                            return new Uid(value.getId(), value.getEtag());
+                        }
+                    });
+                }
+                return true;
+            }
+        }
+
+        if (ObjectClass.GROUP.equals(item.objectClass) && !hasAny(item.attributes, GROUP_SIDE_ATTRS)) {
+            if (item.type == Type.CREATE) {
+                batch.queue(GroupHandler.create(directory.groups(), accessor),
+                        new ItemHandler<Directory.Groups.Insert, Group>(item) {
+
+                    @Override
+                    protected Uid uid(final Group value) {
+                        return new Uid(value.getId(), value.getEtag());
+                    }
+                });
+                return true;
+            }
+
+            Directory.Groups.Patch patch = GroupHandler.update(directory.groups(), item.uid.getUidValue(), accessor);
+            if (null == patch) {
+                results.set(item.index, success(item.uid));
+            } else {
+                batch.queue(ifMatch(patch, item.uid), new ItemHandler<Directory.Groups.Patch, Group>(item) {
+
+                    @Override
+                    protected Uid uid(final Group value) {
+                        return new Uid(value.getId(), value.getEtag());
+                    }
+                });
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    private Map<String, Object> run(final Item item) {
+        try {
+            switch (item.type) {
+                case CREATE:
+                    return success(new GoogleAppsCreate(configuration, item.objectClass, item.attributes).execute());
+
+                case UPDATE:
+                    return success(new GoogleAppsUpdate(configuration, item.objectClass, item.uid).
+                            update(item.attributes));
+
+                case DELETE:
+                default:
+                    new GoogleAppsDelete(configuration, item.objectClass, item.uid).execute();
+                    return success(item.uid);
+            }
+        } catch (RuntimeException e) {
+            LOG.error(e, "While running {0} on {1}", item.type, item.key());
+            return failure(e);
+        }
+    }
+
+    /**
+     * Applies all operations.
+     *
+     * @return one result per operation, in the same order
+     */
+    public List<Map<String, Object>> execute() {
+        // operations on the same object go into subsequent waves, to be applied in the given order
+        Map<Integer, List<Item>> waves = new TreeMap<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            if (!(operations.get(i) instanceof Map)) {
+                results.set(i, failure(new InvalidAttributeValueException("Operation must be a map")));
+                continue;
+            }
+            try {
+                Item item = new Item(i, (Map<?, ?>) operations.get(i));
+                waves.computeIfAbsent(occurrences.merge(item.key(), 1, Integer::sum), k -> new ArrayList<>()).
+                        add(item);
+            } catch (RuntimeException e) {
+                results.set(i, failure(e));
+            }
+        }
+
+        waves.values().forEach(wave -> {
+            GoogleApiBatch batch = new GoogleApiBatch();
+            List<Item> batched = new ArrayList<>();
+            List<Item> single = new ArrayList<>();
+            for (Item item : wave) {
+                try {
+                    (queue(item, batch) ? batched : single).add(item);
+                } catch (IOException | RuntimeException e) {
+                    results.set(item.index, failure(e instanceof IOException ? ConnectorException.wrap(e) : e));
+                }
+            }
+            LOG.ok("Sending {0} operations as batch requests, {1} as single operations", batch.size(), single.size());
+
+            try {
+                batch.execute(configuration.getExecutorService(), configuration.getMaxConcurrentRequests());
+            } catch (RuntimeException e) {
+                // handlers record failures of single parts, so this can only be about parts left without outcome
+                LOG.error(e, "While sending batch requests");
+                batched.stream().filter(item -> null == results.get(item.index)).
+                        forEach(item -> results.set(item.index, failure(e)));
+            }
+            GoogleAppsParallel.forEachOrdered(
+                    configuration.getExecutorService(),
+                    configuration.getMaxConcurrentRequests(),
+                    single,
+                    item -> {
+                        results.set(item.index, run(item));
+                        return item;
+                    },
+                    item -> true);
+        });
+
+        return new ArrayList<>(results);
+    }
+}
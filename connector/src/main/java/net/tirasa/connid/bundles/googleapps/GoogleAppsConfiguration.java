@@ -26,7 +26,6 @@ package net.tirasa.connid.bundles.googleapps;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.apache.v2.ApacheHttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
@@ -34,17 +33,20 @@ import com.google.api.services.directory.Directory;
 import com.google.api.services.directory.DirectoryScopes;
 import com.google.api.services.licensing.Licensing;
 import com.google.auth.http.HttpCredentialsAdapter;
-import com.google.auth.http.HttpTransportFactory;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.UserCredentials;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.http.HttpHost;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.identityconnectors.common.StringUtil;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.common.security.GuardedString;
@@ -60,6 +62,32 @@ import org.identityconnectors.framework.spi.StatefulConfiguration;
  */
 public class GoogleAppsConfiguration extends AbstractConfiguration implements StatefulConfiguration {
 
+    /**
+     * Google API clients sharing the same credentials, published at once so that they can be read without locking.
+     */
+    private static final class Clients {
+
+        private final GoogleCredentials credentials;
+
+        private final Directory directory;
+
+        private final Licensing licensing;
+
+        private final ScheduledFuture<?> tokenRefresh;
+
+        Clients(
+                final GoogleCredentials credentials,
+                final Directory directory,
+                final Licensing licensing,
+                final ScheduledFuture<?> tokenRefresh) {
+
+            this.credentials = credentials;
+            this.directory = directory;
+            this.licensing = licensing;
+            this.tokenRefresh = tokenRefresh;
+        }
+    }
+
     private static final Log LOG = Log.getLog(GoogleAppsConfiguration.class);
 
     /**
@@ -83,22 +111,60 @@ public class GoogleAppsConfiguration extends AbstractConfiguration implements St
 
     private GuardedString refreshToken = null;
 
-    private GoogleCredentials googleCredentials = null;
-
-    private Directory directory;
-
-    private Licensing licensing;
+    private volatile Clients clients;
 
     private String projection = "basic";
 
     private String customSchemaJSON;
 
+    private volatile GoogleAppsCustomSchemas customSchemas;
+
     private String[] skuIds = {};
 
     private String productId;
 
     private boolean removeLicenseOnDisable = false;
 
+    private int maxConcurrentRequests = 4;
+
+    private int maxRequestsPerSecond = 40;
+
+    private int retryMaxAttempts = GoogleApiRetryPolicy.DEFAULT.getMaxAttempts();
+
+    private long retryBaseDelay = GoogleApiRetryPolicy.DEFAULT.getBaseDelay();
+
+    private long retryMaxDelay = GoogleApiRetryPolicy.DEFAULT.getMaxDelay();
+
+    private long retryMaxElapsedTime = GoogleApiRetryPolicy.DEFAULT.getMaxElapsedTime();
+
+    private String syncTokenStoreDirectory;
+
+    private int pagePrefetchDepth = 1;
+
+    private int objectCacheSize = 1000;
+
+    private boolean optimisticConcurrency = false;
+
+    private long orgUnitCacheTtl = 0;
+
+    private long licenseInventoryTtl = 0;
+
+    private int maxConnectionsPerRoute = 20;
+
+    private int connectTimeout = 20000;
+
+    private int readTimeout = 20000;
+
+    private volatile GoogleAppsObjectCache objectCache;
+
+    private volatile OrgUnitTreeCache orgUnitTreeCache;
+
+    private volatile LicenseInventory licenseInventory;
+
+    private volatile SyncTokenStore syncTokenStore;
+
+    private volatile ExecutorService executorService;
+
     @ConfigurationProperty(order = 1, displayMessageKey = "domain.display",
             groupMessageKey = "basic.group", helpMessageKey = "domain.help", required = true,
             confidential = false)
@@ -162,6 +228,21 @@ public class GoogleAppsConfiguration extends AbstractConfiguration implements St
 
     public void setCustomSchemasJSON(final String customAttributesJSON) {
         this.customSchemaJSON = customAttributesJSON;
+        this.customSchemas = null;
+    }
+
+    /**
+     * Custom schemas, parsed from {@link #getCustomSchemasJSON()} once and reused until that changes.
+     *
+     * @return parsed custom schemas
+     */
+    public GoogleAppsCustomSchemas getCustomSchemas() {
+        GoogleAppsCustomSchemas parsed = customSchemas;
+        if (null == parsed) {
+            parsed = GoogleAppsCustomSchemas.parse(customSchemaJSON);
+            customSchemas = parsed;
+        }
+        return parsed;
     }
 
     @ConfigurationProperty(displayMessageKey = "skuIds.display",
@@ -194,6 +275,156 @@ public class GoogleAppsConfiguration extends AbstractConfiguration implements St
         this.removeLicenseOnDisable = removeLicenseOnDisable;
     }
 
+    @ConfigurationProperty(displayMessageKey = "maxConcurrentRequests.display",
+            helpMessageKey = "maxConcurrentRequests.help", required = false, order = 10)
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(final int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "maxRequestsPerSecond.display",
+            helpMessageKey = "maxRequestsPerSecond.help", required = false, order = 11)
+    public int getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    public void setMaxRequestsPerSecond(final int maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "retryMaxAttempts.display",
+            helpMessageKey = "retryMaxAttempts.help", required = false, order = 12)
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(final int retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "retryBaseDelay.display",
+            helpMessageKey = "retryBaseDelay.help", required = false, order = 13)
+    public long getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
+    public void setRetryBaseDelay(final long retryBaseDelay) {
+        this.retryBaseDelay = retryBaseDelay;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "retryMaxDelay.display",
+            helpMessageKey = "retryMaxDelay.help", required = false, order = 14)
+    public long getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    public void setRetryMaxDelay(final long retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "retryMaxElapsedTime.display",
+            helpMessageKey = "retryMaxElapsedTime.help", required = false, order = 15)
+    public long getRetryMaxElapsedTime() {
+        return retryMaxElapsedTime;
+    }
+
+    public void setRetryMaxElapsedTime(final long retryMaxElapsedTime) {
+        this.retryMaxElapsedTime = retryMaxElapsedTime;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "syncTokenStoreDirectory.display",
+            helpMessageKey = "syncTokenStoreDirectory.help", required = false, order = 16)
+    public String getSyncTokenStoreDirectory() {
+        return syncTokenStoreDirectory;
+    }
+
+    public void setSyncTokenStoreDirectory(final String syncTokenStoreDirectory) {
+        this.syncTokenStoreDirectory = syncTokenStoreDirectory;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "pagePrefetchDepth.display",
+            helpMessageKey = "pagePrefetchDepth.help", required = false, order = 17)
+    public int getPagePrefetchDepth() {
+        return pagePrefetchDepth;
+    }
+
+    public void setPagePrefetchDepth(final int pagePrefetchDepth) {
+        this.pagePrefetchDepth = pagePrefetchDepth;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "objectCacheSize.display",
+            helpMessageKey = "objectCacheSize.help", required = false, order = 18)
+    public int getObjectCacheSize() {
+        return objectCacheSize;
+    }
+
+    public void setObjectCacheSize(final int objectCacheSize) {
+        this.objectCacheSize = objectCacheSize;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "optimisticConcurrency.display",
+            helpMessageKey = "optimisticConcurrency.help", required = false, order = 19)
+    public boolean isOptimisticConcurrency() {
+        return optimisticConcurrency;
+    }
+
+    public void setOptimisticConcurrency(final boolean optimisticConcurrency) {
+        this.optimisticConcurrency = optimisticConcurrency;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "orgUnitCacheTtl.display",
+            helpMessageKey = "orgUnitCacheTtl.help", required = false, order = 20)
+    public long getOrgUnitCacheTtl() {
+        return orgUnitCacheTtl;
+    }
+
+    public void setOrgUnitCacheTtl(final long orgUnitCacheTtl) {
+        this.orgUnitCacheTtl = orgUnitCacheTtl;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "licenseInventoryTtl.display",
+            helpMessageKey = "licenseInventoryTtl.help", required = false, order = 21)
+    public long getLicenseInventoryTtl() {
+        return licenseInventoryTtl;
+    }
+
+    public void setLicenseInventoryTtl(final long licenseInventoryTtl) {
+        this.licenseInventoryTtl = licenseInventoryTtl;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "maxConnectionsPerRoute.display",
+            helpMessageKey = "maxConnectionsPerRoute.help", required = false, order = 22)
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "connectTimeout.display",
+            helpMessageKey = "connectTimeout.help", required = false, order = 23)
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    @ConfigurationProperty(displayMessageKey = "readTimeout.display",
+            helpMessageKey = "readTimeout.help", required = false, order = 24)
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(final int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
     @Override
     public void validate() {
         if (StringUtil.isBlank(domain)) {
@@ -214,6 +445,39 @@ public class GoogleAppsConfiguration extends AbstractConfiguration implements St
                 && !"custom".equals(projection)) {
             throw new IllegalArgumentException("Projection must be a value among [basic, full, custom]");
         }
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("Max concurrent requests must be a positive value.");
+        }
+        if (pagePrefetchDepth < 0) {
+            throw new IllegalArgumentException("Page prefetch depth cannot be negative.");
+        }
+        if (objectCacheSize < 0) {
+            throw new IllegalArgumentException("Object cache size cannot be negative.");
+        }
+        if (orgUnitCacheTtl < 0) {
+            throw new IllegalArgumentException("OrgUnit cache TTL cannot be negative.");
+        }
+        if (licenseInventoryTtl < 0) {
+            throw new IllegalArgumentException("License inventory TTL cannot be negative.");
+        }
+        if (maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("Max connections per route must be a positive value.");
+        }
+        if (connectTimeout < 0 || readTimeout < 0) {
+            throw new IllegalArgumentException("Connect and read timeouts cannot be negative.");
+        }
+        if (maxRequestsPerSecond < 0) {
+            throw new IllegalArgumentException("Max requests per second cannot be negative.");
+        }
+        if (retryMaxAttempts < 1) {
+            throw new IllegalArgumentException("Retry max attempts must be a positive value.");
+        }
+        if (retryBaseDelay < 0 || retryMaxDelay < retryBaseDelay) {
+            throw new IllegalArgumentException("Retry delays must be positive, with max delay not lower than base.");
+        }
+        if (retryMaxElapsedTime < 0) {
+            throw new IllegalArgumentException("Retry max elapsed time cannot be negative.");
+        }
         if (StringUtil.isNotBlank(customSchemaJSON)) {
             try {
                 GoogleAppsUtil.MAPPER.readValue(customSchemaJSON, new TypeReference<List<GoogleAppsCustomSchema>>() {
@@ -225,9 +489,18 @@ public class GoogleAppsConfiguration extends AbstractConfiguration implements St
         }
     }
 
-    private void initGoogleCredentials() {
+    private GoogleApiRateLimiter rateLimiter(final String api) {
+        return maxRequestsPerSecond > 0 ? GoogleApiRateLimiter.get(domain, api, maxRequestsPerSecond) : null;
+    }
+
+    private Clients clients() {
+        Clients current = clients;
+        if (null != current) {
+            return current;
+        }
+
         synchronized (this) {
-            if (null == googleCredentials) {
+            if (null == clients) {
                 UserCredentials.Builder credentialsBuilder = UserCredentials.newBuilder();
 
                 Optional<String> httpProxyHost = Optional.ofNullable(System.getProperty("http.proxyHost"));
@@ -244,29 +517,29 @@ public class GoogleAppsConfiguration extends AbstractConfiguration implements St
                         ? Proxy.Type.SOCKS
                         : Proxy.Type.DIRECT;
 
-                if (Proxy.Type.HTTP == proxyType) {
-                    HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-                    clientBuilder.useSystemProperties();
-                    clientBuilder.setProxy(httpsProxyHost.isPresent() && httpsProxyPort.isPresent()
-                            ? new HttpHost(httpsProxyHost.orElseThrow(),
-                                    Integer.parseInt(httpsProxyPort.orElseThrow()))
-                            : new HttpHost(httpProxyHost.orElseThrow(),
-                                    Integer.parseInt(httpProxyPort.orElseThrow())));
-                    credentialsBuilder.setHttpTransportFactory(new HttpTransportFactory() {
-
-                        @Override
-                        public HttpTransport create() {
-                            return new ApacheHttpTransport(clientBuilder.build());
-                        }
-                    });
-                }
+                HttpHost httpProxy = Proxy.Type.HTTP != proxyType
+                        ? null
+                        : httpsProxyHost.isPresent() && httpsProxyPort.isPresent()
+                        ? new HttpHost(httpsProxyHost.orElseThrow(), Integer.parseInt(httpsProxyPort.orElseThrow()))
+                        : new HttpHost(httpProxyHost.orElseThrow(), Integer.parseInt(httpProxyPort.orElseThrow()));
+
+                // connection pools are shared among all connector instances; SOCKS proxies are only supported by
+                // the JDK client, which relies on the JVM-wide keep-alive cache
+                HttpTransport httpTransport = Proxy.Type.SOCKS == proxyType
+                        ? new NetHttpTransport.Builder().setProxy(new Proxy(proxyType,
+                                new InetSocketAddress(socksProxyHost.orElseThrow(),
+                                        Integer.parseInt(socksProxyPort.orElseThrow())))).build()
+                        : GoogleApiTransport.get(httpProxy, maxConnectionsPerRoute);
+                HttpTransport credentialsTransport = GoogleApiTransport.credentials(
+                        httpProxy, connectTimeout, readTimeout);
+                credentialsBuilder.setHttpTransportFactory(() -> credentialsTransport);
                 credentialsBuilder.setClientId(getClientId()).setClientSecret(SecurityUtil.decrypt(getClientSecret()));
 
                 getRefreshToken().access(chars -> credentialsBuilder.setRefreshToken(new String(chars)));
 
                 UserCredentials userCredentials = credentialsBuilder.build();
 
-                googleCredentials = userCredentials.createScoped(Arrays.asList(
+                GoogleCredentials googleCredentials = userCredentials.createScoped(Arrays.asList(
                         DirectoryScopes.ADMIN_DIRECTORY_USER,
                         DirectoryScopes.ADMIN_DIRECTORY_USER_ALIAS,
                         DirectoryScopes.ADMIN_DIRECTORY_USERSCHEMA,
@@ -275,47 +548,152 @@ public class GoogleAppsConfiguration extends AbstractConfiguration implements St
                         DirectoryScopes.ADMIN_DIRECTORY_GROUP,
                         DirectoryScopes.ADMIN_DIRECTORY_GROUP_MEMBER));
 
-                HttpTransport httpTransport = Proxy.Type.DIRECT == proxyType
-                        ? new NetHttpTransport()
-                        : new NetHttpTransport.Builder().setProxy(new Proxy(proxyType,
-                                Proxy.Type.SOCKS == proxyType
-                                        ? new InetSocketAddress(socksProxyHost.orElseThrow(),
-                                                Integer.parseInt(socksProxyHost.orElseThrow()))
-                                        : httpsProxyHost.isPresent() && httpsProxyPort.isPresent()
-                                        ? new InetSocketAddress(httpsProxyHost.orElseThrow(),
-                                                Integer.parseInt(httpsProxyPort.orElseThrow()))
-                                        : new InetSocketAddress(httpProxyHost.orElseThrow(),
-                                                Integer.parseInt(httpProxyPort.orElseThrow()))))
-                                .build();
-
-                HttpRequestInitializer requestInitializer = new HttpCredentialsAdapter(googleCredentials);
-                directory = new Directory.Builder(httpTransport, JSON_FACTORY, requestInitializer).
+                HttpRequestInitializer credentialsAdapter = new HttpCredentialsAdapter(googleCredentials);
+                GoogleApiRetryPolicy retryPolicy = new GoogleApiRetryPolicy(
+                        retryMaxAttempts, retryBaseDelay, retryMaxDelay, retryMaxElapsedTime);
+                Directory directory = new Directory.Builder(httpTransport, JSON_FACTORY,
+                        new GoogleApiRequestInitializer(credentialsAdapter, rateLimiter("directory"), retryPolicy,
+                                connectTimeout, readTimeout)).
                         setApplicationName(APPLICATION_NAME).
                         build();
-                licensing = new Licensing.Builder(httpTransport, JSON_FACTORY, requestInitializer).
+                Licensing licensing = new Licensing.Builder(httpTransport, JSON_FACTORY,
+                        new GoogleApiRequestInitializer(credentialsAdapter, rateLimiter("licensing"), retryPolicy,
+                                connectTimeout, readTimeout)).
                         setApplicationName(APPLICATION_NAME).
                         build();
+
+                clients = new Clients(googleCredentials, directory, licensing,
+                        GoogleApiTokenRefresher.schedule(googleCredentials));
             }
+            return clients;
         }
     }
 
     public void test() throws IOException {
-        initGoogleCredentials();
-        googleCredentials.refreshIfExpired();
+        clients().credentials.refreshIfExpired();
     }
 
     @Override
     public void release() {
-        googleCredentials = null;
+        synchronized (this) {
+            if (null != clients) {
+                clients.tokenRefresh.cancel(false);
+                clients = null;
+            }
+        }
     }
 
     public Directory getDirectory() {
-        initGoogleCredentials();
-        return directory;
+        return clients().directory;
     }
 
     public Licensing getLicensing() {
-        initGoogleCredentials();
-        return licensing;
+        return clients().licensing;
+    }
+
+    /**
+     * Worker threads shared by all connector instances using this configuration; the number of concurrent tasks
+     * is bounded per operation by {@link #getMaxConcurrentRequests()}.
+     * Threads are daemon and expire when idle, so there is no need to shut this down on {@link #release()}, which
+     * may be invoked while other pooled connector instances are still running.
+     *
+     * @return executor service
+     */
+    public ExecutorService getExecutorService() {
+        ExecutorService current = executorService;
+        if (null != current) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (null == executorService) {
+                AtomicInteger count = new AtomicInteger();
+                executorService = Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "googleapps-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return executorService;
+        }
+    }
+
+    /**
+     * Store for the snapshots backing sync tokens: files under {@link #getSyncTokenStoreDirectory()} if set, so
+     * that tokens survive restarts, memory otherwise.
+     *
+     * @return sync token store
+     */
+    public SyncTokenStore getSyncTokenStore() {
+        SyncTokenStore current = syncTokenStore;
+        if (null != current) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (null == syncTokenStore) {
+                syncTokenStore = StringUtil.isBlank(syncTokenStoreDirectory)
+                        ? new InMemorySyncTokenStore()
+                        : new FileSyncTokenStore(Paths.get(syncTokenStoreDirectory));
+            }
+            return syncTokenStore;
+        }
+    }
+
+    /**
+     * Objects read by key, revalidated via etag on further reads of the same key.
+     *
+     * @return object cache
+     */
+    public GoogleAppsObjectCache getObjectCache() {
+        GoogleAppsObjectCache current = objectCache;
+        if (null != current) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (null == objectCache) {
+                objectCache = new GoogleAppsObjectCache(objectCacheSize);
+            }
+            return objectCache;
+        }
+    }
+
+    /**
+     * Tree of all org units, answering OrgUnit searches from memory.
+     *
+     * @return org unit tree cache
+     */
+    public OrgUnitTreeCache getOrgUnitTreeCache() {
+        OrgUnitTreeCache current = orgUnitTreeCache;
+        if (null != current) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (null == orgUnitTreeCache) {
+                orgUnitTreeCache = new OrgUnitTreeCache(orgUnitCacheTtl);
+            }
+            return orgUnitTreeCache;
+        }
+    }
+
+    /**
+     * SKUs held by each user, for license removal on disable.
+     *
+     * @return license inventory
+     */
+    public LicenseInventory getLicenseInventory() {
+        LicenseInventory current = licenseInventory;
+        if (null != current) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (null == licenseInventory) {
+                licenseInventory = new LicenseInventory(licenseInventoryTtl);
+            }
+            return licenseInventory;
+        }
     }
 }
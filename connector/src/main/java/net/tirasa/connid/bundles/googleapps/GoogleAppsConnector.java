@@ -37,6 +37,9 @@ import org.identityconnectors.framework.common.objects.OperationOptions;
 import org.identityconnectors.framework.common.objects.ResultsHandler;
 import org.identityconnectors.framework.common.objects.Schema;
 import org.identityconnectors.framework.common.objects.SchemaBuilder;
+import org.identityconnectors.framework.common.objects.ScriptContext;
+import org.identityconnectors.framework.common.objects.SyncResultsHandler;
+import org.identityconnectors.framework.common.objects.SyncToken;
 import org.identityconnectors.framework.common.objects.Uid;
 import org.identityconnectors.framework.common.objects.filter.Filter;
 import org.identityconnectors.framework.common.objects.filter.FilterTranslator;
@@ -46,7 +49,9 @@ import org.identityconnectors.framework.spi.PoolableConnector;
 import org.identityconnectors.framework.spi.operations.CreateOp;
 import org.identityconnectors.framework.spi.operations.DeleteOp;
 import org.identityconnectors.framework.spi.operations.SchemaOp;
+import org.identityconnectors.framework.spi.operations.ScriptOnConnectorOp;
 import org.identityconnectors.framework.spi.operations.SearchOp;
+import org.identityconnectors.framework.spi.operations.SyncOp;
 import org.identityconnectors.framework.spi.operations.TestOp;
 import org.identityconnectors.framework.spi.operations.UpdateDeltaOp;
 import org.identityconnectors.framework.spi.operations.UpdateOp;
@@ -58,7 +63,7 @@ import org.identityconnectors.framework.spi.operations.UpdateOp;
 public class GoogleAppsConnector
         implements PoolableConnector,
         TestOp, SchemaOp, SearchOp<Filter>,
-        CreateOp, UpdateOp, UpdateDeltaOp, DeleteOp {
+        CreateOp, UpdateOp, UpdateDeltaOp, DeleteOp, SyncOp, ScriptOnConnectorOp {
 
     /**
      * Place holder for the {@link Configuration} passed into the init() method
@@ -131,7 +136,7 @@ public class GoogleAppsConnector
         if (null == schema) {
             final SchemaBuilder builder = new SchemaBuilder(GoogleAppsConnector.class);
 
-            ObjectClassInfo user = UserHandler.getObjectClassInfo(configuration.getCustomSchemasJSON());
+            ObjectClassInfo user = UserHandler.getObjectClassInfo(configuration.getCustomSchemas());
             builder.defineObjectClass(user);
 
             ObjectClassInfo group = GroupHandler.getObjectClassInfo();
@@ -146,8 +151,12 @@ public class GoogleAppsConnector
             ObjectClassInfo licenseAssignment = LicenseAssignmentsHandler.getObjectClassInfo();
             builder.defineObjectClass(licenseAssignment);
 
+            builder.removeSupportedObjectClass(SyncOp.class, member);
+            builder.removeSupportedObjectClass(SyncOp.class, orgUnit);
+            builder.removeSupportedObjectClass(SyncOp.class, licenseAssignment);
+
             builder.defineOperationOption(OperationOptionInfoBuilder.buildAttributesToGet(),
-                    SearchOp.class);
+                    SearchOp.class, SyncOp.class);
             builder.defineOperationOption(OperationOptionInfoBuilder.buildPageSize(),
                     SearchOp.class);
             builder.defineOperationOption(OperationOptionInfoBuilder.buildPagedResultsCookie(),
@@ -180,6 +189,21 @@ public class GoogleAppsConnector
         new GoogleAppsSearch(configuration, objectClass, query, handler, options).execute();
     }
 
+    @Override
+    public void sync(
+            final ObjectClass objectClass,
+            final SyncToken token,
+            final SyncResultsHandler handler,
+            final OperationOptions options) {
+
+        new GoogleAppsSync(configuration, objectClass).sync(token, handler, options);
+    }
+
+    @Override
+    public SyncToken getLatestSyncToken(final ObjectClass objectClass) {
+        return new GoogleAppsSync(configuration, objectClass).getLatestSyncToken();
+    }
+
     @Override
     public Uid create(
             final ObjectClass objectClass,
@@ -213,4 +237,20 @@ public class GoogleAppsConnector
     public void delete(final ObjectClass objectClass, final Uid uid, final OperationOptions options) {
         new GoogleAppsDelete(configuration, objectClass, uid).execute();
     }
+
+    /**
+     * Bulk provisioning: see {@link GoogleAppsBulk} for the expected script language and arguments.
+     *
+     * @param request script context
+     * @param options operation options
+     * @return one result per operation
+     */
+    @Override
+    public Object runScriptOnConnector(final ScriptContext request, final OperationOptions options) {
+        if (!GoogleAppsBulk.SCRIPT_LANGUAGE.equalsIgnoreCase(request.getScriptLanguage())) {
+            throw new UnsupportedOperationException("Unsupported script language: " + request.getScriptLanguage());
+        }
+        return new GoogleAppsBulk(configuration, request.getScriptArguments().get(GoogleAppsBulk.OPERATIONS)).
+                execute();
+    }
 }
@@ -33,7 +33,8 @@ import com.google.api.services.directory.model.UserPhoto;
 import com.google.api.services.licensing.Licensing;
 import com.google.api.services.licensing.model.LicenseAssignment;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -68,9 +69,49 @@ public class GoogleAppsCreate {
         this.createAttributes = createAttributes;
     }
 
+    /**
+     * Runs the given steps, which only depend on the object just created, concurrently; all steps are run
+     * even if some fail.
+     *
+     * @param uid object just created
+     * @param steps steps, by description
+     * @throws RetryableException carrying the given Uid if any step failed, with the step failures as suppressed
+     */
+    private void fanOut(final Uid uid, final Map<String, Runnable> steps) {
+        Map<String, RuntimeException> failures = new LinkedHashMap<>();
+        GoogleAppsParallel.forEachOrdered(
+                configuration.getExecutorService(),
+                Math.min(configuration.getMaxConcurrentRequests(), steps.size()),
+                steps.entrySet(),
+                step -> {
+                    try {
+                        step.getValue().run();
+                        return null;
+                    } catch (RuntimeException e) {
+                        LOG.error(e, "Could not complete {0} for {1}", step.getKey(), uid.getUidValue());
+                        return new AbstractMap.SimpleEntry<>(step.getKey(), e);
+                    }
+                },
+                failure -> {
+                    if (null != failure) {
+                        failures.put(failure.getKey(), failure.getValue());
+                    }
+                    return true;
+                });
+
+        if (!failures.isEmpty()) {
+            RetryableException e = RetryableException.wrap(
+                    objectClass.getObjectClassValue() + " " + uid.getUidValue()
+                    + " was created, but these failed: " + String.join(", ", failures.keySet()), uid);
+            // the cause is already taken by the Uid carrier, see RetryableException#wrap
+            failures.values().forEach(e::addSuppressed);
+            throw e;
+        }
+    }
+
     private Uid createUser(final AttributesAccessor accessor) {
         Uid uid = GoogleApiExecutor.execute(UserHandler.createUser(
-                configuration.getDirectory().users(), accessor, configuration.getCustomSchemasJSON()),
+                configuration.getDirectory().users(), accessor, configuration.getCustomSchemas()),
                 new RequestResultHandler<Directory.Users.Insert, User, Uid>() {
 
             @Override
@@ -80,13 +121,16 @@ public class GoogleAppsCreate {
             }
         });
 
+        // all further steps only need the user to exist, so they are run concurrently
+        Map<String, Runnable> steps = new LinkedHashMap<>();
+
+        GoogleApiBatch aliasesBatch = new GoogleApiBatch();
         List<Object> aliases = accessor.findList(GoogleAppsUtil.ALIASES_ATTR);
         if (null != aliases) {
             final Directory.Users.Aliases aliasesService = configuration.getDirectory().users().aliases();
             for (Object alias : aliases) {
                 if (alias instanceof String) {
-                    String id = GoogleApiExecutor.execute(
-                            UserHandler.createUserAlias(aliasesService, uid.getUidValue(), (String) alias),
+                    aliasesBatch.queue(UserHandler.createUserAlias(aliasesService, uid.getUidValue(), (String) alias),
                             new RequestResultHandler<Directory.Users.Aliases.Insert, Alias, String>() {
 
                         @Override
@@ -94,89 +138,75 @@ public class GoogleAppsCreate {
                             return value == null ? null : value.getId();
                         }
                     });
-
-                    if (null == id) {
-                        // TODO make warn about failed update
-                    }
                 } else if (null != alias) {
                     // Delete user and Error or
                     RetryableException e =
                             RetryableException.wrap("Invalid attribute value: " + String.valueOf(alias), uid);
-                    e.initCause(new InvalidAttributeValueException("Attribute 'aliases' must be a String list"));
+                    e.addSuppressed(new InvalidAttributeValueException("Attribute 'aliases' must be a String list"));
                     throw e;
                 }
             }
         }
+        if (!aliasesBatch.isEmpty()) {
+            steps.put("aliases", aliasesBatch::execute);
+        }
 
         Attribute photo = accessor.find(GoogleAppsUtil.PHOTO_ATTR);
         if (null != photo) {
             Object photoObject = AttributeUtil.getSingleValue(photo);
             if (photoObject instanceof byte[]) {
-                String id = GoogleApiExecutor.execute(UserHandler.createUpdateUserPhoto(
-                        configuration.getDirectory().users().photos(), uid.getUidValue(), (byte[]) photoObject),
+                Directory.Users.Photos.Update request = UserHandler.createUpdateUserPhoto(
+                        configuration.getDirectory().users().photos(), uid.getUidValue(), (byte[]) photoObject);
+                steps.put("photo", () -> GoogleApiExecutor.execute(request,
                         new RequestResultHandler<Directory.Users.Photos.Update, UserPhoto, String>() {
 
                     @Override
                     public String handleResult(final Directory.Users.Photos.Update request, final UserPhoto value) {
                         return value == null ? null : value.getId();
                     }
-                });
-
-                if (null == id) {
-                    // TODO make warn about failed update
-                }
+                }));
             } else if (null != photoObject) {
                 // Delete group and Error or
                 RetryableException e = RetryableException.wrap(
                         "Invalid attribute value: " + String.valueOf(photoObject), uid);
-                e.initCause(new InvalidAttributeValueException("Attribute 'photo' must be a single byte[] value"));
+                e.addSuppressed(new InvalidAttributeValueException("Attribute 'photo' must be a single byte[] value"));
                 throw e;
             }
         }
 
         Attribute isAdmin = accessor.find(GoogleAppsUtil.IS_ADMIN_ATTR);
         if (null != isAdmin) {
-            try {
-                Boolean isAdminValue = AttributeUtil.getBooleanValue(isAdmin);
-                if (null != isAdminValue && isAdminValue) {
-                    UserMakeAdmin content = new UserMakeAdmin();
-                    content.setStatus(isAdminValue);
-
-                    GoogleApiExecutor.execute(
-                            configuration.getDirectory().users().makeAdmin(uid.getUidValue(), content),
-                            new RequestResultHandler<Directory.Users.MakeAdmin, Void, Void>() {
-
-                        @Override
-                        public Void handleResult(final Directory.Users.MakeAdmin request, final Void value) {
-                            return null;
-                        }
-                    });
-                }
-            } catch (final Exception e) {
-                // TODO Delete user and throw Exception
-                throw ConnectorException.wrap(e);
+            Boolean isAdminValue = AttributeUtil.getBooleanValue(isAdmin);
+            if (null != isAdminValue && isAdminValue) {
+                UserMakeAdmin content = new UserMakeAdmin();
+                content.setStatus(isAdminValue);
+
+                steps.put("admin", () -> {
+                    try {
+                        GoogleApiExecutor.execute(
+                                configuration.getDirectory().users().makeAdmin(uid.getUidValue(), content),
+                                new RequestResultHandler<Directory.Users.MakeAdmin, Void, Void>() {
+
+                            @Override
+                            public Void handleResult(final Directory.Users.MakeAdmin request, final Void value) {
+                                return null;
+                            }
+                        });
+                    } catch (IOException e) {
+                        throw ConnectorException.wrap(e);
+                    }
+                });
             }
         }
 
+        GoogleApiBatch groupsBatch = new GoogleApiBatch();
         Attribute groups = accessor.find(PredefinedAttributes.GROUPS_NAME);
         if (null != groups && null != groups.getValue()) {
             final Directory.Members service = configuration.getDirectory().members();
-            if (!groups.getValue().isEmpty()) {
-                final List<Directory.Members.Insert> addGroups = new ArrayList<>();
-
-                for (Object group : groups.getValue()) {
-                    if (group instanceof String) {
-                        String email = accessor.getName().getNameValue();
-                        addGroups.add(MembersHandler.create(service, (String) group, email, null));
-                    } else if (null != group) {
-                        // throw error/revert?
-                        throw new InvalidAttributeValueException("Attribute '__GROUPS__' must be a String list");
-                    }
-                }
-
-                // Add new Member object
-                for (Directory.Members.Insert insert : addGroups) {
-                    GoogleApiExecutor.execute(insert,
+            for (Object group : groups.getValue()) {
+                if (group instanceof String) {
+                    String email = accessor.getName().getNameValue();
+                    groupsBatch.queue(MembersHandler.create(service, (String) group, email, null),
                             new RequestResultHandler<Directory.Members.Insert, Member, Object>() {
 
                         @Override
@@ -190,9 +220,17 @@ public class GoogleAppsCreate {
                             return null;
                         }
                     });
+                } else if (null != group) {
+                    // throw error/revert?
+                    throw new InvalidAttributeValueException("Attribute '__GROUPS__' must be a String list");
                 }
             }
         }
+        if (!groupsBatch.isEmpty()) {
+            steps.put("groups", groupsBatch::execute);
+        }
+
+        fanOut(uid, steps);
 
         return uid;
     }
@@ -209,13 +247,16 @@ public class GoogleAppsCreate {
             }
         });
 
+        // aliases and members only need the group to exist, so they are sent concurrently
+        Map<String, Runnable> steps = new LinkedHashMap<>();
+
+        GoogleApiBatch aliasesBatch = new GoogleApiBatch();
         List<Object> aliases = accessor.findList(GoogleAppsUtil.ALIASES_ATTR);
         if (null != aliases) {
             final Directory.Groups.Aliases aliasesService = configuration.getDirectory().groups().aliases();
             for (Object alias : aliases) {
                 if (alias instanceof String) {
-                    String id = GoogleApiExecutor.execute(
-                            GroupHandler.createGroupAlias(aliasesService, uid.getUidValue(), (String) alias),
+                    aliasesBatch.queue(GroupHandler.createGroupAlias(aliasesService, uid.getUidValue(), (String) alias),
                             new RequestResultHandler<Directory.Groups.Aliases.Insert, Alias, String>() {
 
                         @Override
@@ -223,20 +264,21 @@ public class GoogleAppsCreate {
                             return value == null ? null : value.getId();
                         }
                     });
-
-                    if (null == id) {
-                        // TODO make warn about failed update
-                    }
                 } else if (null != alias) {
                     // Delete group and Error or
                     RetryableException e =
                             RetryableException.wrap("Invalid attribute value: " + String.valueOf(alias), uid);
-                    e.initCause(new InvalidAttributeValueException("Attribute 'aliases' must be a String list"));
+                    e.addSuppressed(new InvalidAttributeValueException("Attribute 'aliases' must be a String list"));
                     throw e;
                 }
             }
         }
 
+        if (!aliasesBatch.isEmpty()) {
+            steps.put("aliases", aliasesBatch::execute);
+        }
+
+        GoogleApiBatch membersBatch = new GoogleApiBatch();
         List<Object> members = accessor.findList(GoogleAppsUtil.MEMBERS_ATTR);
         if (null != members) {
             final Directory.Members membersService = configuration.getDirectory().members();
@@ -245,8 +287,7 @@ public class GoogleAppsCreate {
                     String email = (String) ((Map) member).get(GoogleAppsUtil.EMAIL_ATTR);
                     String role = (String) ((Map) member).get(GoogleAppsUtil.ROLE_ATTR);
 
-                    String id = GoogleApiExecutor.execute(
-                            MembersHandler.create(membersService, uid.getUidValue(), email, role),
+                    membersBatch.queue(MembersHandler.create(membersService, uid.getUidValue(), email, role),
                             new RequestResultHandler<Directory.Members.Insert, Member, String>() {
 
                         @Override
@@ -254,20 +295,23 @@ public class GoogleAppsCreate {
                             return value == null ? null : value.getId();
                         }
                     });
-
-                    if (null == id) {
-                        // TODO make warn about failed update
-                    }
                 } else if (null != member) {
                     // Delete group and Error or
                     RetryableException e =
                             RetryableException.wrap("Invalid attribute value: " + String.valueOf(member), uid);
-                    e.initCause(new InvalidAttributeValueException("Attribute 'members' must be a Map list"));
+                    e.addSuppressed(new InvalidAttributeValueException("Attribute 'members' must be a Map list"));
                     throw e;
                 }
             }
         }
 
+        if (!membersBatch.isEmpty()) {
+            steps.put("members", () -> membersBatch.execute(
+                    configuration.getExecutorService(), configuration.getMaxConcurrentRequests()));
+        }
+
+        fanOut(uid, steps);
+
         return uid;
     }
 
@@ -303,6 +347,7 @@ public class GoogleAppsCreate {
                 @Override
                 public Uid handleResult(final Directory.Orgunits.Insert request, final OrgUnit value) {
                     LOG.ok("New OrgUnit is created:{0}", value.getName());
+                    configuration.getOrgUnitTreeCache().invalidate();
                     return OrgunitsHandler.generateUid(value);
                 }
             });
@@ -320,6 +365,7 @@ public class GoogleAppsCreate {
 
                     LOG.ok("LicenseAssignment is Created:{0}/{1}/{2}",
                             value.getProductId(), value.getSkuId(), value.getUserId());
+                    configuration.getLicenseInventory().add(value.getUserId(), value.getSkuId());
                     return LicenseAssignmentsHandler.generateUid(value);
                 }
             });
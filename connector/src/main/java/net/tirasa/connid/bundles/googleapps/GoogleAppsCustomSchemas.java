@@ -0,0 +1,180 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.identityconnectors.common.StringUtil;
+import org.identityconnectors.common.logging.Log;
+
+/**
+ * Immutable view of the custom schemas configured via {@link GoogleAppsConfiguration#getCustomSchemasJSON()},
+ * parsed once and flattened into the {@code schema.field} attributes exposed by the connector.
+ * Only first level inner schemas of {@code object} schemas are managed.
+ */
+public final class GoogleAppsCustomSchemas {
+
+    private static final Log LOG = Log.getLog(GoogleAppsCustomSchemas.class);
+
+    public static final GoogleAppsCustomSchemas EMPTY = new GoogleAppsCustomSchemas(Collections.emptyList());
+
+    /**
+     * Custom schema field, exposed as {@code schema.field} attribute.
+     */
+    public static final class Field {
+
+        private final String name;
+
+        private final String schemaName;
+
+        private final String fieldName;
+
+        private final boolean multiValued;
+
+        private final Class<?> type;
+
+        private Field(final String schemaName, final GoogleAppsCustomSchema innerSchema) {
+            this.name = schemaName + "." + innerSchema.getName();
+            this.schemaName = schemaName;
+            this.fieldName = innerSchema.getName();
+            this.multiValued = Boolean.TRUE.equals(innerSchema.getMultiValued());
+            switch (StringUtil.isBlank(innerSchema.getType()) ? "" : innerSchema.getType()) {
+                case "boolean":
+                    this.type = Boolean.class;
+                    break;
+
+                case "int":
+                    this.type = Integer.class;
+                    break;
+
+                case "string":
+                default:
+                    this.type = String.class;
+            }
+        }
+
+        /**
+         * @return attribute name, as {@code schema.field}
+         */
+        public String getName() {
+            return name;
+        }
+
+        public String getSchemaName() {
+            return schemaName;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public boolean isMultiValued() {
+            return multiValued;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+    }
+
+    /**
+     * Parses the given JSON.
+     *
+     * @param json custom schemas JSON, as in configuration
+     * @return parsed custom schemas; empty if the given JSON is blank or invalid
+     */
+    public static GoogleAppsCustomSchemas parse(final String json) {
+        if (StringUtil.isBlank(json)) {
+            return EMPTY;
+        }
+        List<GoogleAppsCustomSchema> schemas = GoogleAppsUtil.extractCustomSchemas(json);
+        return null == schemas ? EMPTY : new GoogleAppsCustomSchemas(schemas);
+    }
+
+    private final List<GoogleAppsCustomSchema> schemas;
+
+    private final Map<String, Field> fields;
+
+    private GoogleAppsCustomSchemas(final List<GoogleAppsCustomSchema> schemas) {
+        this.schemas = Collections.unmodifiableList(new ArrayList<>(schemas));
+
+        Map<String, Field> flattened = new LinkedHashMap<>();
+        for (GoogleAppsCustomSchema customSchema : schemas) {
+            if ("object".equals(customSchema.getType())) {
+                for (GoogleAppsCustomSchema innerSchema : customSchema.getInnerSchemas()) {
+                    Field field = new Field(customSchema.getName(), innerSchema);
+                    flattened.put(field.getName(), field);
+                }
+            } else {
+                LOG.warn("CustomSchema type {0} not allowed at this level", customSchema.getType());
+            }
+        }
+        this.fields = Collections.unmodifiableMap(flattened);
+    }
+
+    public boolean isEmpty() {
+        return schemas.isEmpty();
+    }
+
+    /**
+     * @return custom schemas, as configured
+     */
+    public List<GoogleAppsCustomSchema> getSchemas() {
+        return schemas;
+    }
+
+    /**
+     * @return custom schema fields, in configuration order
+     */
+    public Iterable<Field> getFields() {
+        return fields.values();
+    }
+
+    /**
+     * @return names of custom schema attributes, as {@code schema.field}
+     */
+    public Set<String> getFieldNames() {
+        return fields.keySet();
+    }
+
+    /**
+     * @param name attribute name, as {@code schema.field}
+     * @return custom schema field, or null if not found
+     */
+    public Field getField(final String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * @param name attribute name, as {@code schema.field}
+     * @return attribute type, or null if no such field is defined
+     */
+    public Class<?> getType(final String name) {
+        Field field = fields.get(name);
+        return null == field ? null : field.getType();
+    }
+}
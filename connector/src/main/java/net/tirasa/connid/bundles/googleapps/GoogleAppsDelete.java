@@ -27,6 +27,7 @@ import com.google.api.services.directory.DirectoryRequest;
 import com.google.api.services.licensing.LicensingRequest;
 import com.google.api.services.licensing.model.Empty;
 import java.io.IOException;
+import java.util.regex.Matcher;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 import org.identityconnectors.framework.common.exceptions.UnknownUidException;
@@ -93,6 +94,9 @@ public class GoogleAppsDelete {
 
                 @Override
                 public Void handleResult(final AbstractGoogleJsonClientRequest<Void> request, final Void value) {
+                    if (GoogleAppsUtil.ORG_UNIT.equals(objectClass)) {
+                        configuration.getOrgUnitTreeCache().invalidate();
+                    }
                     return null;
                 }
 
@@ -108,6 +112,10 @@ public class GoogleAppsDelete {
 
                 @Override
                 public Empty handleResult(final AbstractGoogleJsonClientRequest<Empty> request, final Empty value) {
+                    Matcher name = LicenseAssignmentsHandler.LICENSE_NAME_PATTERN.matcher(uid.getUidValue());
+                    if (name.matches()) {
+                        configuration.getLicenseInventory().remove(name.group(3), name.group(2));
+                    }
                     return null;
                 }
 
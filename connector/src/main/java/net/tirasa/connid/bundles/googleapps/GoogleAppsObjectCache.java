@@ -0,0 +1,114 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+
+/**
+ * Least recently used cache of the objects read by key, along with the etag they were built from; cached objects
+ * are never served without revalidation: their etag is sent via {@code If-None-Match} and they are only returned
+ * when Google answers 304 Not Modified.
+ * Objects are cached per set of attributes to get, as they only contain the requested attributes.
+ */
+public final class GoogleAppsObjectCache {
+
+    public static final class Entry {
+
+        private final String etag;
+
+        private final ConnectorObject object;
+
+        private Entry(final String etag, final ConnectorObject object) {
+            this.etag = etag;
+            this.object = object;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public ConnectorObject getObject() {
+            return object;
+        }
+    }
+
+    /**
+     * Builds the cache key for the given read.
+     *
+     * @param objectClass object class
+     * @param key user or group key, as sent to Google
+     * @param attributesToGet attributes to get
+     * @return cache key
+     */
+    public static String key(final ObjectClass objectClass, final String key, final Set<String> attributesToGet) {
+        return objectClass.getObjectClassValue() + '/' + key + '/'
+                + (null == attributesToGet ? "" : String.join(",", new TreeSet<>(attributesToGet)));
+    }
+
+    private final int maxSize;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param maxSize maximum number of cached objects; 0 disables caching
+     */
+    public GoogleAppsObjectCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = -2557102137613564213L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > GoogleAppsObjectCache.this.maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public synchronized Entry get(final String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(final String key, final String etag, final ConnectorObject object) {
+        if (isEnabled() && null != etag) {
+            entries.put(key, new Entry(etag, object));
+        }
+    }
+
+    public synchronized void remove(final String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
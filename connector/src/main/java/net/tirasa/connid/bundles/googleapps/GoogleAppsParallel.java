@@ -0,0 +1,112 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * Helpers for running Google API calls in parallel on the configuration's worker threads.
+ */
+public final class GoogleAppsParallel {
+
+    /**
+     * Applies {@code function} to all items, with at most {@code parallelism} invocations in flight, and passes
+     * the outcomes to {@code consumer} on the calling thread, in the same order as the items.
+     * Processing stops as soon as {@code consumer} returns {@code false} or any invocation fails; outstanding
+     * invocations are cancelled in both cases.
+     *
+     * @param <I> item type
+     * @param <O> outcome type
+     * @param executor executor service
+     * @param parallelism maximum number of concurrent invocations; when lower than 2, all runs on calling thread
+     * @param items items
+     * @param function function to apply
+     * @param consumer outcome consumer
+     * @return whether all items were consumed, e.g. {@code consumer} never returned {@code false}
+     */
+    public static <I, O> boolean forEachOrdered(
+            final ExecutorService executor,
+            final int parallelism,
+            final Iterable<I> items,
+            final Function<I, O> function,
+            final Predicate<O> consumer) {
+
+        Iterator<I> itor = items.iterator();
+
+        if (parallelism < 2) {
+            boolean proceed = true;
+            while (proceed && itor.hasNext()) {
+                proceed = consumer.test(function.apply(itor.next()));
+            }
+            return proceed;
+        }
+
+        Deque<Future<O>> window = new ArrayDeque<>(parallelism);
+        try {
+            while (window.size() < parallelism && itor.hasNext()) {
+                I item = itor.next();
+                window.add(executor.submit(() -> function.apply(item)));
+            }
+
+            while (!window.isEmpty()) {
+                O outcome = get(window.poll());
+                if (itor.hasNext()) {
+                    I item = itor.next();
+                    window.add(executor.submit(() -> function.apply(item)));
+                }
+                if (!consumer.test(outcome)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            window.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static <O> O get(final Future<O> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ConnectorException.wrap(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw ConnectorException.wrap(e.getCause());
+        }
+    }
+
+    private GoogleAppsParallel() {
+        // private constructor for static utility class
+    }
+}
@@ -22,6 +22,7 @@
  */
 package net.tirasa.connid.bundles.googleapps;
 
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
 import com.google.api.services.directory.Directory;
 import com.google.api.services.directory.model.Group;
 import com.google.api.services.directory.model.Groups;
@@ -39,8 +40,16 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import org.identityconnectors.common.CollectionUtil;
 import org.identityconnectors.common.StringUtil;
@@ -49,9 +58,14 @@ import org.identityconnectors.framework.common.exceptions.ConnectorException;
 import org.identityconnectors.framework.common.exceptions.InvalidAttributeValueException;
 import org.identityconnectors.framework.common.objects.Attribute;
 import org.identityconnectors.framework.common.objects.AttributeUtil;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
 import org.identityconnectors.framework.common.objects.Name;
 import org.identityconnectors.framework.common.objects.ObjectClass;
 import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.OperationalAttributes;
+import org.identityconnectors.framework.common.objects.PredefinedAttributes;
 import org.identityconnectors.framework.common.objects.ResultsHandler;
 import org.identityconnectors.framework.common.objects.SearchResult;
 import org.identityconnectors.framework.common.objects.SortKey;
@@ -60,6 +74,7 @@ import org.identityconnectors.framework.common.objects.filter.AndFilter;
 import org.identityconnectors.framework.common.objects.filter.AttributeFilter;
 import org.identityconnectors.framework.common.objects.filter.EqualsFilter;
 import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.common.objects.filter.OrFilter;
 import org.identityconnectors.framework.common.objects.filter.StartsWithFilter;
 import org.identityconnectors.framework.spi.SearchResultsHandler;
 
@@ -67,7 +82,12 @@ public class GoogleAppsSearch {
 
     private static final Log LOG = Log.getLog(GoogleAppsSearch.class);
 
-    private static Set<String> getAttributesToGet(final ObjectClass objectClass, final OperationOptions options) {
+    /**
+     * Multi-key reads are sent in batches of this size, so that an early stop from the handler wastes little.
+     */
+    private static final int GET_BATCH_SIZE = 100;
+
+    static Set<String> getAttributesToGet(final ObjectClass objectClass, final OperationOptions options) {
         Set<String> attributesToGet = null;
         if (null != options.getAttributesToGet()) {
             attributesToGet = CollectionUtil.newCaseInsensitiveSet();
@@ -104,22 +124,32 @@ public class GoogleAppsSearch {
         return attributesToGet;
     }
 
-    private static List<String> customSchemaNames(final String customSchemasJSON) {
-        List<GoogleAppsCustomSchema> customSchemas = GoogleAppsUtil.extractCustomSchemas(customSchemasJSON);
-        List<String> customSchemaNames = new ArrayList<>();
-        for (GoogleAppsCustomSchema customSchema : customSchemas) {
-            if (customSchema.getType().equals("object")) {
-                // parse inner schemas
-                String basicName = customSchema.getName();
-                // manage only first level inner schemas
-                for (GoogleAppsCustomSchema innerSchema : customSchema.getInnerSchemas()) {
-                    customSchemaNames.add(basicName + "." + innerSchema.getName());
-                }
-            } else {
-                LOG.warn("CustomSchema type {0} not allowed at this level", customSchema.getType());
+    /**
+     * Extracts the keys from OR filters made only of {@link Uid} or {@link Name} equality terms.
+     *
+     * @param filter filter
+     * @return keys, or null if the given filter is not such a filter
+     */
+    private static List<String> getKeysFromFilter(final Filter filter) {
+        if (!(filter instanceof OrFilter)) {
+            return null;
+        }
+
+        List<String> keys = new ArrayList<>();
+        for (Filter disjunct : disjuncts(filter)) {
+            if (!(disjunct instanceof EqualsFilter)) {
+                return null;
+            }
+            Attribute attribute = ((EqualsFilter) disjunct).getAttribute();
+            if (!(attribute instanceof Uid || attribute instanceof Name)
+                    || null == attribute.getValue() || attribute.getValue().size() != 1
+                    || null == attribute.getValue().get(0)) {
+
+                return null;
             }
+            keys.add(attribute.getValue().get(0).toString());
         }
-        return customSchemaNames;
+        return keys;
     }
 
     private static Attribute getKeyFromFilter(final ObjectClass objectClass, final Filter filter) {
@@ -176,15 +206,46 @@ public class GoogleAppsSearch {
         return key;
     }
 
+    /**
+     * Removes from objects the attributes which were only read for evaluating residual filters.
+     */
+    private static final class UnrequestedAttributesRemover implements SearchResultsHandler {
+
+        private final ResultsHandler delegate;
+
+        private final Set<String> unrequested;
+
+        UnrequestedAttributesRemover(final ResultsHandler delegate, final Set<String> unrequested) {
+            this.delegate = delegate;
+            this.unrequested = unrequested;
+        }
+
+        @Override
+        public boolean handle(final ConnectorObject object) {
+            ConnectorObjectBuilder builder = new ConnectorObjectBuilder().setObjectClass(object.getObjectClass());
+            object.getAttributes().stream().
+                    filter(attr -> !unrequested.contains(attr.getName())).
+                    forEach(attr -> builder.addAttribute(attr));
+            return delegate.handle(builder.build());
+        }
+
+        @Override
+        public void handleResult(final SearchResult result) {
+            if (delegate instanceof SearchResultsHandler) {
+                ((SearchResultsHandler) delegate).handleResult(result);
+            }
+        }
+    }
+
     private final GoogleAppsConfiguration configuration;
 
     private final ObjectClass objectClass;
 
     private final Filter query;
 
-    private final ResultsHandler handler;
+    private ResultsHandler handler;
 
-    private final OperationOptions options;
+    private OperationOptions options;
 
     public GoogleAppsSearch(
             final GoogleAppsConfiguration configuration,
@@ -200,39 +261,397 @@ public class GoogleAppsSearch {
         this.options = options;
     }
 
-    protected String getFields(final OperationOptions options, final String... nameAttribute) {
-        if (null != options.getAttributesToGet()) {
-            Set<String> attributes = CollectionUtil.newCaseInsensitiveSet();
-            attributes.addAll(Arrays.asList(nameAttribute));
-            final boolean notBlankCustomSchemas = StringUtil.isNotBlank(configuration.getCustomSchemasJSON());
-            final List<String> customSchemaNames = notBlankCustomSchemas
-                    ? customSchemaNames(configuration.getCustomSchemasJSON())
-                    : new ArrayList<>();
-            for (String attribute : options.getAttributesToGet()) {
-                if (AttributeUtil.namesEqual(GoogleAppsUtil.DESCRIPTION_ATTR, attribute)) {
-                    attributes.add(GoogleAppsUtil.DESCRIPTION_ATTR);
-                } else if (AttributeUtil.isSpecialName(attribute)) {
-                    // nothing to do
-                } else if (AttributeUtil.namesEqual(GoogleAppsUtil.FAMILY_NAME_ATTR, attribute)) {
-                    attributes.add("name/familyName");
-                } else if (AttributeUtil.namesEqual(GoogleAppsUtil.GIVEN_NAME_ATTR, attribute)) {
-                    attributes.add("name/givenName");
-                } else if (AttributeUtil.namesEqual(GoogleAppsUtil.FULL_NAME_ATTR, attribute)) {
-                    attributes.add("name/fullName");
-                } else if (!customSchemaNames.contains(attribute)) {
-                    attributes.add(attribute);
+    /**
+     * Builds the users list request for the given filter, with all search options but paging.
+     *
+     * @param filter filter, may be null
+     * @return users list request
+     * @throws IOException if request could not be initialized
+     */
+    private Directory.Users.List usersList(final Filter filter) throws IOException {
+        Directory.Users.List request = configuration.getDirectory().users().list();
+        if (null != filter) {
+            StringBuilder queryBuilder = filter.accept(new UserHandler(), request);
+            if (null != queryBuilder) {
+                String queryString = queryBuilder.toString();
+                LOG.ok("Executing Query: {0}", queryString);
+                request.setQuery(queryString);
+            }
+            if (null == request.getDomain() && null == request.getCustomer()) {
+                request.setCustomer(GoogleAppsUtil.MY_CUSTOMER_ID);
+            }
+        } else {
+            request.setCustomer(GoogleAppsUtil.MY_CUSTOMER_ID);
+        }
+
+        request.setProjection(configuration.getProjection());
+
+        // Implementation to support the 'OP_ATTRIBUTES_TO_GET'
+        request.setFields(FieldMask.page("users", FieldMask.users(configuration, options)));
+
+        if (options.getOptions().get(GoogleAppsUtil.SHOW_DELETED_PARAM) instanceof Boolean) {
+            request.setShowDeleted(options.getOptions().get(GoogleAppsUtil.SHOW_DELETED_PARAM).toString());
+        }
+
+        // Implementation to support the 'OP_SORT_KEYS'
+        if (null != options.getSortKeys()) {
+            for (SortKey sortKey : options.getSortKeys()) {
+                String orderBy;
+                if (sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.EMAIL_ATTR)
+                        || sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.PRIMARY_EMAIL_ATTR)
+                        || sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.ALIASES_ATTR)
+                        || sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.ALIAS_ATTR)) {
+                    orderBy = GoogleAppsUtil.EMAIL_ATTR;
+                } else if (sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.GIVEN_NAME_ATTR)) {
+                    orderBy = GoogleAppsUtil.GIVEN_NAME_ATTR;
+                } else if (sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.FAMILY_NAME_ATTR)) {
+                    orderBy = GoogleAppsUtil.FAMILY_NAME_ATTR;
+                } else {
+                    LOG.ok("Unsupported SortKey:{0}", sortKey);
+                    continue;
+                }
+
+                request.setOrderBy(orderBy);
+                if (sortKey.isAscendingOrder()) {
+                    request.setSortOrder(GoogleAppsUtil.ASCENDING_ORDER);
+                } else {
+                    request.setSortOrder(GoogleAppsUtil.DESCENDING_ORDER);
+                }
+                break;
+            }
+        }
+
+        return request;
+    }
+
+    /**
+     * Splits top-level OR filters into their alternatives.
+     *
+     * @param filter filter, may be null
+     * @return alternatives, or the given filter alone if not an OR
+     */
+    static List<Filter> disjuncts(final Filter filter) {
+        List<Filter> disjuncts = new ArrayList<>();
+        if (filter instanceof OrFilter) {
+            for (Filter operand : ((OrFilter) filter).getFilters()) {
+                disjuncts.addAll(disjuncts(operand));
+            }
+        } else {
+            disjuncts.add(filter);
+        }
+        return disjuncts;
+    }
+
+    /**
+     * Runs one users search per filter, concurrently, and passes the union of the results to handler, each user
+     * only once; pages of each search are passed in order as they arrive, and all searches stop as soon as handler
+     * returns {@code false}. Paged searches do not come here, as there is no single page token to resume from.
+     *
+     * @param splits filters, one per search
+     * @param projection attributes to get
+     * @param groups provides the ids of the groups a user is member of
+     */
+    private void searchUsers(
+            final List<FilterSplit> splits,
+            final AttributeProjection<User> projection,
+            final Function<String, Set<String>> groups) {
+
+        List<Directory.Users.List> requests = new ArrayList<>();
+        // list requests are compared by content, so they are told apart by identity
+        Map<Directory.Users.List, FilterSplit> splitOf = new IdentityHashMap<>();
+        for (FilterSplit split : splits) {
+            try {
+                Directory.Users.List request = usersList(split.getPushdown()).setMaxResults(500);
+                requests.add(request);
+                splitOf.put(request, split);
+            } catch (IOException e) {
+                LOG.warn(e, "Failed to initialize Users#List");
+                throw ConnectorException.wrap(e);
+            }
+        }
+
+        Set<String> seen = new HashSet<>();
+        GoogleApiPager.forEachPageMerged(
+                requests,
+                Users::getNextPageToken,
+                Directory.Users.List::setPageToken,
+                configuration.getExecutorService(),
+                configuration.getMaxConcurrentRequests(),
+                configuration.getPagePrefetchDepth(),
+                (request, value) -> {
+                    if (null != value.getUsers()) {
+                        FilterSplit split = splitOf.get(request);
+                        for (User user : value.getUsers()) {
+                            if (!seen.contains(user.getId())) {
+                                ConnectorObject object = UserHandler.fromUser(configuration, user, projection, groups);
+                                if (split.accept(object)
+                                        && seen.add(user.getId())
+                                        && !handler.handle(object)) {
+
+                                    return false;
+                                }
+                            }
+                        }
+                    }
+                    return true;
+                });
+    }
+
+    /**
+     * Splits the query into the part sent to Google and the residual part, evaluated on returned objects; for
+     * users, top-level OR filters are first split into their alternatives, searched separately.
+     *
+     * @return split query, one per search to run
+     */
+    private List<FilterSplit> splitQuery() {
+        if (ObjectClass.ACCOUNT.equals(objectClass)) {
+            List<Filter> disjuncts = disjuncts(query);
+            if (disjuncts.size() > 1 && null != options.getPageSize() && 0 < options.getPageSize()) {
+                // page tokens only resume a single list: OR filters are then evaluated on all returned users
+                disjuncts = Collections.singletonList(query);
+            }
+
+            List<FilterSplit> splits = new ArrayList<>();
+            for (Filter filter : disjuncts) {
+                splits.add(FilterSplit.split(filter, new UserHandler(), () -> {
+                    try {
+                        return configuration.getDirectory().users().list();
+                    } catch (IOException e) {
+                        throw ConnectorException.wrap(e);
+                    }
+                }));
+            }
+            return splits;
+        }
+        if (ObjectClass.GROUP.equals(objectClass)) {
+            return Collections.singletonList(FilterSplit.split(query, new GroupHandler(), () -> {
+                try {
+                    return configuration.getDirectory().groups().list();
+                } catch (IOException e) {
+                    throw ConnectorException.wrap(e);
+                }
+            }));
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Builds the license assignments list requests for the configured product: one per configured SKU, or one for
+     * the whole product if no SKU is configured.
+     *
+     * @return license assignments list requests
+     * @throws IOException if requests could not be initialized
+     */
+    private List<LicensingRequest<LicenseAssignmentList>> licenseAssignmentsLists() throws IOException {
+        if (StringUtil.isBlank(configuration.getProductId())) {
+            throw new ConnectorException("productId is required");
+        }
+
+        Licensing.LicenseAssignments service = configuration.getLicensing().licenseAssignments();
+        List<LicensingRequest<LicenseAssignmentList>> requests = new ArrayList<>();
+        if (null != configuration.getSkuIds()) {
+            for (String skuId : configuration.getSkuIds()) {
+                if (StringUtil.isNotBlank(skuId)) {
+                    requests.add(service.listForProductAndSku(
+                            configuration.getProductId(), skuId, GoogleAppsUtil.MY_CUSTOMER_ID));
                 }
-                // return also customSchemas according to configuration
-                if ("full".equals(configuration.getProjection()) && notBlankCustomSchemas) {
-                    attributes.add(GoogleAppsUtil.CUSTOM_SCHEMAS);
+            }
+        }
+        if (requests.isEmpty()) {
+            requests.add(service.listForProduct(configuration.getProductId(), GoogleAppsUtil.MY_CUSTOMER_ID));
+        }
+        return requests;
+    }
+
+    private static void setMaxResults(final LicensingRequest<LicenseAssignmentList> request, final Long maxResults) {
+        if (request instanceof Licensing.LicenseAssignments.ListForProduct) {
+            ((Licensing.LicenseAssignments.ListForProduct) request).setMaxResults(maxResults);
+        } else {
+            ((Licensing.LicenseAssignments.ListForProductAndSku) request).setMaxResults(maxResults);
+        }
+    }
+
+    private static void setPageToken(final LicensingRequest<LicenseAssignmentList> request, final String pageToken) {
+        if (request instanceof Licensing.LicenseAssignments.ListForProduct) {
+            ((Licensing.LicenseAssignments.ListForProduct) request).setPageToken(pageToken);
+        } else {
+            ((Licensing.LicenseAssignments.ListForProductAndSku) request).setPageToken(pageToken);
+        }
+    }
+
+    /**
+     * Answers OrgUnit searches from the in-memory tree, as {@code orgunits.list} would:
+     * {@link OperationOptions#SCOPE_OBJECT} and {@link OperationOptions#SCOPE_ONE_LEVEL} return the direct children
+     * of the org unit at the given path, any other scope all of its descendants.
+     *
+     * @param tree org unit tree
+     * @param scope search scope
+     * @param projection attributes to return
+     */
+    private void searchOrgUnits(
+            final OrgUnitTree tree,
+            final String scope,
+            final AttributeProjection<OrgUnit> projection) {
+
+        String path = "/";
+        if (null != query) {
+            if (query instanceof StartsWithFilter
+                    && AttributeUtil.namesEqual(GoogleAppsUtil.ORG_UNIT_PATH_ATTR,
+                            ((StartsWithFilter) query).getName())) {
+
+                path = ((StartsWithFilter) query).getValue();
+            } else {
+                throw new UnsupportedOperationException(
+                        "Only StartsWithFilter('orgUnitPath') is supported");
+            }
+        }
+
+        if (OperationOptions.SCOPE_OBJECT.equalsIgnoreCase(scope)
+                || OperationOptions.SCOPE_ONE_LEVEL.equalsIgnoreCase(scope)) {
+
+            for (OrgUnit orgUnit : tree.children(path)) {
+                if (!handler.handle(OrgunitsHandler.from(orgUnit, projection))) {
+                    break;
                 }
             }
-            return StringUtil.join(attributes, GoogleAppsUtil.COMMA);
+        } else {
+            tree.forEachDescendant(path, orgUnit -> handler.handle(OrgunitsHandler.from(orgUnit, projection)));
         }
-        return null;
+    }
+
+    /**
+     * Reads the users or groups with the given keys via batched requests, and passes them to handler as they
+     * arrive; keys not found are skipped.
+     *
+     * @param keys user or group keys, e.g. id or email
+     * @param attributesToGet attributes to get
+     */
+    private void getAll(final List<String> keys, final Set<String> attributesToGet) {
+        AttributeProjection<User> userProjection = UserHandler.projection(attributesToGet);
+        AttributeProjection<Group> groupProjection = GroupHandler.projection(attributesToGet);
+        Set<String> seen = new HashSet<>();
+        AtomicBoolean proceed = new AtomicBoolean(true);
+
+        try {
+            for (int i = 0; i < keys.size() && proceed.get(); i += GET_BATCH_SIZE) {
+                GoogleApiBatch batch = new GoogleApiBatch();
+                for (String key : keys.subList(i, Math.min(i + GET_BATCH_SIZE, keys.size()))) {
+                    if (ObjectClass.ACCOUNT.equals(objectClass)) {
+                        Directory.Users.Get request = configuration.getDirectory().users().get(key);
+                        request.setFields(FieldMask.users(configuration, options));
+                        request.setProjection(configuration.getProjection());
+
+                        batch.queue(request, new RequestResultHandler<Directory.Users.Get, User, Void>() {
+
+                            @Override
+                            public Void handleResult(final Directory.Users.Get request, final User user) {
+                                if (proceed.get() && seen.add(user.getId())) {
+                                    proceed.set(handler.handle(UserHandler.fromUser(
+                                            configuration, user, userProjection,
+                                            userKey -> GroupHandler.listGroups(configuration.getDirectory().
+                                                    groups(), userKey, configuration.getDomain()))));
+                                }
+                                return null;
+                            }
+
+                            @Override
+                            public Void handleNotFound(final IOException e) {
+                                // Do nothing if not found
+                                return null;
+                            }
+                        });
+                    } else {
+                        Directory.Groups.Get request = configuration.getDirectory().groups().get(key);
+                        request.setFields(FieldMask.groups(configuration, options));
+
+                        batch.queue(request, new RequestResultHandler<Directory.Groups.Get, Group, Void>() {
+
+                            @Override
+                            public Void handleResult(final Directory.Groups.Get request, final Group group) {
+                                if (proceed.get() && seen.add(group.getId())) {
+                                    proceed.set(handler.handle(GroupHandler.fromGroup(
+                                            group, groupProjection, configuration.getDirectory().members())));
+                                }
+                                return null;
+                            }
+
+                            @Override
+                            public Void handleNotFound(final IOException e) {
+                                // Do nothing if not found
+                                return null;
+                            }
+                        });
+                    }
+                }
+                batch.execute();
+            }
+        } catch (IOException e) {
+            LOG.warn(e, "Failed to initialize {0}#Get", objectClass.getObjectClassValue());
+            throw ConnectorException.wrap(e);
+        }
+    }
+
+    /**
+     * Makes the given read conditional, if an object was cached for the given key.
+     *
+     * @param request read request
+     * @param cacheKey cache key, null if the object to read shall not be cached
+     * @return cache entry, whose object is to be returned on 304 Not Modified
+     */
+    private GoogleAppsObjectCache.Entry ifNoneMatch(
+            final AbstractGoogleJsonClientRequest<?> request, final String cacheKey) {
+
+        GoogleAppsObjectCache.Entry cached = null == cacheKey ? null : configuration.getObjectCache().get(cacheKey);
+        if (null != cached) {
+            request.getRequestHeaders().setIfNoneMatch(cached.getEtag());
+        }
+        return cached;
     }
 
     public void execute() {
+        if (ObjectClass.ACCOUNT.equals(objectClass) || ObjectClass.GROUP.equals(objectClass)) {
+            List<String> keys = getKeysFromFilter(query);
+            if (null != keys) {
+                getAll(keys, getAttributesToGet(objectClass, options));
+                return;
+            }
+        }
+
+        List<FilterSplit> splits = splitQuery();
+
+        // residual filters are evaluated on returned objects, which must then include the attributes they need;
+        // those not requested by the caller are removed before objects are passed to handler
+        Set<String> residualAttributes = CollectionUtil.newCaseInsensitiveSet();
+        splits.forEach(split -> residualAttributes.addAll(split.getResidualAttributes()));
+        if (!residualAttributes.isEmpty()) {
+            if (residualAttributes.contains(OperationalAttributes.ENABLE_NAME)) {
+                residualAttributes.add(GoogleAppsUtil.SUSPENDED_ATTR);
+            }
+
+            Set<String> requested = CollectionUtil.newCaseInsensitiveSet();
+            if (null == options.getAttributesToGet()) {
+                requested.addAll(ObjectClass.ACCOUNT.equals(objectClass)
+                        ? UserHandler.defaultAttributes()
+                        : GroupHandler.defaultAttributes());
+                if (ObjectClass.ACCOUNT.equals(objectClass)) {
+                    requested.add(OperationalAttributes.ENABLE_NAME);
+                    requested.addAll(configuration.getCustomSchemas().getFieldNames());
+                }
+            } else {
+                requested.addAll(Arrays.asList(options.getAttributesToGet()));
+            }
+
+            Set<String> unrequested = CollectionUtil.newCaseInsensitiveSet();
+            residualAttributes.stream().
+                    filter(attr -> !requested.contains(attr) && !Uid.NAME.equals(attr) && !Name.NAME.equals(attr)).
+                    forEach(unrequested::add);
+            if (!unrequested.isEmpty()) {
+                requested.addAll(unrequested);
+                options = new OperationOptionsBuilder(options).setAttributesToGet(requested).build();
+                handler = new UnrequestedAttributesRemover(handler, unrequested);
+            }
+        }
+
         final Set<String> attributesToGet = getAttributesToGet(objectClass, options);
         Attribute key = getKeyFromFilter(objectClass, query);
 
@@ -240,21 +659,19 @@ public class GoogleAppsSearch {
             if (null == key || null == key.getValue() || key.getValue().isEmpty() || null == key.getValue().get(0)) {
                 // Search request
                 try {
-                    Directory.Users.List request = configuration.getDirectory().users().list();
-                    if (null != query) {
-                        StringBuilder queryBuilder = query.accept(new UserHandler(), request);
-                        if (null != queryBuilder) {
-                            String queryString = queryBuilder.toString();
-                            LOG.ok("Executing Query: {0}", queryString);
-                            request.setQuery(queryString);
-                        }
-                        if (null == request.getDomain() && null == request.getCustomer()) {
-                            request.setCustomer(GoogleAppsUtil.MY_CUSTOMER_ID);
-                        }
-                    } else {
-                        request.setCustomer(GoogleAppsUtil.MY_CUSTOMER_ID);
+                    AttributeProjection<User> projection = UserHandler.projection(attributesToGet);
+                    Directory.Groups groupsService = configuration.getDirectory().groups();
+
+                    if (splits.size() > 1) {
+                        // Google's query syntax has no OR: each alternative is searched on its own
+                        searchUsers(splits, projection,
+                                userKey -> GroupHandler.listGroups(groupsService, userKey, configuration.getDomain()));
+                        return;
                     }
 
+                    FilterSplit split = splits.get(0);
+                    Directory.Users.List request = usersList(split.getPushdown());
+
                     // Implementation to support the 'OP_PAGE_SIZE'
                     boolean paged = false;
                     if (options.getPageSize() != null && 0 < options.getPageSize()) {
@@ -268,68 +685,39 @@ public class GoogleAppsSearch {
                     }
                     // Implementation to support the 'OP_PAGED_RESULTS_COOKIE'
                     request.setPageToken(options.getPagedResultsCookie());
-                    request.setProjection(configuration.getProjection());
-
-                    // Implementation to support the 'OP_ATTRIBUTES_TO_GET'
-                    String fields = getFields(options, GoogleAppsUtil.ID_ATTR,
-                            GoogleAppsUtil.ETAG_ATTR, GoogleAppsUtil.PRIMARY_EMAIL_ATTR);
-                    if (null != fields) {
-                        request.setFields("nextPageToken,users(" + fields + ")");
-                    }
 
-                    if (options.getOptions().get(GoogleAppsUtil.SHOW_DELETED_PARAM) instanceof Boolean) {
-                        request.setShowDeleted(options.getOptions().get(GoogleAppsUtil.SHOW_DELETED_PARAM).toString());
-                    }
+                    // on full scans, memberships are resolved once for all users rather than once per user
+                    Function<String, Set<String>> groups;
+                    if (!paged && null == split.getPushdown() && null != attributesToGet
+                            && attributesToGet.contains(PredefinedAttributes.GROUPS_NAME)
+                            && MembershipIndex.isApplicable(configuration.getDirectory())) {
 
-                    // Implementation to support the 'OP_SORT_KEYS'
-                    if (null != options.getSortKeys()) {
-                        for (SortKey sortKey : options.getSortKeys()) {
-                            String orderBy;
-                            if (sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.EMAIL_ATTR)
-                                    || sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.PRIMARY_EMAIL_ATTR)
-                                    || sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.ALIASES_ATTR)
-                                    || sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.ALIAS_ATTR)) {
-                                orderBy = GoogleAppsUtil.EMAIL_ATTR;
-                            } else if (sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.GIVEN_NAME_ATTR)) {
-                                orderBy = GoogleAppsUtil.GIVEN_NAME_ATTR;
-                            } else if (sortKey.getField().equalsIgnoreCase(GoogleAppsUtil.FAMILY_NAME_ATTR)) {
-                                orderBy = GoogleAppsUtil.FAMILY_NAME_ATTR;
-                            } else {
-                                LOG.ok("Unsupported SortKey:{0}", sortKey);
-                                continue;
-                            }
-
-                            request.setOrderBy(orderBy);
-                            if (sortKey.isAscendingOrder()) {
-                                request.setSortOrder(GoogleAppsUtil.ASCENDING_ORDER);
-                            } else {
-                                request.setSortOrder(GoogleAppsUtil.DESCENDING_ORDER);
-                            }
-                            break;
-                        }
+                        MembershipIndex index =
+                                MembershipIndex.build(configuration.getDirectory(), configuration.getDomain());
+                        groups = index::groupsOf;
+                    } else {
+                        groups = userKey -> GroupHandler.listGroups(groupsService, userKey, configuration.getDomain());
                     }
 
-                    String nextPageToken = null;
-                    do {
-                        nextPageToken = GoogleApiExecutor.execute(request,
-                                new RequestResultHandler<Directory.Users.List, Users, String>() {
-
-                            @Override
-                            public String handleResult(final Directory.Users.List request, final Users value) {
+                    String nextPageToken = GoogleApiPager.forEachPage(
+                            request,
+                            Users::getNextPageToken,
+                            Directory.Users.List::setPageToken,
+                            configuration.getExecutorService(),
+                            configuration.getPagePrefetchDepth(),
+                            paged,
+                            value -> {
                                 if (null != value.getUsers()) {
                                     for (User user : value.getUsers()) {
-                                        handler.handle(UserHandler.fromUser(
-                                                configuration,
-                                                user,
-                                                attributesToGet,
-                                                configuration.getDirectory().groups()));
+                                        ConnectorObject object =
+                                                UserHandler.fromUser(configuration, user, projection, groups);
+                                        if (split.accept(object) && !handler.handle(object)) {
+                                            return false;
+                                        }
                                     }
                                 }
-                                return value.getNextPageToken();
-                            }
-                        });
-                        request.setPageToken(nextPageToken);
-                    } while (!paged && StringUtil.isNotBlank(nextPageToken));
+                                return true;
+                            });
 
                     if (paged && StringUtil.isNotBlank(nextPageToken)) {
                         LOG.info("Paged Search was requested and next token is:{0}", nextPageToken);
@@ -345,22 +733,41 @@ public class GoogleAppsSearch {
                 try {
                     Directory.Users.Get request =
                             configuration.getDirectory().users().get((String) key.getValue().get(0));
-                    request.setFields(getFields(options,
-                            GoogleAppsUtil.ID_ATTR, GoogleAppsUtil.ETAG_ATTR,
-                            GoogleAppsUtil.PRIMARY_EMAIL_ATTR, GoogleAppsUtil.SUSPENDED_ATTR));
+                    request.setFields(FieldMask.users(configuration, options));
                     request.setProjection(configuration.getProjection());
 
+                    AttributeProjection<User> projection = UserHandler.projection(attributesToGet);
+                    // group memberships are not covered by the user's etag
+                    String cacheKey = projection.isRequested(PredefinedAttributes.GROUPS_NAME)
+                            ? null
+                            : GoogleAppsObjectCache.key(objectClass, request.getUserKey(), attributesToGet);
+                    GoogleAppsObjectCache.Entry cached = ifNoneMatch(request, cacheKey);
+
                     GoogleApiExecutor.execute(request,
                             new RequestResultHandler<Directory.Users.Get, User, Boolean>() {
 
                         @Override
                         public Boolean handleResult(final Directory.Users.Get request, final User user) {
-                            return handler.handle(UserHandler.fromUser(
-                                    configuration, user, attributesToGet, configuration.getDirectory().groups()));
+                            ConnectorObject object = UserHandler.fromUser(
+                                    configuration, user, projection,
+                                    userKey -> GroupHandler.listGroups(
+                                            configuration.getDirectory().groups(), userKey, configuration.getDomain()));
+                            if (null != cacheKey) {
+                                configuration.getObjectCache().put(cacheKey, user.getEtag(), object);
+                            }
+                            return handler.handle(object);
+                        }
+
+                        @Override
+                        public Boolean handleNotModified(final IOException e) {
+                            return handler.handle(cached.getObject());
                         }
 
                         @Override
                         public Boolean handleNotFound(final IOException e) {
+                            if (null != cacheKey) {
+                                configuration.getObjectCache().remove(cacheKey);
+                            }
                             // Do nothing if not found
                             return true;
                         }
@@ -375,15 +782,17 @@ public class GoogleAppsSearch {
                 // Search request
                 try {
                     // userKey excludes the customer and domain!!
+                    FilterSplit split = splits.get(0);
                     Directory.Groups.List request = configuration.getDirectory().groups().list();
-                    if (null != query) {
-                        StringBuilder queryBuilder = query.accept(new GroupHandler(), request);
+                    if (null != split.getPushdown()) {
+                        StringBuilder queryBuilder = split.getPushdown().accept(new GroupHandler(), request);
                         if (null != queryBuilder) {
                             String queryString = queryBuilder.toString();
                             LOG.ok("Executing Query: {0}", queryString);
                             request.setQuery(queryString);
                         }
-                        if (null == request.getDomain() && null == request.getCustomer()) {
+                        if (null == request.getDomain() && null == request.getCustomer()
+                                && null == request.getUserKey()) {
                             request.setCustomer(GoogleAppsUtil.MY_CUSTOMER_ID);
                         }
                     } else {
@@ -399,31 +808,30 @@ public class GoogleAppsSearch {
                     request.setPageToken(options.getPagedResultsCookie());
 
                     // Implementation to support the 'OP_ATTRIBUTES_TO_GET'
-                    String fields = getFields(options,
-                            GoogleAppsUtil.ID_ATTR, GoogleAppsUtil.ETAG_ATTR,
-                            GoogleAppsUtil.EMAIL_ATTR, GoogleAppsUtil.SUSPENDED_ATTR);
-                    if (null != fields) {
-                        request.setFields("nextPageToken,groups(" + fields + ")");
-                    }
-
-                    String nextPageToken = null;
-                    do {
-                        nextPageToken = GoogleApiExecutor.execute(request,
-                                new RequestResultHandler<Directory.Groups.List, Groups, String>() {
-
-                            @Override
-                            public String handleResult(final Directory.Groups.List request, final Groups value) {
+                    request.setFields(FieldMask.page("groups", FieldMask.groups(configuration, options)));
+
+                    AttributeProjection<Group> projection = GroupHandler.projection(attributesToGet);
+                    String nextPageToken = GoogleApiPager.forEachPage(
+                            request,
+                            Groups::getNextPageToken,
+                            Directory.Groups.List::setPageToken,
+                            configuration.getExecutorService(),
+                            configuration.getPagePrefetchDepth(),
+                            paged,
+                            value -> {
                                 if (null != value.getGroups()) {
-                                    for (Group group : value.getGroups()) {
-                                        handler.handle(GroupHandler.fromGroup(
-                                                group, attributesToGet, configuration.getDirectory().members()));
-                                    }
+                                    // members are fetched in parallel, objects are passed to handler in page order
+                                    return GoogleAppsParallel.forEachOrdered(
+                                            configuration.getExecutorService(),
+                                            projection.isRequested(GoogleAppsUtil.MEMBERS_ATTR)
+                                            ? configuration.getMaxConcurrentRequests() : 1,
+                                            value.getGroups(),
+                                            group -> GroupHandler.fromGroup(
+                                                    group, projection, configuration.getDirectory().members()),
+                                            object -> !split.accept(object) || handler.handle(object));
                                 }
-                                return value.getNextPageToken();
-                            }
-                        });
-                        request.setPageToken(nextPageToken);
-                    } while (!paged && StringUtil.isNotBlank(nextPageToken));
+                                return true;
+                            });
 
                     if (paged && StringUtil.isNotBlank(nextPageToken)) {
                         LOG.info("Paged Search was requested");
@@ -438,20 +846,38 @@ public class GoogleAppsSearch {
                 try {
                     Directory.Groups.Get request =
                             configuration.getDirectory().groups().get((String) key.getValue().get(0));
-                    request.setFields(getFields(options, GoogleAppsUtil.ID_ATTR,
-                            GoogleAppsUtil.ETAG_ATTR, GoogleAppsUtil.EMAIL_ATTR));
+                    request.setFields(FieldMask.groups(configuration, options));
+
+                    AttributeProjection<Group> projection = GroupHandler.projection(attributesToGet);
+                    // members are not covered by the group's etag
+                    String cacheKey = projection.isRequested(GoogleAppsUtil.MEMBERS_ATTR)
+                            ? null
+                            : GoogleAppsObjectCache.key(objectClass, request.getGroupKey(), attributesToGet);
+                    GoogleAppsObjectCache.Entry cached = ifNoneMatch(request, cacheKey);
 
                     GoogleApiExecutor.execute(request,
                             new RequestResultHandler<Directory.Groups.Get, Group, Boolean>() {
 
                         @Override
                         public Boolean handleResult(final Directory.Groups.Get request, final Group value) {
-                            return handler.handle(GroupHandler.fromGroup(
-                                    value, attributesToGet, configuration.getDirectory().members()));
+                            ConnectorObject object = GroupHandler.fromGroup(
+                                    value, projection, configuration.getDirectory().members());
+                            if (null != cacheKey) {
+                                configuration.getObjectCache().put(cacheKey, value.getEtag(), object);
+                            }
+                            return handler.handle(object);
+                        }
+
+                        @Override
+                        public Boolean handleNotModified(final IOException e) {
+                            return handler.handle(cached.getObject());
                         }
 
                         @Override
                         public Boolean handleNotFound(final IOException e) {
+                            if (null != cacheKey) {
+                                configuration.getObjectCache().remove(cacheKey);
+                            }
                             // Do nothing if not found
                             return true;
                         }
@@ -479,7 +905,8 @@ public class GoogleAppsSearch {
                     if (StringUtil.isBlank(groupKey)) {
                         throw new InvalidAttributeValueException("The 'groupKey' can not be blank.");
                     }
-                    Directory.Members.List request = configuration.getDirectory().members().list(groupKey);
+                    Directory.Members.List request = configuration.getDirectory().members().list(groupKey).
+                            setFields(FieldMask.page("members", FieldMask.MEMBER_FIELDS));
 
                     boolean paged = false;
                     // Groups
@@ -489,25 +916,23 @@ public class GoogleAppsSearch {
                     }
                     request.setPageToken(options.getPagedResultsCookie());
 
-                    String nextPageToken = null;
-                    do {
-                        nextPageToken = GoogleApiExecutor.execute(request,
-                                new RequestResultHandler<Directory.Members.List, Members, String>() {
-
-                            @Override
-                            public String handleResult(
-                                    final Directory.Members.List request,
-                                    final Members value) {
+                    String nextPageToken = GoogleApiPager.forEachPage(
+                            request,
+                            Members::getNextPageToken,
+                            Directory.Members.List::setPageToken,
+                            configuration.getExecutorService(),
+                            configuration.getPagePrefetchDepth(),
+                            paged,
+                            value -> {
                                 if (null != value.getMembers()) {
                                     for (Member group : value.getMembers()) {
-                                        handler.handle(MembersHandler.from(request.getGroupKey(), group));
+                                        if (!handler.handle(MembersHandler.from(request.getGroupKey(), group))) {
+                                            return false;
+                                        }
                                     }
                                 }
-                                return value.getNextPageToken();
-                            }
-                        });
-                        request.setPageToken(nextPageToken);
-                    } while (!paged && StringUtil.isNotBlank(nextPageToken));
+                                return true;
+                            });
 
                     if (paged && StringUtil.isNotBlank(nextPageToken)) {
                         LOG.info("Paged Search was requested");
@@ -526,7 +951,8 @@ public class GoogleAppsSearch {
                         throw new InvalidAttributeValueException("Unrecognised UID format");
                     }
 
-                    Directory.Members.Get request = configuration.getDirectory().members().get(ids[0], ids[1]);
+                    Directory.Members.Get request = configuration.getDirectory().members().get(ids[0], ids[1]).
+                            setFields(FieldMask.MEMBER_FIELDS);
                     GoogleApiExecutor.execute(request,
                             new RequestResultHandler<Directory.Members.Get, Member, Boolean>() {
 
@@ -547,6 +973,22 @@ public class GoogleAppsSearch {
                 }
             }
         } else if (GoogleAppsUtil.ORG_UNIT.equals(objectClass)) {
+            OrgUnitTreeCache orgUnitTreeCache = configuration.getOrgUnitTreeCache();
+            if (orgUnitTreeCache.isEnabled()) {
+                OrgUnitTree tree = orgUnitTreeCache.get(configuration.getDirectory());
+                if (null == key) {
+                    searchOrgUnits(tree, options.getScope(), OrgunitsHandler.projection(attributesToGet));
+                    return;
+                }
+
+                Optional<OrgUnit> orgUnit = tree.get((String) key.getValue().get(0));
+                if (orgUnit.isPresent()) {
+                    handler.handle(OrgunitsHandler.from(orgUnit.get(), attributesToGet));
+                    return;
+                }
+                // not in tree: might have been created meanwhile by someone else, look it up
+            }
+
             if (null == key) {
                 // Search request
                 try {
@@ -576,15 +1018,9 @@ public class GoogleAppsSearch {
                     }
 
                     // Implementation to support the 'OP_ATTRIBUTES_TO_GET'
-                    String fields = getFields(
-                            options,
-                            GoogleAppsUtil.ORG_UNIT_PATH_ATTR,
-                            GoogleAppsUtil.ETAG_ATTR,
-                            GoogleAppsUtil.NAME_ATTR);
-                    if (null != fields) {
-                        request.setFields("organizationUnits(" + fields + ")");
-                    }
+                    request.setFields("organizationUnits(" + FieldMask.orgUnits(configuration, options) + ")");
 
+                    AttributeProjection<OrgUnit> projection = OrgunitsHandler.projection(attributesToGet);
                     GoogleApiExecutor.execute(request,
                             new RequestResultHandler<Directory.Orgunits.List, OrgUnits, Void>() {
 
@@ -593,7 +1029,9 @@ public class GoogleAppsSearch {
                                 final OrgUnits value) {
                             if (null != value.getOrganizationUnits()) {
                                 for (OrgUnit group : value.getOrganizationUnits()) {
-                                    handler.handle(OrgunitsHandler.from(group, attributesToGet));
+                                    if (!handler.handle(OrgunitsHandler.from(group, projection))) {
+                                        break;
+                                    }
                                 }
                             }
                             return null;
@@ -608,8 +1046,7 @@ public class GoogleAppsSearch {
                 try {
                     Directory.Orgunits.Get request = configuration.getDirectory().orgunits().
                             get(GoogleAppsUtil.MY_CUSTOMER_ID, (String) key.getValue().get(0));
-                    request.setFields(getFields(options, GoogleAppsUtil.ORG_UNIT_PATH_ATTR,
-                            GoogleAppsUtil.ETAG_ATTR, GoogleAppsUtil.NAME_ATTR));
+                    request.setFields(FieldMask.orgUnits(configuration, options));
 
                     GoogleApiExecutor.execute(request,
                             new RequestResultHandler<Directory.Orgunits.Get, OrgUnit, Boolean>() {
@@ -634,73 +1071,67 @@ public class GoogleAppsSearch {
             if (null == key) {
                 // Search request
                 try {
-                    String productId = "";
-                    String skuId = "";
-
-                    boolean paged = false;
-
-                    LicensingRequest<LicenseAssignmentList> request = null;
-
-                    if (StringUtil.isBlank(productId)) {
-                        // TODO iterate over the three productids
-                        throw new ConnectorException("productId is required");
-                    } else if (StringUtil.isBlank(skuId)) {
-                        Licensing.LicenseAssignments.ListForProduct r =
-                                configuration.getLicensing().licenseAssignments().
-                                        listForProduct(productId, GoogleAppsUtil.MY_CUSTOMER_ID);
-
-                        if (options.getPageSize() != null && 0 < options.getPageSize()) {
-                            r.setMaxResults(Long.valueOf(options.getPageSize()));
-                            paged = true;
-                        }
-                        r.setPageToken(options.getPagedResultsCookie());
-                        request = r;
-                    } else {
-                        Licensing.LicenseAssignments.ListForProductAndSku r =
-                                configuration.getLicensing().licenseAssignments().
-                                        listForProductAndSku(productId, skuId, GoogleAppsUtil.MY_CUSTOMER_ID);
-
-                        if (options.getPageSize() != null && 0 < options.getPageSize()) {
-                            r.setMaxResults(Long.valueOf(options.getPageSize()));
-                            paged = true;
+                    List<LicensingRequest<LicenseAssignmentList>> requests = licenseAssignmentsLists();
+                    Predicate<LicenseAssignmentList> consumer = value -> {
+                        if (null != value.getItems()) {
+                            for (LicenseAssignment resource : value.getItems()) {
+                                if (!handler.handle(LicenseAssignmentsHandler.from(resource))) {
+                                    return false;
+                                }
+                            }
                         }
-                        r.setPageToken(options.getPagedResultsCookie());
-                        request = r;
-                    }
-
-                    String nextPageToken = null;
-                    do {
-                        nextPageToken = GoogleApiExecutor.execute(request,
-                                new RequestResultHandler<
-                                        LicensingRequest<LicenseAssignmentList>, LicenseAssignmentList, String>() {
+                        return true;
+                    };
 
-                            @Override
-                            public String handleResult(
-                                    final LicensingRequest<LicenseAssignmentList> request,
-                                    final LicenseAssignmentList value) {
-
-                                if (null != value.getItems()) {
-                                    for (LicenseAssignment resource : value.getItems()) {
-                                        handler.handle(LicenseAssignmentsHandler.from(resource));
-                                    }
-                                }
-                                return value.getNextPageToken();
+                    if (options.getPageSize() != null && 0 < options.getPageSize()) {
+                        // one page of one list at a time, cookie is <list index>:<page token>
+                        int idx = 0;
+                        String pageToken = null;
+                        if (StringUtil.isNotBlank(options.getPagedResultsCookie())) {
+                            String[] cookie = options.getPagedResultsCookie().split(":", 2);
+                            try {
+                                idx = Integer.parseInt(cookie[0]);
+                            } catch (NumberFormatException e) {
+                                throw new InvalidAttributeValueException(
+                                        "Invalid paged results cookie: " + options.getPagedResultsCookie());
                             }
-                        });
-                        if (request instanceof Licensing.LicenseAssignments.ListForProduct) {
-                            ((Licensing.LicenseAssignments.ListForProduct) request).setPageToken(nextPageToken);
-                        } else {
-                            ((Licensing.LicenseAssignments.ListForProductAndSku) request).setPageToken(nextPageToken);
+                            pageToken = cookie.length > 1 && StringUtil.isNotBlank(cookie[1]) ? cookie[1] : null;
+                        }
+                        if (idx < 0 || idx >= requests.size()) {
+                            return;
                         }
-                    } while (!paged && StringUtil.isNotBlank(nextPageToken));
 
-                    if (paged && StringUtil.isNotBlank(nextPageToken)) {
-                        LOG.info("Paged Search was requested");
-                        ((SearchResultsHandler) handler).handleResult(new SearchResult(nextPageToken, 0));
+                        LicensingRequest<LicenseAssignmentList> request = requests.get(idx);
+                        setMaxResults(request, Long.valueOf(options.getPageSize()));
+                        setPageToken(request, pageToken);
+                        String nextPageToken = GoogleApiPager.forEachPage(
+                                request,
+                                LicenseAssignmentList::getNextPageToken,
+                                GoogleAppsSearch::setPageToken,
+                                configuration.getExecutorService(),
+                                0,
+                                true,
+                                consumer);
+
+                        String nextCookie = StringUtil.isNotBlank(nextPageToken)
+                                ? idx + ":" + nextPageToken
+                                : idx + 1 < requests.size() ? (idx + 1) + ":" : null;
+                        if (null != nextCookie) {
+                            LOG.info("Paged Search was requested");
+                            ((SearchResultsHandler) handler).handleResult(new SearchResult(nextCookie, 0));
+                        }
+                    } else {
+                        GoogleApiPager.forEachPageMerged(
+                                requests,
+                                LicenseAssignmentList::getNextPageToken,
+                                GoogleAppsSearch::setPageToken,
+                                configuration.getExecutorService(),
+                                configuration.getMaxConcurrentRequests(),
+                                configuration.getPagePrefetchDepth(),
+                                consumer);
                     }
-
                 } catch (IOException e) {
-                    LOG.warn(e, "Failed to initialize Groups#List");
+                    LOG.warn(e, "Failed to initialize LicenseAssignments#List");
                     throw ConnectorException.wrap(e);
                 }
             } else {
@@ -711,9 +1142,9 @@ public class GoogleAppsSearch {
                         return;
                     }
 
-                    String productId = name.group(0);
-                    String skuId = name.group(1);
-                    String userId = name.group(2);
+                    String productId = name.group(1);
+                    String skuId = name.group(2);
+                    String userId = name.group(3);
 
                     Licensing.LicenseAssignments.Get request =
                             configuration.getLicensing().licenseAssignments().get(productId, skuId, userId);
@@ -736,7 +1167,7 @@ public class GoogleAppsSearch {
                         }
                     });
                 } catch (IOException e) {
-                    LOG.warn(e, "Failed to initialize Groups#Get");
+                    LOG.warn(e, "Failed to initialize LicenseAssignments#Get");
                     throw ConnectorException.wrap(e);
                 }
             }
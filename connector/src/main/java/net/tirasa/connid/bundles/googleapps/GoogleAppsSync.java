@@ -0,0 +1,387 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static net.tirasa.connid.bundles.googleapps.GoogleApiExecutor.execute;
+
+import com.google.api.services.directory.Directory;
+import com.google.api.services.directory.model.Group;
+import com.google.api.services.directory.model.Groups;
+import com.google.api.services.directory.model.User;
+import com.google.api.services.directory.model.Users;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.identityconnectors.common.StringUtil;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.SyncDeltaBuilder;
+import org.identityconnectors.framework.common.objects.SyncDeltaType;
+import org.identityconnectors.framework.common.objects.SyncResultsHandler;
+import org.identityconnectors.framework.common.objects.SyncToken;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.identityconnectors.framework.spi.SyncTokenResultsHandler;
+
+/**
+ * Live sync for users and groups, based on etag snapshots.
+ * Each sync token identifies a snapshot, saved in the configured {@link SyncTokenStore}, holding the etag of every
+ * object existing when the token was issued; syncing from a token lists id and etag of all current objects -
+ * which is cheap - and then fetches only the objects which are new or whose etag has changed; objects missing from
+ * the current list are reported as deleted.
+ * Changes not affecting the object's etag, as group memberships, are not detected.
+ * Once a sync starts from a token, the caller will never go back to older tokens, so their snapshots are removed.
+ */
+public class GoogleAppsSync {
+
+    private static final Log LOG = Log.getLog(GoogleAppsSync.class);
+
+    /**
+     * Changed objects are fetched in batches of this size, so that an early stop from the handler wastes little.
+     */
+    private static final int FETCH_BATCH_SIZE = 100;
+
+    private static final AtomicLong LAST_TOKEN = new AtomicLong();
+
+    private static String nextTokenValue() {
+        // unique and increasing, even when two snapshots are taken within the same millisecond
+        return String.valueOf(LAST_TOKEN.accumulateAndGet(
+                System.currentTimeMillis(), (prev, now) -> Math.max(prev + 1, now)));
+    }
+
+    private final GoogleAppsConfiguration configuration;
+
+    private final ObjectClass objectClass;
+
+    public GoogleAppsSync(final GoogleAppsConfiguration configuration, final ObjectClass objectClass) {
+        if (!ObjectClass.ACCOUNT.equals(objectClass) && !ObjectClass.GROUP.equals(objectClass)) {
+            throw new UnsupportedOperationException("Sync of type "
+                    + objectClass.getObjectClassValue() + " is not supported");
+        }
+
+        this.configuration = configuration;
+        this.objectClass = objectClass;
+    }
+
+    /**
+     * Passes deltas to the handler one step behind, so that the last delta actually sent - which is only known
+     * once all changed objects were fetched - carries the new token, and all others the resume token.
+     */
+    private static final class Deltas {
+
+        private final SyncResultsHandler handler;
+
+        private final SyncToken resumeToken;
+
+        private SyncDeltaBuilder held;
+
+        private boolean proceed = true;
+
+        private boolean resumeTokenSent = false;
+
+        Deltas(final SyncResultsHandler handler, final SyncToken resumeToken) {
+            this.handler = handler;
+            this.resumeToken = resumeToken;
+        }
+
+        void add(final SyncDeltaBuilder delta) {
+            if (!proceed) {
+                return;
+            }
+            if (null != held) {
+                proceed = handler.handle(held.setToken(resumeToken).build());
+                resumeTokenSent = true;
+            }
+            held = delta;
+        }
+
+        /**
+         * Sends the last delta, if any, with the given token.
+         *
+         * @param newToken token of the snapshot just taken
+         * @return whether the given token was sent
+         */
+        boolean flush(final SyncToken newToken) {
+            if (!proceed || null == held) {
+                return false;
+            }
+            proceed = handler.handle(held.setToken(newToken).build());
+            held = null;
+            return true;
+        }
+    }
+
+    /**
+     * Snapshot keys are scoped by domain as well, as different resources may share the same store directory.
+     *
+     * @param tokenValue sync token value
+     * @return snapshot key
+     */
+    private String key(final String tokenValue) {
+        return configuration.getDomain() + '_' + objectClass.getObjectClassValue() + '_' + tokenValue;
+    }
+
+    private SyncToken save(final Map<String, String> snapshot) {
+        String tokenValue = nextTokenValue();
+        configuration.getSyncTokenStore().save(key(tokenValue), snapshot);
+        return new SyncToken(tokenValue);
+    }
+
+    private void remove(final SyncToken token) {
+        configuration.getSyncTokenStore().remove(key(token.getValue().toString()));
+    }
+
+    /**
+     * Removes the snapshots of this domain and object class older than the given token.
+     *
+     * @param tokenValue sync token value
+     */
+    private void prune(final String tokenValue) {
+        long token;
+        try {
+            token = Long.parseLong(tokenValue);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        String prefix = key("");
+        configuration.getSyncTokenStore().keys().stream().
+                filter(key -> key.startsWith(prefix)).
+                filter(key -> {
+                    try {
+                        return Long.parseLong(key.substring(prefix.length())) < token;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }).
+                forEach(key -> {
+                    LOG.ok("Removing snapshot {0}, older than sync token {1}", key, tokenValue);
+                    configuration.getSyncTokenStore().remove(key);
+                });
+    }
+
+    /**
+     * Lists id and etag of all objects of the current object class.
+     *
+     * @return object id to etag
+     */
+    private Map<String, String> snapshot() {
+        Map<String, String> snapshot = new HashMap<>();
+        try {
+            if (ObjectClass.ACCOUNT.equals(objectClass)) {
+                Directory.Users.List request = configuration.getDirectory().users().list().
+                        setCustomer(GoogleAppsUtil.MY_CUSTOMER_ID).
+                        setMaxResults(500).
+                        setFields(FieldMask.page("users", GoogleAppsUtil.ID_ETAG));
+                String nextPageToken;
+                do {
+                    nextPageToken = execute(request, new RequestResultHandler<Directory.Users.List, Users, String>() {
+
+                        @Override
+                        public String handleResult(final Directory.Users.List request, final Users value) {
+                            if (null != value.getUsers()) {
+                                value.getUsers().forEach(user -> snapshot.put(user.getId(), user.getEtag()));
+                            }
+                            return value.getNextPageToken();
+                        }
+                    });
+                    request.setPageToken(nextPageToken);
+                } while (StringUtil.isNotBlank(nextPageToken));
+            } else {
+                Directory.Groups.List request = configuration.getDirectory().groups().list().
+                        setCustomer(GoogleAppsUtil.MY_CUSTOMER_ID).
+                        setMaxResults(200).
+                        setFields(FieldMask.page("groups", GoogleAppsUtil.ID_ETAG));
+                String nextPageToken;
+                do {
+                    nextPageToken = execute(request, new RequestResultHandler<Directory.Groups.List, Groups, String>() {
+
+                        @Override
+                        public String handleResult(final Directory.Groups.List request, final Groups value) {
+                            if (null != value.getGroups()) {
+                                value.getGroups().forEach(group -> snapshot.put(group.getId(), group.getEtag()));
+                            }
+                            return value.getNextPageToken();
+                        }
+                    });
+                    request.setPageToken(nextPageToken);
+                } while (StringUtil.isNotBlank(nextPageToken));
+            }
+        } catch (IOException e) {
+            LOG.warn(e, "Failed to initialize {0}#List", objectClass.getObjectClassValue());
+            throw ConnectorException.wrap(e);
+        }
+        return snapshot;
+    }
+
+    public SyncToken getLatestSyncToken() {
+        return save(snapshot());
+    }
+
+    /**
+     * Loads the snapshot for the given token, if available.
+     *
+     * @param token sync token
+     * @return object id to etag; empty if the token is not set, or no snapshot is available for it
+     */
+    private Map<String, String> baseline(final SyncToken token) {
+        if (null == token || null == token.getValue()) {
+            return new HashMap<>();
+        }
+
+        // caller has persisted the given token, older ones will not be used any more
+        prune(token.getValue().toString());
+
+        Map<String, String> baseline = configuration.getSyncTokenStore().load(key(token.getValue().toString()));
+        if (null == baseline) {
+            LOG.warn("No snapshot available for sync token {0}, reporting all objects", token.getValue());
+            return new HashMap<>();
+        }
+        return baseline;
+    }
+
+    public void sync(final SyncToken token, final SyncResultsHandler handler, final OperationOptions options) {
+        Map<String, String> baseline = baseline(token);
+        Map<String, String> current = snapshot();
+
+        List<String> changed = new ArrayList<>();
+        current.forEach((id, etag) -> {
+            if (!etag.equals(baseline.get(id))) {
+                changed.add(id);
+            }
+        });
+        List<String> deleted = new ArrayList<>();
+        baseline.keySet().stream().filter(id -> !current.containsKey(id)).forEach(deleted::add);
+        LOG.ok("Sync {0} from {1}: {2} created or updated, {3} deleted",
+                objectClass.getObjectClassValue(), token, changed.size(), deleted.size());
+
+        // all deltas but the last carry the original token: should the caller stop in the middle, next sync
+        // will report again the changes from the original snapshot, rather than missing some of them; on first
+        // sync, the original snapshot is an empty one
+        boolean firstSync = null == token || null == token.getValue();
+        SyncToken resumeToken = firstSync ? save(new HashMap<>()) : token;
+        SyncToken newToken = save(current);
+
+        Deltas deltas = new Deltas(handler, resumeToken);
+        boolean newTokenSent = false;
+        try {
+            for (int i = 0; i < deleted.size() && deltas.proceed; i++) {
+                deltas.add(new SyncDeltaBuilder().
+                        setDeltaType(SyncDeltaType.DELETE).
+                        setObjectClass(objectClass).
+                        setUid(new Uid(deleted.get(i))));
+            }
+
+            Set<String> attributesToGet = GoogleAppsSearch.getAttributesToGet(objectClass, options);
+            AttributeProjection<User> userProjection = UserHandler.projection(attributesToGet);
+            AttributeProjection<Group> groupProjection = GroupHandler.projection(attributesToGet);
+            GoogleApiBatch batch = new GoogleApiBatch();
+            for (int i = 0; i < changed.size() && deltas.proceed; i += FETCH_BATCH_SIZE) {
+                for (String id : changed.subList(i, Math.min(i + FETCH_BATCH_SIZE, changed.size()))) {
+                    queueGet(batch, id, userProjection, groupProjection, options, object -> deltas.add(
+                            new SyncDeltaBuilder().
+                                    setDeltaType(SyncDeltaType.CREATE_OR_UPDATE).
+                                    setObject(object)));
+                }
+                batch.execute();
+            }
+
+            newTokenSent = deltas.flush(newToken);
+            if (deltas.proceed && handler instanceof SyncTokenResultsHandler) {
+                ((SyncTokenResultsHandler) handler).handleResult(newToken);
+                newTokenSent = true;
+            }
+        } finally {
+            // snapshots whose token never reached the caller cannot be synced from
+            if (!newTokenSent) {
+                remove(newToken);
+            }
+            if (firstSync && !deltas.resumeTokenSent) {
+                remove(resumeToken);
+            }
+        }
+    }
+
+    private void queueGet(
+            final GoogleApiBatch batch,
+            final String id,
+            final AttributeProjection<User> userProjection,
+            final AttributeProjection<Group> groupProjection,
+            final OperationOptions options,
+            final Consumer<ConnectorObject> consumer) {
+
+        try {
+            if (ObjectClass.ACCOUNT.equals(objectClass)) {
+                Directory.Users.Get request = configuration.getDirectory().users().get(id);
+                request.setFields(FieldMask.users(configuration, options));
+                request.setProjection(configuration.getProjection());
+
+                batch.queue(request, new RequestResultHandler<Directory.Users.Get, User, Void>() {
+
+                    @Override
+                    public Void handleResult(final Directory.Users.Get request, final User user) {
+                        consumer.accept(UserHandler.fromUser(configuration, user, userProjection,
+                                userKey -> GroupHandler.listGroups(
+                                        configuration.getDirectory().groups(), userKey, configuration.getDomain())));
+                        return null;
+                    }
+
+                    @Override
+                    public Void handleNotFound(final IOException e) {
+                        // removed in the meantime, will be reported by next sync
+                        return null;
+                    }
+                });
+            } else {
+                Directory.Groups.Get request = configuration.getDirectory().groups().get(id);
+                request.setFields(FieldMask.groups(configuration, options));
+
+                batch.queue(request, new RequestResultHandler<Directory.Groups.Get, Group, Void>() {
+
+                    @Override
+                    public Void handleResult(final Directory.Groups.Get request, final Group group) {
+                        consumer.accept(GroupHandler.fromGroup(
+                                group, groupProjection, configuration.getDirectory().members()));
+                        return null;
+                    }
+
+                    @Override
+                    public Void handleNotFound(final IOException e) {
+                        // removed in the meantime, will be reported by next sync
+                        return null;
+                    }
+                });
+            }
+        } catch (IOException e) {
+            LOG.warn(e, "Failed to initialize {0}#Get", objectClass.getObjectClassValue());
+            throw ConnectorException.wrap(e);
+        }
+    }
+}
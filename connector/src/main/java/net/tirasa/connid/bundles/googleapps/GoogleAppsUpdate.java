@@ -26,6 +26,7 @@ import static net.tirasa.connid.bundles.googleapps.GoogleApiExecutor.execute;
 import static net.tirasa.connid.bundles.googleapps.GroupHandler.listGroups;
 import static net.tirasa.connid.bundles.googleapps.MembersHandler.listMembers;
 
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
 import com.google.api.services.directory.Directory;
 import com.google.api.services.directory.model.Alias;
 import com.google.api.services.directory.model.Group;
@@ -33,14 +34,16 @@ import com.google.api.services.directory.model.Member;
 import com.google.api.services.directory.model.OrgUnit;
 import com.google.api.services.directory.model.User;
 import com.google.api.services.licensing.Licensing;
+import com.google.api.services.licensing.model.Empty;
 import com.google.api.services.licensing.model.LicenseAssignment;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.regex.Matcher;
 import org.identityconnectors.common.CollectionUtil;
 import org.identityconnectors.common.StringUtil;
 import org.identityconnectors.common.logging.Log;
@@ -76,437 +79,456 @@ public class GoogleAppsUpdate {
         this.uid = uid;
     }
 
-    private Uid updateUser(final AttributesAccessor accessor) {
-        Uid uidAfterUpdate = uid;
+    /**
+     * When optimistic concurrency is enabled, makes the given write conditional to the revision of the given Uid:
+     * Google will reject it with 412 Precondition Failed if the object was modified meanwhile.
+     *
+     * @param request write request
+     * @return the same request
+     */
+    private <G extends AbstractGoogleJsonClientRequest<?>> G ifMatch(final G request) {
+        if (configuration.isOptimisticConcurrency() && StringUtil.isNotBlank(uid.getRevision())) {
+            request.getRequestHeaders().setIfMatch(uid.getRevision());
+        }
+        return request;
+    }
 
-        Directory.Users.Patch patch = UserHandler.updateUser(
-                configuration.getDirectory().users(),
-                uid.getUidValue(),
-                accessor,
-                configuration.getCustomSchemasJSON());
-        if (null != patch) {
-            uidAfterUpdate = execute(patch, new RequestResultHandler<Directory.Users.Patch, User, Uid>() {
+    private static void queueUserAliases(
+            final Directory.Users.Aliases service,
+            final String userKey,
+            final SetDiff diff,
+            final GoogleApiBatch additions,
+            final GoogleApiBatch removals) {
+
+        for (String alias : diff.getToAdd()) {
+            additions.queue(UserHandler.createUserAlias(service, userKey, alias),
+                    new RequestResultHandler<Directory.Users.Aliases.Insert, Alias, Object>() {
 
                 @Override
-                public Uid handleResult(final Directory.Users.Patch request, final User value) {
-                    LOG.ok("User is Updated:{0}", value.getId());
-                    return new Uid(value.getId(), value.getEtag());
+                public Object handleResult(final Directory.Users.Aliases.Insert insert, final Alias value) {
+                    return null;
+                }
+
+                @Override
+                public Object handleDuplicate(final IOException e) {
+                    return null;
                 }
             });
         }
+        for (String alias : diff.getToRemove()) {
+            removals.queue(UserHandler.deleteUserAlias(service, userKey, alias),
+                    new RequestResultHandler<Directory.Users.Aliases.Delete, Void, Object>() {
 
-        List<Object> aliases = accessor.findList(GoogleAppsUtil.ALIASES_ATTR);
-        if (null != aliases) {
-            Directory.Users.Aliases service = configuration.getDirectory().users().aliases();
-            Set<String> currentAliases = UserHandler.listAliases(service, uidAfterUpdate.getUidValue());
-
-            if (aliases.isEmpty()) {
-                // Remove all aliases
-                for (Object alias : currentAliases) {
-                    execute(UserHandler.deleteUserAlias(service, uidAfterUpdate.getUidValue(), (String) alias),
-                            new RequestResultHandler<Directory.Users.Aliases.Delete, Void, Object>() {
-
-                        @Override
-                        public Object handleResult(final Directory.Users.Aliases.Delete request, final Void value) {
-                            return null;
-                        }
-
-                        @Override
-                        public Object handleNotFound(final IOException e) {
-                            // It may be an indirect membership, not able to delete
-                            return null;
-                        }
-                    });
+                @Override
+                public Object handleResult(final Directory.Users.Aliases.Delete request, final Void v) {
+                    return null;
                 }
-            } else {
-                List<Directory.Users.Aliases.Insert> addAliases = new ArrayList<>();
-                Set<String> keepAliases = CollectionUtil.newCaseInsensitiveSet();
 
-                for (Object alias : aliases) {
-                    if (currentAliases.contains(alias.toString())) {
-                        keepAliases.add((String) alias);
-                    } else {
-                        addAliases.add(
-                                UserHandler.createUserAlias(service, uidAfterUpdate.getUidValue(), (String) alias));
-                    }
+                @Override
+                public Object handleNotFound(final IOException e) {
+                    return null;
                 }
+            });
+        }
+    }
 
-                // Add new alias
-                for (Directory.Users.Aliases.Insert insert : addAliases) {
-                    execute(insert, new RequestResultHandler<Directory.Users.Aliases.Insert, Alias, Object>() {
+    private static void queueGroupAliases(
+            final Directory.Groups.Aliases service,
+            final String groupKey,
+            final SetDiff diff,
+            final GoogleApiBatch additions,
+            final GoogleApiBatch removals) {
 
-                        @Override
-                        public Object handleResult(final Directory.Users.Aliases.Insert insert, final Alias value) {
-                            return null;
-                        }
+        for (String alias : diff.getToAdd()) {
+            additions.queue(GroupHandler.createGroupAlias(service, groupKey, alias),
+                    new RequestResultHandler<Directory.Groups.Aliases.Insert, Alias, Object>() {
 
-                        @Override
-                        public Object handleDuplicate(final IOException e) {
-                            return null;
-                        }
-                    });
+                @Override
+                public Object handleResult(final Directory.Groups.Aliases.Insert insert, final Alias value) {
+                    return null;
                 }
 
-                // Delete existing aliases
-                if (currentAliases.removeAll(keepAliases)) {
-                    for (Object alias : currentAliases) {
-                        execute(UserHandler.deleteUserAlias(service, (String) alias, uidAfterUpdate.getUidValue()),
-                                new RequestResultHandler<Directory.Users.Aliases.Delete, Void, Object>() {
+                @Override
+                public Object handleDuplicate(final IOException e) {
+                    return null;
+                }
+            });
+        }
+        for (String alias : diff.getToRemove()) {
+            removals.queue(GroupHandler.deleteGroupAlias(service, groupKey, alias),
+                    new RequestResultHandler<Directory.Groups.Aliases.Delete, Void, Object>() {
 
-                            @Override
-                            public Object handleResult(final Directory.Users.Aliases.Delete request, final Void value) {
-                                return null;
-                            }
+                @Override
+                public Object handleResult(final Directory.Groups.Aliases.Delete request, final Void v) {
+                    return null;
+                }
 
-                            @Override
-                            public Object handleNotFound(final IOException e) {
-                                return null;
-                            }
-                        });
-                    }
+                @Override
+                public Object handleNotFound(final IOException e) {
+                    return null;
                 }
-            }
+            });
         }
+    }
 
-        Attribute groups = accessor.find(PredefinedAttributes.GROUPS_NAME);
-        if (null != groups && null != groups.getValue()) {
-            Directory.Members service = configuration.getDirectory().members();
-            Set<String> currentGroups = listGroups(
-                    configuration.getDirectory().groups(), uidAfterUpdate.getUidValue(), configuration.getDomain());
+    /**
+     * Queues the membership changes of the given user.
+     *
+     * @param service members service
+     * @param userUid user
+     * @param diff group keys to add and to remove
+     * @param additions batch for insertions
+     * @param removals batch for deletions
+     */
+    private static void queueGroups(
+            final Directory.Members service,
+            final Uid userUid,
+            final SetDiff diff,
+            final GoogleApiBatch additions,
+            final GoogleApiBatch removals) {
+
+        for (String groupKey : diff.getToAdd()) {
+            additions.queue(MembersHandler.create(service, groupKey, userUid, null),
+                    new RequestResultHandler<Directory.Members.Insert, Member, Object>() {
 
-            if (groups.getValue().isEmpty()) {
-                // Remove all membership
-                for (String groupKey : currentGroups) {
-                    execute(MembersHandler.delete(service, groupKey, uidAfterUpdate.getUidValue()),
-                            new RequestResultHandler<Directory.Members.Delete, Void, Object>() {
+                @Override
+                public Object handleResult(final Directory.Members.Insert request, final Member value) {
+                    return null;
+                }
 
-                        @Override
-                        public Object handleResult(final Directory.Members.Delete request, final Void value) {
-                            return null;
-                        }
+                @Override
+                public Object handleDuplicate(final IOException e) {
+                    // Do nothing
+                    return null;
+                }
+            });
+        }
+        for (String groupKey : diff.getToRemove()) {
+            removals.queue(MembersHandler.delete(service, groupKey, userUid.getUidValue()),
+                    new RequestResultHandler<Directory.Members.Delete, Void, Object>() {
 
-                        @Override
-                        public Object handleNotFound(final IOException e) {
-                            // It may be an indirect membership, not able to delete
-                            return null;
-                        }
-                    });
+                @Override
+                public Object handleResult(final Directory.Members.Delete request, final Void value) {
+                    return null;
                 }
-            } else {
-                List<Directory.Members.Insert> addGroups = new ArrayList<>();
-                Set<String> keepGroups = CollectionUtil.newCaseInsensitiveSet();
-
-                for (Object member : groups.getValue()) {
-                    if (member instanceof String) {
-                        if (currentGroups.contains((String) member)) {
-                            keepGroups.add((String) member);
-                        } else {
-                            String email = accessor.getName().getNameValue();
-                            addGroups.add(MembersHandler.create(service, (String) member, email, null));
-                        }
-                    } else if (null != member) {
-                        // throw error/revert?
-                        throw new InvalidAttributeValueException("Attribute '__GROUPS__' must be a String list");
-                    }
+
+                @Override
+                public Object handleNotFound(final IOException e) {
+                    // It may be an indirect membership, not able to delete
+                    return null;
                 }
+            });
+        }
+    }
 
-                // Add new Member object
-                for (Directory.Members.Insert insert : addGroups) {
-                    execute(insert, new RequestResultHandler<Directory.Members.Insert, Member, Object>() {
+    /**
+     * Queues the membership changes of the given group.
+     *
+     * @param service members service
+     * @param groupKey group
+     * @param diff members to insert, patch and delete
+     * @param additions batch for insertions and role updates
+     * @param removals batch for deletions
+     */
+    private static void queueMembers(
+            final Directory.Members service,
+            final String groupKey,
+            final MembershipDiff diff,
+            final GoogleApiBatch additions,
+            final GoogleApiBatch removals) {
+
+        diff.getToInsert().forEach((email, role) -> additions.queue(
+                MembersHandler.create(service, groupKey, email, role),
+                new RequestResultHandler<Directory.Members.Insert, Member, Object>() {
+
+            @Override
+            public Object handleResult(final Directory.Members.Insert request, final Member value) {
+                return null;
+            }
 
-                        @Override
-                        public Object handleResult(final Directory.Members.Insert request, final Member value) {
-                            return null;
-                        }
+            @Override
+            public Object handleDuplicate(final IOException e) {
+                // Do nothing
+                return null;
+            }
+        }));
+        diff.getToPatch().forEach((email, role) -> additions.queue(
+                MembersHandler.update(service, groupKey, email, role),
+                new RequestResultHandler<Directory.Members.Patch, Member, Object>() {
+
+            @Override
+            public Object handleResult(final Directory.Members.Patch request, final Member value) {
+                return null;
+            }
+        }));
+        for (String email : diff.getToDelete()) {
+            removals.queue(MembersHandler.delete(service, groupKey, email),
+                    new RequestResultHandler<Directory.Members.Delete, Void, Object>() {
 
-                        @Override
-                        public Object handleDuplicate(final IOException e) {
-                            // Do nothing
-                            return null;
-                        }
-                    });
+                @Override
+                public Object handleResult(final Directory.Members.Delete request, final Void value) {
+                    return null;
                 }
 
-                // Delete existing Member object
-                if (currentGroups.removeAll(keepGroups)) {
-                    for (String groupKey : currentGroups) {
-                        execute(MembersHandler.delete(service, groupKey, uidAfterUpdate.getUidValue()),
-                                new RequestResultHandler<Directory.Members.Delete, Void, Object>() {
-
-                            @Override
-                            public Object handleResult(final Directory.Members.Delete request, final Void value) {
-                                return null;
-                            }
-
-                            @Override
-                            public Object handleNotFound(final IOException e) {
-                                // It may be an indirect membership, not able to delete
-                                return null;
-                            }
-                        });
-                    }
+                @Override
+                public Object handleNotFound(final IOException e) {
+                    // Do nothing
+                    return null;
                 }
-            }
+            });
         }
+    }
 
-        // license management: if remove license param is true and __ENABLE__ is false perform delete license
-        // license read must be performed with the user primaryEmail, userId is not allowed
-        if (configuration.getRemoveLicenseOnDisable()
-                && accessor.hasAttribute(OperationalAttributes.ENABLE_NAME)
-                && !accessor.findBoolean(OperationalAttributes.ENABLE_NAME)
-                && StringUtil.isNotBlank(accessor.findString(GoogleAppsUtil.PRIMARY_EMAIL_ATTR))) {
+    private Uid reloadUser(final String userKey) {
+        try {
+            return execute(configuration.getDirectory().users().get(userKey).setFields(GoogleAppsUtil.ID_ETAG),
+                    new RequestResultHandler<Directory.Users.Get, User, Uid>() {
 
-            for (String skuId : configuration.getSkuIds()) {
-                // 1. retrieve user license
-                try {
-                    // use email as key
-                    Licensing.LicenseAssignments.Get request =
-                            configuration.getLicensing().licenseAssignments().get(
-                                    configuration.getProductId(),
-                                    skuId,
-                                    accessor.findString(GoogleAppsUtil.PRIMARY_EMAIL_ATTR));
-                    execute(request,
-                            new RequestResultHandler<Licensing.LicenseAssignments.Get, LicenseAssignment, Boolean>() {
+                @Override
+                public Uid handleResult(final Directory.Users.Get request, final User value) {
+                    return new Uid(value.getId(), value.getEtag());
+                }
+            });
+        } catch (IOException e) {
+            LOG.error(e, "Error reading User {0}", userKey);
+            throw ConnectorException.wrap(e);
+        }
+    }
 
-                        @Override
-                        public Boolean handleResult(
-                                final Licensing.LicenseAssignments.Get request,
-                                final LicenseAssignment value) {
-
-                            try {
-                                // 2. remove license
-                                new GoogleAppsDelete(
-                                        configuration,
-                                        GoogleAppsUtil.LICENSE_ASSIGNMENT,
-                                        new Uid(GoogleAppsUtil.generateLicenseId(
-                                                value.getProductId(),
-                                                value.getSkuId(),
-                                                value.getUserId()))).execute();
-                            } catch (Exception e) {
-                                LOG.error(e, "Failed to delete license for user {0}", value.getUserId());
-                                throw ConnectorException.wrap(e);
-                            }
-                            return true;
-                        }
+    private Uid reloadGroup(final String groupKey) {
+        try {
+            return execute(configuration.getDirectory().groups().get(groupKey).setFields(GoogleAppsUtil.ID_ETAG),
+                    new RequestResultHandler<Directory.Groups.Get, Group, Uid>() {
 
-                        @Override
-                        public Boolean handleNotFound(final IOException e) {
-                            // Do nothing if not found
-                            return true;
-                        }
-                    });
-                } catch (IOException e) {
-                    LOG.error(e, "Unable to find license for {0}-{1}-{2}", configuration.getProductId(), skuId,
-                            accessor.findString(GoogleAppsUtil.PRIMARY_EMAIL_ATTR));
+                @Override
+                public Uid handleResult(final Directory.Groups.Get request, final Group value) {
+                    return new Uid(value.getId(), value.getEtag());
                 }
-            }
+            });
+        } catch (IOException e) {
+            LOG.error(e, "Error reading Group {0}", groupKey);
+            throw ConnectorException.wrap(e);
         }
-
-        return uidAfterUpdate;
     }
 
-    private Uid updateGroup(final AttributesAccessor accessor) {
+    private Uid updateUser(final AttributesAccessor accessor) {
         Uid uidAfterUpdate = uid;
 
-        Directory.Groups.Patch patch = GroupHandler.update(
-                configuration.getDirectory().groups(), uid.getUidValue(), accessor);
+        Directory.Users.Patch patch = UserHandler.updateUser(
+                configuration.getDirectory().users(),
+                uid.getUidValue(),
+                accessor,
+                configuration.getCustomSchemas());
+        List<Object> aliases = accessor.findList(GoogleAppsUtil.ALIASES_ATTR);
+
+        User patched = null;
         if (null != patch) {
-            uidAfterUpdate = execute(patch, new RequestResultHandler<Directory.Groups.Patch, Group, Uid>() {
+            if (null != aliases) {
+                // read current aliases from the patch response rather than listing them
+                patch.setFields(patch.getFields() + "," + GoogleAppsUtil.ALIASES_ATTR);
+            }
+            patched = execute(ifMatch(patch), new RequestResultHandler<Directory.Users.Patch, User, User>() {
 
                 @Override
-                public Uid handleResult(final Directory.Groups.Patch request, final Group value) {
-                    LOG.ok("Group is Updated:{0}", value.getId());
-                    return new Uid(value.getId(), value.getEtag());
+                public User handleResult(final Directory.Users.Patch request, final User value) {
+                    LOG.ok("User is Updated:{0}", value.getId());
+                    return value;
                 }
             });
+            uidAfterUpdate = new Uid(patched.getId(), patched.getEtag());
         }
 
-        Attribute members = accessor.find(GoogleAppsUtil.MEMBERS_ATTR);
-        if (null != members && null != members.getValue()) {
-            Directory.Members service = configuration.getDirectory().members();
-            if (members.getValue().isEmpty()) {
-                // Remove all membership
-                for (Map<String, String> member : listMembers(service, uidAfterUpdate.getUidValue(), null)) {
-                    execute(MembersHandler.delete(
-                            service, uidAfterUpdate.getUidValue(), member.get(GoogleAppsUtil.EMAIL_ATTR)),
-                            new RequestResultHandler<Directory.Members.Delete, Void, Object>() {
-
-                        @Override
-                        public Object handleResult(final Directory.Members.Delete request, final Void value) {
-                            return null;
-                        }
+        GoogleApiBatch batch = new GoogleApiBatch();
 
-                        @Override
-                        public Object handleNotFound(final IOException e) {
-                            // Do nothing
-                            return null;
-                        }
-                    });
-                }
-            } else {
-                List<Map<String, String>> activeMembership = listMembers(service, uidAfterUpdate.getUidValue(), null);
+        if (null != aliases) {
+            Directory.Users.Aliases service = configuration.getDirectory().users().aliases();
+            SetDiff diff = SetDiff.of(
+                    null == patched
+                            ? UserHandler.listAliases(service, uidAfterUpdate.getUidValue())
+                            : CollectionUtil.nullAsEmpty(patched.getAliases()),
+                    aliases);
+            LOG.ok("Aliases to update for {0}: {1}", uidAfterUpdate.getUidValue(), diff);
+
+            queueUserAliases(service, uidAfterUpdate.getUidValue(), diff, batch, batch);
+        }
 
-                List<Directory.Members.Insert> addMembership = new ArrayList<>();
-                List<Directory.Members.Patch> patchMembership = new ArrayList<>();
+        Attribute groups = accessor.find(PredefinedAttributes.GROUPS_NAME);
+        if (null != groups && null != groups.getValue()) {
+            if (groups.getValue().stream().anyMatch(group -> null != group && !(group instanceof String))) {
+                throw new InvalidAttributeValueException("Attribute '__GROUPS__' must be a String list");
+            }
 
-                for (Object member : members.getValue()) {
-                    if (member instanceof Map) {
-                        String email = (String) ((Map) member).get(GoogleAppsUtil.EMAIL_ATTR);
-                        if (null == email) {
-                            continue;
-                        }
-                        String role = (String) ((Map) member).get(GoogleAppsUtil.ROLE_ATTR);
-                        if (null == role) {
-                            role = "MEMBER";
-                        }
+            SetDiff diff = SetDiff.of(
+                    listGroups(configuration.getDirectory().groups(),
+                            uidAfterUpdate.getUidValue(), configuration.getDomain()),
+                    groups.getValue());
+            LOG.ok("Groups to update for {0}: {1}", uidAfterUpdate.getUidValue(), diff);
 
-                        boolean notMember = true;
-                        for (Map<String, String> a : activeMembership) {
-                            // How to handle ROLE update?
-                            // OWNER -> MANAGER -> MEMBER
-                            if (email.equalsIgnoreCase(a.get(GoogleAppsUtil.EMAIL_ATTR))) {
-                                a.put("keep", null);
-                                if (!role.equalsIgnoreCase(a.get(GoogleAppsUtil.ROLE_ATTR))) {
-                                    patchMembership.add(MembersHandler.update(
-                                            service, uidAfterUpdate.getUidValue(), email, role));
-                                }
-                                notMember = false;
-                                break;
-                            }
-                        }
-                        if (notMember) {
-                            addMembership.add(MembersHandler.create(
-                                    service, uidAfterUpdate.getUidValue(), email, role));
-                        }
-                    } else if (null != member) {
-                        // throw error/revert?
-                        throw new InvalidAttributeValueException(
-                                "Attribute 'members' must be a Map list");
-                    }
-                }
+            queueGroups(configuration.getDirectory().members(), uidAfterUpdate, diff, batch, batch);
+        }
 
-                // Add new Member object
-                for (Directory.Members.Insert insert : addMembership) {
-                    execute(insert, new RequestResultHandler<Directory.Members.Insert, Member, Object>() {
+        if (!batch.isEmpty()) {
+            batch.execute();
 
-                        @Override
-                        public Object handleResult(final Directory.Members.Insert request, final Member value) {
-                            return null;
-                        }
+            // alias and membership changes alter the etag returned by patch, if any
+            uidAfterUpdate = reloadUser(uidAfterUpdate.getUidValue());
+        }
 
-                        @Override
-                        public Object handleDuplicate(final IOException e) {
-                            // Do nothing
-                            return null;
-                        }
-                    });
-                }
+        // license management: if remove license param is true and __ENABLE__ is false perform delete license
+        // license read must be performed with the user primaryEmail, userId is not allowed
+        if (configuration.getRemoveLicenseOnDisable()
+                && accessor.hasAttribute(OperationalAttributes.ENABLE_NAME)
+                && !accessor.findBoolean(OperationalAttributes.ENABLE_NAME)
+                && StringUtil.isNotBlank(accessor.findString(GoogleAppsUtil.PRIMARY_EMAIL_ATTR))) {
 
-                // Update existing Member object
-                for (Directory.Members.Patch request : patchMembership) {
-                    execute(request, new RequestResultHandler<Directory.Members.Patch, Member, Object>() {
+            Licensing.LicenseAssignments service = configuration.getLicensing().licenseAssignments();
+            String primaryEmail = accessor.findString(GoogleAppsUtil.PRIMARY_EMAIL_ATTR);
+            LicenseInventory inventory = configuration.getLicenseInventory();
 
-                        @Override
-                        public Object handleResult(final Directory.Members.Patch request, final Member value) {
-                            return null;
-                        }
-                    });
+            GoogleApiBatch deletions = new GoogleApiBatch();
+            if (inventory.isEnabled()) {
+                // 1. SKUs actually held by user, from inventory
+                for (String skuId : inventory.getSkus(configuration, primaryEmail)) {
+                    queueLicenseDeletion(service, configuration.getProductId(), skuId, primaryEmail, deletions);
                 }
-
-                // Delete existing Member object
-                for (Map<String, String> am : activeMembership) {
-                    if (!am.containsKey("keep")) {
-                        execute(MembersHandler.delete(
-                                service, uidAfterUpdate.getUidValue(), am.get(GoogleAppsUtil.EMAIL_ATTR)),
-                                new RequestResultHandler<Directory.Members.Delete, Void, Object>() {
+            } else {
+                // 1. retrieve user licenses, one batch for all SKUs
+                for (String skuId : configuration.getSkuIds()) {
+                    try {
+                        // use email as key
+                        batch.queue(service.get(configuration.getProductId(), skuId, primaryEmail).
+                                setFields(GoogleAppsUtil.PRODUCT_ID_SKU_ID_USER_ID),
+                                new RequestResultHandler<
+                                        Licensing.LicenseAssignments.Get, LicenseAssignment, Boolean>() {
 
                             @Override
-                            public Object handleResult(final Directory.Members.Delete request, final Void value) {
-                                return null;
+                            public Boolean handleResult(
+                                    final Licensing.LicenseAssignments.Get request,
+                                    final LicenseAssignment value) {
+
+                                queueLicenseDeletion(
+                                        service, value.getProductId(), value.getSkuId(), value.getUserId(), deletions);
+                                return true;
                             }
 
                             @Override
-                            public Object handleNotFound(final IOException e) {
-                                // Do nothing
-                                return null;
+                            public Boolean handleNotFound(final IOException e) {
+                                // Do nothing if not found
+                                return true;
                             }
                         });
+                    } catch (IOException e) {
+                        LOG.error(e, "Unable to find license for {0}-{1}-{2}",
+                                configuration.getProductId(), skuId, primaryEmail);
                     }
                 }
+                batch.execute();
             }
+
+            // 2. remove licenses, one batch for all SKUs
+            deletions.execute(configuration.getExecutorService(), configuration.getMaxConcurrentRequests());
         }
 
-        List<Object> aliases = accessor.findList(GoogleAppsUtil.ALIASES_ATTR);
-        if (null != aliases) {
-            Directory.Groups.Aliases service = configuration.getDirectory().groups().aliases();
-            Set<String> currentAliases = GroupHandler.listAliases(service, uidAfterUpdate.getUidValue());
+        return uidAfterUpdate;
+    }
 
-            if (aliases.isEmpty()) {
-                // Remove all aliases
-                for (Object alias : currentAliases) {
-                    execute(GroupHandler.deleteGroupAlias(service, uidAfterUpdate.getUidValue(), (String) alias),
-                            new RequestResultHandler<Directory.Groups.Aliases.Delete, Void, Object>() {
+    private void queueLicenseDeletion(
+            final Licensing.LicenseAssignments service,
+            final String productId,
+            final String skuId,
+            final String userId,
+            final GoogleApiBatch deletions) {
 
-                        @Override
-                        public Object handleResult(final Directory.Groups.Aliases.Delete request, final Void value) {
-                            return null;
-                        }
+        try {
+            deletions.queue(service.delete(productId, skuId, userId),
+                    new RequestResultHandler<Licensing.LicenseAssignments.Delete, Empty, Void>() {
 
-                        @Override
-                        public Object handleNotFound(final IOException e) {
-                            // It may be an indirect membership, not able to delete
-                            return null;
-                        }
-                    });
+                @Override
+                public Void handleResult(final Licensing.LicenseAssignments.Delete request, final Empty value) {
+                    configuration.getLicenseInventory().remove(userId, skuId);
+                    return null;
                 }
-            } else {
-                List<Directory.Groups.Aliases.Insert> addAliases = new ArrayList<>();
-                Set<String> keepAliases = CollectionUtil.newCaseInsensitiveSet();
 
-                for (Object alias : aliases) {
-                    if (currentAliases.contains(alias.toString())) {
-                        keepAliases.add((String) alias);
-                    } else {
-                        addAliases.add(
-                                GroupHandler.createGroupAlias(service, uidAfterUpdate.getUidValue(), (String) alias));
-                    }
+                @Override
+                public Void handleNotFound(final IOException e) {
+                    // already removed
+                    configuration.getLicenseInventory().remove(userId, skuId);
+                    return null;
                 }
+            });
+        } catch (IOException e) {
+            LOG.error(e, "Failed to delete license for user {0}", userId);
+            throw ConnectorException.wrap(e);
+        }
+    }
 
-                // Add new alias
-                for (Directory.Groups.Aliases.Insert insert : addAliases) {
-                    execute(insert, new RequestResultHandler<Directory.Groups.Aliases.Insert, Alias, Object>() {
+    private Uid updateGroup(final AttributesAccessor accessor) {
+        Uid uidAfterUpdate = uid;
 
-                        @Override
-                        public Object handleResult(final Directory.Groups.Aliases.Insert insert, final Alias value) {
-                            return null;
-                        }
+        Directory.Groups.Patch patch = GroupHandler.update(
+                configuration.getDirectory().groups(), uid.getUidValue(), accessor);
+        List<Object> aliases = accessor.findList(GoogleAppsUtil.ALIASES_ATTR);
 
-                        @Override
-                        public Object handleDuplicate(final IOException e) {
-                            return null;
-                        }
-                    });
-                }
+        Group patched = null;
+        if (null != patch) {
+            if (null != aliases) {
+                // read current aliases from the patch response rather than listing them
+                patch.setFields(patch.getFields() + "," + GoogleAppsUtil.ALIASES_ATTR);
+            }
+            patched = execute(ifMatch(patch), new RequestResultHandler<Directory.Groups.Patch, Group, Group>() {
 
-                // Delete existing aliases
-                if (currentAliases.removeAll(keepAliases)) {
-                    for (Object alias : currentAliases) {
-                        execute(GroupHandler.deleteGroupAlias(service, (String) alias, uidAfterUpdate.getUidValue()),
-                                new RequestResultHandler<Directory.Groups.Aliases.Delete, Void, Object>() {
+                @Override
+                public Group handleResult(final Directory.Groups.Patch request, final Group value) {
+                    LOG.ok("Group is Updated:{0}", value.getId());
+                    return value;
+                }
+            });
+            uidAfterUpdate = new Uid(patched.getId(), patched.getEtag());
+        }
 
-                            @Override
-                            public Object handleResult(final Directory.Groups.Aliases.Delete request, final Void v) {
-                                return null;
-                            }
+        GoogleApiBatch batch = new GoogleApiBatch();
 
-                            @Override
-                            public Object handleNotFound(final IOException e) {
-                                return null;
-                            }
-                        });
+        Attribute members = accessor.find(GoogleAppsUtil.MEMBERS_ATTR);
+        if (null != members && null != members.getValue()) {
+            Map<String, String> desired = new LinkedHashMap<>();
+            for (Object member : members.getValue()) {
+                if (member instanceof Map) {
+                    String email = (String) ((Map<?, ?>) member).get(GoogleAppsUtil.EMAIL_ATTR);
+                    if (null != email) {
+                        String role = (String) ((Map<?, ?>) member).get(GoogleAppsUtil.ROLE_ATTR);
+                        desired.put(email, null == role ? "MEMBER" : role);
                     }
+                } else if (null != member) {
+                    // throw error/revert?
+                    throw new InvalidAttributeValueException("Attribute 'members' must be a Map list");
                 }
             }
+
+            Directory.Members service = configuration.getDirectory().members();
+            MembershipDiff diff = MembershipDiff.of(
+                    listMembers(service, uidAfterUpdate.getUidValue(), null), desired);
+            LOG.ok("Members to update for {0}: {1}", uidAfterUpdate.getUidValue(), diff);
+
+            queueMembers(service, uidAfterUpdate.getUidValue(), diff, batch, batch);
+        }
+
+        if (null != aliases) {
+            Directory.Groups.Aliases service = configuration.getDirectory().groups().aliases();
+            SetDiff diff = SetDiff.of(
+                    null == patched
+                            ? GroupHandler.listAliases(service, uidAfterUpdate.getUidValue())
+                            : CollectionUtil.nullAsEmpty(patched.getAliases()),
+                    aliases);
+            LOG.ok("Aliases to update for {0}: {1}", uidAfterUpdate.getUidValue(), diff);
+
+            queueGroupAliases(service, uidAfterUpdate.getUidValue(), diff, batch, batch);
+        }
+
+        if (!batch.isEmpty()) {
+            batch.execute(configuration.getExecutorService(), configuration.getMaxConcurrentRequests());
+
+            // alias and membership changes alter the etag returned by patch, if any
+            uidAfterUpdate = reloadGroup(uidAfterUpdate.getUidValue());
         }
 
         return uidAfterUpdate;
@@ -549,6 +571,7 @@ public class GoogleAppsUpdate {
                     @Override
                     public Uid handleResult(final Directory.Orgunits.Patch request, final OrgUnit value) {
                         LOG.ok("OrgUnit is updated:{0}", value.getName());
+                        configuration.getOrgUnitTreeCache().invalidate();
                         return OrgunitsHandler.generateUid(value);
                     }
                 });
@@ -567,6 +590,11 @@ public class GoogleAppsUpdate {
 
                         LOG.ok("LicenseAssignment is Updated:{0}/{1}/{2}",
                                 value.getProductId(), value.getSkuId(), value.getUserId());
+                        Matcher name = LicenseAssignmentsHandler.LICENSE_NAME_PATTERN.matcher(uid.getUidValue());
+                        if (name.matches()) {
+                            configuration.getLicenseInventory().remove(value.getUserId(), name.group(2));
+                        }
+                        configuration.getLicenseInventory().add(value.getUserId(), value.getSkuId());
                         return LicenseAssignmentsHandler.generateUid(value);
                     }
                 });
@@ -583,9 +611,9 @@ public class GoogleAppsUpdate {
                 configuration.getDirectory().users(),
                 uid.getUidValue(),
                 modifications,
-                configuration.getCustomSchemasJSON());
+                configuration.getCustomSchemas());
         if (null != update) {
-            execute(update, new RequestResultHandler<Directory.Users.Update, User, Uid>() {
+            execute(ifMatch(update), new RequestResultHandler<Directory.Users.Update, User, Uid>() {
 
                 @Override
                 public Uid handleResult(final Directory.Users.Update request, final User value) {
@@ -595,140 +623,45 @@ public class GoogleAppsUpdate {
             });
         }
 
-        Set<String> groupsToAdd = new HashSet<>();
-        Set<String> groupsToRemove = new HashSet<>();
+        // removals are sent first, as Google does not guarantee the execution order of batched calls
+        GoogleApiBatch removals = new GoogleApiBatch();
+        GoogleApiBatch additions = new GoogleApiBatch();
+
         Optional.ofNullable(AttributeDeltaUtil.find(PredefinedAttributes.GROUPS_NAME, modifications)).
                 ifPresent(groups -> {
-                    if (CollectionUtil.isEmpty(groups.getValuesToReplace())) {
-                        if (!CollectionUtil.isEmpty(groups.getValuesToAdd())) {
-                            for (Object group : CollectionUtil.nullAsEmpty(groups.getValuesToAdd())) {
-                                groupsToAdd.add(group.toString());
-                            }
-                        }
-
-                        if (!CollectionUtil.isEmpty(groups.getValuesToRemove())) {
-                            for (Object group : CollectionUtil.nullAsEmpty(groups.getValuesToRemove())) {
-                                groupsToRemove.add(group.toString());
-                            }
-                        }
-                    } else {
-                        for (String groupKey : listGroups(
-                                configuration.getDirectory().groups(),
-                                uid.getUidValue(),
-                                configuration.getDomain())) {
-
-                            groupsToRemove.add(groupKey);
-                        }
-
-                        if (!CollectionUtil.isEmpty(groups.getValuesToAdd())) {
-                            for (Object group : CollectionUtil.nullAsEmpty(groups.getValuesToReplace())) {
-                                groupsToAdd.add(group.toString());
-                            }
-                        }
-                    }
+                    SetDiff diff = null == groups.getValuesToReplace()
+                            ? SetDiff.explicit(groups.getValuesToAdd(), groups.getValuesToRemove())
+                            : SetDiff.of(
+                                    listGroups(configuration.getDirectory().groups(),
+                                            uid.getUidValue(), configuration.getDomain()),
+                                    groups.getValuesToReplace());
+                    LOG.ok("Groups to update for {0}: {1}", uid.getUidValue(), diff);
+
+                    queueGroups(configuration.getDirectory().members(), uid, diff, additions, removals);
                 });
-        Directory.Members membersService = configuration.getDirectory().members();
-        // Delete existing Member object
-        for (String groupKey : groupsToRemove) {
-            execute(MembersHandler.delete(membersService, groupKey, uid.getUidValue()),
-                    new RequestResultHandler<Directory.Members.Delete, Void, Object>() {
-
-                @Override
-                public Object handleResult(final Directory.Members.Delete request, final Void value) {
-                    return null;
-                }
-
-                @Override
-                public Object handleNotFound(final IOException e) {
-                    // It may be an indirect membership, not able to delete
-                    return null;
-                }
-            });
-        }
-        // Add new Member object
-        for (String groupKey : groupsToAdd) {
-            execute(MembersHandler.create(membersService, groupKey, uid, null),
-                    new RequestResultHandler<Directory.Members.Insert, Member, Object>() {
-
-                @Override
-                public Object handleResult(final Directory.Members.Insert request, final Member value) {
-                    return null;
-                }
-
-                @Override
-                public Object handleDuplicate(final IOException e) {
-                    // Do nothing
-                    return null;
-                }
-            });
-        }
 
         Directory.Users.Aliases aliasService = configuration.getDirectory().users().aliases();
-        Set<String> aliasesToAdd = new HashSet<>();
-        Set<String> aliasesToRemove = new HashSet<>();
         Optional.ofNullable(AttributeDeltaUtil.find(GoogleAppsUtil.ALIASES_ATTR, modifications)).
                 ifPresent(aliases -> {
-                    if (CollectionUtil.isEmpty(aliases.getValuesToReplace())) {
-                        if (!CollectionUtil.isEmpty(aliases.getValuesToAdd())) {
-                            for (Object alias : CollectionUtil.nullAsEmpty(aliases.getValuesToAdd())) {
-                                aliasesToAdd.add(alias.toString());
-                            }
-                        }
-
-                        if (!CollectionUtil.isEmpty(aliases.getValuesToRemove())) {
-                            for (Object alias : CollectionUtil.nullAsEmpty(aliases.getValuesToRemove())) {
-                                aliasesToRemove.add(alias.toString());
-                            }
-                        }
-                    } else {
-                        aliasesToRemove.addAll(UserHandler.listAliases(aliasService, uid.getUidValue()));
-
-                        if (!CollectionUtil.isEmpty(aliases.getValuesToAdd())) {
-                            for (Object group : CollectionUtil.nullAsEmpty(aliases.getValuesToReplace())) {
-                                aliasesToAdd.add(group.toString());
-                            }
-                        }
-                    }
+                    SetDiff diff = null == aliases.getValuesToReplace()
+                            ? SetDiff.explicit(aliases.getValuesToAdd(), aliases.getValuesToRemove())
+                            : SetDiff.of(
+                                    UserHandler.listAliases(aliasService, uid.getUidValue()),
+                                    aliases.getValuesToReplace());
+                    LOG.ok("Aliases to update for {0}: {1}", uid.getUidValue(), diff);
+
+                    queueUserAliases(aliasService, uid.getUidValue(), diff, additions, removals);
                 });
-        // Delete existing aliases
-        for (String alias : aliasesToRemove) {
-            execute(UserHandler.deleteUserAlias(aliasService, alias, uid.getUidValue()),
-                    new RequestResultHandler<Directory.Users.Aliases.Delete, Void, Object>() {
-
-                @Override
-                public Object handleResult(final Directory.Users.Aliases.Delete request, final Void v) {
-                    return null;
-                }
-
-                @Override
-                public Object handleNotFound(final IOException e) {
-                    return null;
-                }
-            });
-        }
-        // Add new aliases
-        for (String alias : aliasesToAdd) {
-            execute(UserHandler.createUserAlias(aliasService, uid.getUidValue(), alias),
-                    new RequestResultHandler<Directory.Users.Aliases.Insert, Alias, Object>() {
-
-                @Override
-                public Object handleResult(final Directory.Users.Aliases.Insert insert, final Alias value) {
-                    return null;
-                }
 
-                @Override
-                public Object handleDuplicate(final IOException e) {
-                    return null;
-                }
-            });
-        }
+        removals.execute();
+        additions.execute();
     }
 
     private void updateDeltaGroup(final Set<AttributeDelta> modifications) {
         Directory.Groups.Update update = GroupHandler.update(
                 configuration.getDirectory().groups(), uid.getUidValue(), modifications);
         if (null != update) {
-            execute(update, new RequestResultHandler<Directory.Groups.Update, Group, Uid>() {
+            execute(ifMatch(update), new RequestResultHandler<Directory.Groups.Update, Group, Uid>() {
 
                 @Override
                 public Uid handleResult(final Directory.Groups.Update request, final Group value) {
@@ -738,134 +671,47 @@ public class GoogleAppsUpdate {
             });
         }
 
+        // removals are sent first, as Google does not guarantee the execution order of batched calls
+        GoogleApiBatch removals = new GoogleApiBatch();
+        GoogleApiBatch additions = new GoogleApiBatch();
+
         Directory.Members membersService = configuration.getDirectory().members();
 
-        Set<String> membersToAdd = new HashSet<>();
-        Set<String> membersToRemove = new HashSet<>();
         Optional.ofNullable(AttributeDeltaUtil.find(GoogleAppsUtil.MEMBERS_ATTR, modifications)).
                 ifPresent(members -> {
-                    if (CollectionUtil.isEmpty(members.getValuesToReplace())) {
-                        if (!CollectionUtil.isEmpty(members.getValuesToAdd())) {
-                            for (Object group : CollectionUtil.nullAsEmpty(members.getValuesToAdd())) {
-                                membersToAdd.add(group.toString());
-                            }
-                        }
-
-                        if (!CollectionUtil.isEmpty(members.getValuesToRemove())) {
-                            for (Object group : CollectionUtil.nullAsEmpty(members.getValuesToRemove())) {
-                                membersToRemove.add(group.toString());
-                            }
-                        }
+                    if (null == members.getValuesToReplace()) {
+                        SetDiff diff = SetDiff.explicit(members.getValuesToAdd(), members.getValuesToRemove());
+                        Map<String, String> toInsert = new LinkedHashMap<>();
+                        diff.getToAdd().forEach(email -> toInsert.put(email, null));
+                        queueMembers(membersService, uid.getUidValue(),
+                                MembershipDiff.explicit(toInsert, diff.getToRemove()), additions, removals);
                     } else {
-                        for (Map<String, String> member : listMembers(
-                                membersService,
-                                uid.getUidValue(),
-                                null)) {
-
-                            membersToRemove.add(member.get(GoogleAppsUtil.EMAIL_ATTR));
-                        }
-
-                        if (!CollectionUtil.isEmpty(members.getValuesToAdd())) {
-                            for (Object group : CollectionUtil.nullAsEmpty(members.getValuesToReplace())) {
-                                membersToAdd.add(group.toString());
-                            }
-                        }
+                        Map<String, String> desired = new LinkedHashMap<>();
+                        members.getValuesToReplace().stream().filter(Objects::nonNull).
+                                forEach(email -> desired.put(email.toString(), null));
+                        MembershipDiff diff = MembershipDiff.of(
+                                listMembers(membersService, uid.getUidValue(), null), desired);
+                        LOG.ok("Members to update for {0}: {1}", uid.getUidValue(), diff);
+
+                        queueMembers(membersService, uid.getUidValue(), diff, additions, removals);
                     }
                 });
-        // Remove all membership
-        for (String member : membersToRemove) {
-            execute(MembersHandler.delete(membersService, uid.getUidValue(), member),
-                    new RequestResultHandler<Directory.Members.Delete, Void, Object>() {
-
-                @Override
-                public Object handleResult(final Directory.Members.Delete request, final Void value) {
-                    return null;
-                }
-
-                @Override
-                public Object handleNotFound(final IOException e) {
-                    // Do nothing
-                    return null;
-                }
-            });
-        }
-        // Add new Member object
-        for (String member : membersToAdd) {
-            execute(MembersHandler.create(membersService, uid.getUidValue(), member, null),
-                    new RequestResultHandler<Directory.Members.Insert, Member, Object>() {
-
-                @Override
-                public Object handleResult(final Directory.Members.Insert request, final Member value) {
-                    return null;
-                }
-
-                @Override
-                public Object handleDuplicate(final IOException e) {
-                    // Do nothing
-                    return null;
-                }
-            });
-        }
 
         Directory.Groups.Aliases aliasService = configuration.getDirectory().groups().aliases();
-        Set<String> aliasesToAdd = new HashSet<>();
-        Set<String> aliasesToRemove = new HashSet<>();
         Optional.ofNullable(AttributeDeltaUtil.find(GoogleAppsUtil.ALIASES_ATTR, modifications)).
                 ifPresent(aliases -> {
-                    if (CollectionUtil.isEmpty(aliases.getValuesToReplace())) {
-                        if (!CollectionUtil.isEmpty(aliases.getValuesToAdd())) {
-                            for (Object alias : CollectionUtil.nullAsEmpty(aliases.getValuesToAdd())) {
-                                aliasesToAdd.add(alias.toString());
-                            }
-                        }
-
-                        if (!CollectionUtil.isEmpty(aliases.getValuesToRemove())) {
-                            for (Object alias : CollectionUtil.nullAsEmpty(aliases.getValuesToRemove())) {
-                                aliasesToRemove.add(alias.toString());
-                            }
-                        }
-                    } else {
-                        aliasesToRemove.addAll(GroupHandler.listAliases(aliasService, uid.getUidValue()));
-
-                        if (!CollectionUtil.isEmpty(aliases.getValuesToAdd())) {
-                            for (Object group : CollectionUtil.nullAsEmpty(aliases.getValuesToReplace())) {
-                                aliasesToAdd.add(group.toString());
-                            }
-                        }
-                    }
+                    SetDiff diff = null == aliases.getValuesToReplace()
+                            ? SetDiff.explicit(aliases.getValuesToAdd(), aliases.getValuesToRemove())
+                            : SetDiff.of(
+                                    GroupHandler.listAliases(aliasService, uid.getUidValue()),
+                                    aliases.getValuesToReplace());
+                    LOG.ok("Aliases to update for {0}: {1}", uid.getUidValue(), diff);
+
+                    queueGroupAliases(aliasService, uid.getUidValue(), diff, additions, removals);
                 });
-        // Delete existing aliases
-        for (String alias : aliasesToRemove) {
-            execute(GroupHandler.deleteGroupAlias(aliasService, alias, uid.getUidValue()),
-                    new RequestResultHandler<Directory.Groups.Aliases.Delete, Void, Object>() {
-
-                @Override
-                public Object handleResult(final Directory.Groups.Aliases.Delete request, final Void v) {
-                    return null;
-                }
-
-                @Override
-                public Object handleNotFound(final IOException e) {
-                    return null;
-                }
-            });
-        }
-        // Add new aliases
-        for (String alias : aliasesToAdd) {
-            execute(GroupHandler.createGroupAlias(aliasService, uid.getUidValue(), alias),
-                    new RequestResultHandler<Directory.Groups.Aliases.Insert, Alias, Object>() {
-
-                @Override
-                public Object handleResult(final Directory.Groups.Aliases.Insert insert, final Alias value) {
-                    return null;
-                }
 
-                @Override
-                public Object handleDuplicate(final IOException e) {
-                    return null;
-                }
-            });
-        }
+        removals.execute(configuration.getExecutorService(), configuration.getMaxConcurrentRequests());
+        additions.execute(configuration.getExecutorService(), configuration.getMaxConcurrentRequests());
     }
 
     public Set<AttributeDelta> updateDelta(final Set<AttributeDelta> modifications) {
@@ -882,6 +728,7 @@ public class GoogleAppsUpdate {
                     @Override
                     public Uid handleResult(final Directory.Orgunits.Update request, final OrgUnit value) {
                         LOG.ok("OrgUnit is updated:{0}", value.getName());
+                        configuration.getOrgUnitTreeCache().invalidate();
                         return uid;
                     }
                 });
@@ -35,6 +35,7 @@ import com.google.common.escape.Escaper;
 import com.google.common.escape.Escapers;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -89,11 +90,39 @@ public class GroupHandler implements FilterVisitor<StringBuilder, Directory.Grou
      */
     private static final Log LOG = Log.getLog(GroupHandler.class);
 
+    private static final Map<String, AttributeProjection.Extractor<Group>> EXTRACTORS = new LinkedHashMap<>();
+
+    static {
+        EXTRACTORS.put(GoogleAppsUtil.NAME_ATTR, AttributeProjection.single(GoogleAppsUtil.NAME_ATTR, Group::getName));
+        EXTRACTORS.put(GoogleAppsUtil.EMAIL_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.EMAIL_ATTR, Group::getEmail));
+        EXTRACTORS.put(GoogleAppsUtil.DESCRIPTION_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.DESCRIPTION_ATTR, Group::getDescription));
+        EXTRACTORS.put(GoogleAppsUtil.ADMIN_CREATED_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.ADMIN_CREATED_ATTR, Group::getAdminCreated));
+        EXTRACTORS.put(GoogleAppsUtil.ALIASES_ATTR,
+                AttributeProjection.multi(GoogleAppsUtil.ALIASES_ATTR, Group::getAliases));
+        EXTRACTORS.put(GoogleAppsUtil.NON_EDITABLE_ALIASES_ATTR,
+                AttributeProjection.multi(GoogleAppsUtil.NON_EDITABLE_ALIASES_ATTR, Group::getNonEditableAliases));
+        EXTRACTORS.put(GoogleAppsUtil.DIRECT_MEMBERS_COUNT_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.DIRECT_MEMBERS_COUNT_ATTR, Group::getDirectMembersCount));
+    }
+
     private static final Escaper STRING_ESCAPER = Escapers.builder().addEscape('\'', "\\'").build();
 
     @Override
     public StringBuilder visitAndFilter(final Directory.Groups.List list, final AndFilter andFilter) {
-        throw getException();
+        StringBuilder builder = new StringBuilder();
+        for (Filter filter : andFilter.getFilters()) {
+            StringBuilder sb = filter.accept(this, list);
+            if (null != sb && sb.length() > 0) {
+                if (builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append(sb);
+            }
+        }
+        return builder.length() > 0 ? builder : null;
     }
 
     @Override
@@ -323,7 +352,7 @@ public class GroupHandler implements FilterVisitor<StringBuilder, Directory.Grou
     public static Set<String> listAliases(final Directory.Groups.Aliases service, final String groupKey) {
         try {
             return execute(
-                    service.list(groupKey),
+                    service.list(groupKey).setFields("aliases(" + FieldMask.ALIAS_FIELDS + ")"),
                     new RequestResultHandler<Directory.Groups.Aliases.List, Aliases, Set<String>>() {
 
                 @SuppressWarnings("unchecked")
@@ -445,7 +474,7 @@ public class GroupHandler implements FilterVisitor<StringBuilder, Directory.Grou
         try {
             Directory.Groups.List request = service.list().
                     setUserKey(userKey).
-                    setFields("groups/id").
+                    setFields(FieldMask.page("groups", GoogleAppsUtil.ID_ATTR)).
                     // 400 Bad Request if the Customer(my_customer or exact value) is set, only domain-userKey
                     // combination allowed. request.setCustomer(MY_CUSTOMER_ID);
                     setDomain(domain);
@@ -462,19 +491,45 @@ public class GroupHandler implements FilterVisitor<StringBuilder, Directory.Grou
                         return value.getNextPageToken();
                     }
                 });
+                request.setPageToken(nextPageToken);
             } while (StringUtil.isNotBlank(nextPageToken));
         } catch (IOException e) {
-            LOG.warn(e, "Failed to initialize Members#Delete");
+            LOG.warn(e, "Failed to initialize Groups#List");
             throw ConnectorException.wrap(e);
         }
         return result;
     }
 
+    /**
+     * @return names of the group attributes returned by default
+     */
+    public static Set<String> defaultAttributes() {
+        return Collections.unmodifiableSet(EXTRACTORS.keySet());
+    }
+
+    /**
+     * Compiles the group attributes to be returned, to be done once per operation.
+     *
+     * @param attributesToGet attributes to get, null for default
+     * @return projection
+     */
+    public static AttributeProjection<Group> projection(final Set<String> attributesToGet) {
+        return AttributeProjection.compile(EXTRACTORS, attributesToGet);
+    }
+
     public static ConnectorObject fromGroup(
             final Group group,
             final Set<String> attributesToGet,
             final Directory.Members service) {
 
+        return fromGroup(group, projection(attributesToGet), service);
+    }
+
+    public static ConnectorObject fromGroup(
+            final Group group,
+            final AttributeProjection<Group> projection,
+            final Directory.Members service) {
+
         ConnectorObjectBuilder builder = new ConnectorObjectBuilder();
         builder.setObjectClass(ObjectClass.GROUP);
 
@@ -486,33 +541,10 @@ public class GroupHandler implements FilterVisitor<StringBuilder, Directory.Grou
         builder.setName(group.getEmail());
 
         // Optional
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.NAME_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.NAME_ATTR, group.getName()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.EMAIL_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.EMAIL_ATTR, group.getEmail()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.DESCRIPTION_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.DESCRIPTION_ATTR, group.getDescription()));
-        }
-
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.ADMIN_CREATED_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.ADMIN_CREATED_ATTR, group.getAdminCreated()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.ALIASES_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.ALIASES_ATTR, group.getAliases()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.NON_EDITABLE_ALIASES_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.NON_EDITABLE_ALIASES_ATTR, group.getNonEditableAliases()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.DIRECT_MEMBERS_COUNT_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.DIRECT_MEMBERS_COUNT_ATTR, group.getDirectMembersCount()));
-        }
+        projection.apply(group, builder);
 
         // Expensive to get
-        if (null != attributesToGet && attributesToGet.contains(GoogleAppsUtil.MEMBERS_ATTR)) {
+        if (projection.isRequested(GoogleAppsUtil.MEMBERS_ATTR)) {
             builder.addAttribute(AttributeBuilder.build(
                     GoogleAppsUtil.MEMBERS_ATTR, MembersHandler.listMembers(service, group.getId(), null)));
         }
@@ -0,0 +1,59 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SyncTokenStore} keeping snapshots in memory: they are lost on restart, after which the first sync will
+ * report all objects.
+ */
+public class InMemorySyncTokenStore implements SyncTokenStore {
+
+    private final Map<String, Map<String, String>> snapshots = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(final String key, final Map<String, String> snapshot) {
+        snapshots.put(key, new HashMap<>(snapshot));
+    }
+
+    @Override
+    public Map<String, String> load(final String key) {
+        Map<String, String> snapshot = snapshots.get(key);
+        return null == snapshot ? null : new HashMap<>(snapshot);
+    }
+
+    @Override
+    public void remove(final String key) {
+        snapshots.remove(key);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return new HashSet<>(snapshots.keySet());
+    }
+}
@@ -53,16 +53,12 @@ public final class LicenseAssignmentsHandler {
      */
     private static final Log LOG = Log.getLog(LicenseAssignmentsHandler.class);
 
-    public static final Pattern LICENSE_NAME_PATTERN =
-            Pattern.compile(
-                    "(?i)(Google-Coordinate|Google-Drive-storage|Google-Vault|Google-Apps)"
-                    + "\\/sku\\/(Google-Coordinate|Google-Drive-storage-20GB|"
-                    + "Google-Drive-storage-50GB|Google-Drive-storage-200GB|"
-                    + "Google-Drive-storage-400GB|Google-Drive-storage-1TB|"
-                    + "Google-Drive-storage-2TB|Google-Drive-storage-4TB|"
-                    + "Google-Drive-storage-8TB|Google-Drive-storage-16TB|Google-Vault|Google-Vault-Former-Employee|"
-                    + "Google-Apps-For-Business|Google-Apps-Unlimited|Google-Apps-Lite|Google-Apps-For-Postini)"
-                    + "\\/user\\/(.+)");
+    /**
+     * Matches {@code <productId>/sku/<skuId>/user/<userId>}, as generated by {@link #generateUid(LicenseAssignment)};
+     * any product and SKU is accepted, as those assigned by the current plans are numeric, e.g.
+     * {@code Google-Apps/sku/1010020027/user/john@example.com}.
+     */
+    public static final Pattern LICENSE_NAME_PATTERN = Pattern.compile("(?i)([^/]+)\\/sku\\/([^/]+)\\/user\\/(.+)");
 
     // /////////////
     //
@@ -155,9 +151,9 @@ public final class LicenseAssignmentsHandler {
             throw new UnknownUidException("Unrecognised id");
         }
 
-        String productId = name.group(0);
-        String oldSkuId = name.group(1);
-        String userId = name.group(2);
+        String productId = name.group(1);
+        String oldSkuId = name.group(2);
+        String userId = name.group(3);
 
         Optional.ofNullable(attributes.find(GoogleAppsUtil.SKU_ID_ATTR))
                 .flatMap(GoogleAppsUtil::getStringValue)
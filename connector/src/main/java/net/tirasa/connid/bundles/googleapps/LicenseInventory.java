@@ -0,0 +1,171 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.services.licensing.Licensing;
+import com.google.api.services.licensing.model.LicenseAssignment;
+import com.google.api.services.licensing.model.LicenseAssignmentList;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.identityconnectors.common.StringUtil;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * SKUs of the configured product held by each user, built from a single {@code listForProduct} scan and refreshed
+ * once expired; license assignments and removals performed via this connector are applied on the fly.
+ */
+public final class LicenseInventory {
+
+    private static final Log LOG = Log.getLog(LicenseInventory.class);
+
+    private final long ttlNanos;
+
+    private final Map<String, Set<String>> skusByUser = new HashMap<>();
+
+    private long loaded;
+
+    private boolean valid;
+
+    /**
+     * @param ttl time to live, in seconds; 0 disables the inventory
+     */
+    public LicenseInventory(final long ttl) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttl);
+    }
+
+    public boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+    private static String key(final String userId) {
+        return userId.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the SKUs held by the given user, scanning all license assignments of the product if expired.
+     *
+     * @param configuration connector configuration, providing product, SKUs and licensing service
+     * @param userId user primary email
+     * @return SKUs held by the given user, among the configured ones if any
+     */
+    public synchronized Set<String> getSkus(final GoogleAppsConfiguration configuration, final String userId) {
+        if (!valid || System.nanoTime() - loaded >= ttlNanos) {
+            scan(configuration.getLicensing(), configuration.getProductId(), configuration.getSkuIds(),
+                    configuration.getExecutorService(), configuration.getPagePrefetchDepth());
+        }
+        Set<String> skus = skusByUser.get(key(userId));
+        return null == skus ? Collections.emptySet() : new TreeSet<>(skus);
+    }
+
+    private void scan(
+            final Licensing licensing,
+            final String productId,
+            final String[] skuIds,
+            final ExecutorService executor,
+            final int prefetchDepth) {
+
+        if (StringUtil.isBlank(productId)) {
+            throw new ConnectorException("productId is required");
+        }
+        Set<String> managed = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (null != skuIds) {
+            Arrays.stream(skuIds).filter(StringUtil::isNotBlank).forEach(managed::add);
+        }
+
+        skusByUser.clear();
+        try {
+            GoogleApiPager.forEachPage(
+                    licensing.licenseAssignments().listForProduct(productId, GoogleAppsUtil.MY_CUSTOMER_ID).
+                            setFields(FieldMask.page("items", "skuId,userId")),
+                    LicenseAssignmentList::getNextPageToken,
+                    Licensing.LicenseAssignments.ListForProduct::setPageToken,
+                    executor,
+                    prefetchDepth,
+                    false,
+                    page -> {
+                        if (null != page.getItems()) {
+                            for (LicenseAssignment assignment : page.getItems()) {
+                                if (managed.isEmpty() || managed.contains(assignment.getSkuId())) {
+                                    skusByUser.computeIfAbsent(key(assignment.getUserId()), k -> new TreeSet<>()).
+                                            add(assignment.getSkuId());
+                                }
+                            }
+                        }
+                        return true;
+                    });
+        } catch (IOException e) {
+            LOG.warn(e, "Failed to initialize LicenseAssignments#ListForProduct");
+            throw ConnectorException.wrap(e);
+        }
+        loaded = System.nanoTime();
+        valid = true;
+        LOG.ok("License inventory of {0} built for {1} users", productId, skusByUser.size());
+    }
+
+    /**
+     * Records that the given SKU was assigned to the given user.
+     *
+     * @param userId user primary email
+     * @param skuId SKU
+     */
+    public synchronized void add(final String userId, final String skuId) {
+        if (valid && null != userId && null != skuId) {
+            skusByUser.computeIfAbsent(key(userId), k -> new TreeSet<>()).add(skuId);
+        }
+    }
+
+    /**
+     * Records that the given SKU was removed from the given user.
+     *
+     * @param userId user primary email
+     * @param skuId SKU
+     */
+    public synchronized void remove(final String userId, final String skuId) {
+        if (valid && null != userId) {
+            Set<String> skus = skusByUser.get(key(userId));
+            if (null != skus) {
+                skus.remove(skuId);
+                if (skus.isEmpty()) {
+                    skusByUser.remove(key(userId));
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces a new scan on next use.
+     */
+    public synchronized void invalidate() {
+        valid = false;
+        skusByUser.clear();
+    }
+}
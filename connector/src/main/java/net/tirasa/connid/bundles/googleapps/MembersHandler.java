@@ -192,7 +192,8 @@ public final class MembersHandler {
 
         final List<Map<String, String>> result = new ArrayList<>();
         try {
-            Directory.Members.List request = service.list(groupKey);
+            Directory.Members.List request = service.list(groupKey).
+                    setFields(FieldMask.page("members", FieldMask.MEMBER_EMAIL_ROLE));
             request.setRoles(StringUtil.isBlank(roles) ? "OWNER,MANAGER,MEMBER" : roles);
 
             String nextPageToken;
@@ -212,9 +213,10 @@ public final class MembersHandler {
                         return value.getNextPageToken();
                     }
                 });
+                request.setPageToken(nextPageToken);
             } while (StringUtil.isNotBlank(nextPageToken));
         } catch (IOException e) {
-            LOG.warn(e, "Failed to initialize Members#Delete");
+            LOG.warn(e, "Failed to initialize Members#List");
             throw ConnectorException.wrap(e);
         }
         return result;
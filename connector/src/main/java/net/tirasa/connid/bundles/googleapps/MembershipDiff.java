@@ -0,0 +1,130 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.identityconnectors.common.StringUtil;
+
+/**
+ * Changes turning the current members of a group into the desired ones: members to insert, members whose role
+ * is to be patched and members to delete.
+ * Current members are indexed by email (case-insensitive), so that the diff takes linear time in the size of
+ * the group.
+ */
+public final class MembershipDiff {
+
+    /**
+     * Computes the changes.
+     *
+     * @param current current members, as returned by {@link MembersHandler#listMembers}
+     * @param desired desired members, as email to role; null role means any role, e.g. only membership matters
+     * @return diff
+     */
+    public static MembershipDiff of(final Collection<Map<String, String>> current, final Map<String, String> desired) {
+        Map<String, Map<String, String>> index = new HashMap<>(current.size() * 4 / 3 + 1);
+        current.stream().filter(member -> null != member.get(GoogleAppsUtil.EMAIL_ATTR)).
+                forEach(member -> index.put(member.get(GoogleAppsUtil.EMAIL_ATTR).toLowerCase(Locale.ROOT), member));
+
+        Map<String, String> toInsert = new LinkedHashMap<>();
+        Map<String, String> toPatch = new LinkedHashMap<>();
+        desired.forEach((email, role) -> {
+            Map<String, String> member = index.remove(email.toLowerCase(Locale.ROOT));
+            if (null == member) {
+                toInsert.put(email, role);
+            } else if (StringUtil.isNotBlank(role) && !role.equalsIgnoreCase(member.get(GoogleAppsUtil.ROLE_ATTR))) {
+                // OWNER -> MANAGER -> MEMBER
+                toPatch.put(member.get(GoogleAppsUtil.EMAIL_ATTR), role);
+            }
+        });
+
+        List<String> toDelete = new ArrayList<>(index.size());
+        index.values().forEach(member -> toDelete.add(member.get(GoogleAppsUtil.EMAIL_ATTR)));
+
+        return new MembershipDiff(toInsert, toPatch, toDelete);
+    }
+
+    /**
+     * Wraps changes already known, e.g. from an attribute delta, without comparing to the current members.
+     *
+     * @param toInsert email to role of members to insert
+     * @param toDelete emails of members to delete
+     * @return diff
+     */
+    public static MembershipDiff explicit(final Map<String, String> toInsert, final Collection<String> toDelete) {
+        return new MembershipDiff(new LinkedHashMap<>(toInsert), Collections.emptyMap(), new ArrayList<>(toDelete));
+    }
+
+    private final Map<String, String> toInsert;
+
+    private final Map<String, String> toPatch;
+
+    private final List<String> toDelete;
+
+    private MembershipDiff(
+            final Map<String, String> toInsert,
+            final Map<String, String> toPatch,
+            final List<String> toDelete) {
+
+        this.toInsert = Collections.unmodifiableMap(toInsert);
+        this.toPatch = Collections.unmodifiableMap(toPatch);
+        this.toDelete = Collections.unmodifiableList(toDelete);
+    }
+
+    /**
+     * @return email to role of members to insert
+     */
+    public Map<String, String> getToInsert() {
+        return toInsert;
+    }
+
+    /**
+     * @return email to new role of members to patch
+     */
+    public Map<String, String> getToPatch() {
+        return toPatch;
+    }
+
+    /**
+     * @return emails of members to delete
+     */
+    public List<String> getToDelete() {
+        return toDelete;
+    }
+
+    public boolean isEmpty() {
+        return toInsert.isEmpty() && toPatch.isEmpty() && toDelete.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return MembershipDiff.class.getSimpleName() + "{toInsert=" + toInsert.size()
+                + ", toPatch=" + toPatch.size() + ", toDelete=" + toDelete.size() + '}';
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static net.tirasa.connid.bundles.googleapps.GoogleApiExecutor.execute;
+
+import com.google.api.services.directory.Directory;
+import com.google.api.services.directory.model.Domains2;
+import com.google.api.services.directory.model.Group;
+import com.google.api.services.directory.model.Groups;
+import com.google.api.services.directory.model.Member;
+import com.google.api.services.directory.model.Members;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.identityconnectors.common.CollectionUtil;
+import org.identityconnectors.common.StringUtil;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * In-memory view of the direct group memberships of all users in the domain, built once per search so that
+ * {@code __GROUPS__} can be returned for every user of a full scan without one {@code groups.list?userKey=} call
+ * per user: the cost is one {@code groups.list} scan plus one (batched) {@code members.list} per group.
+ */
+public final class MembershipIndex {
+
+    private static final Log LOG = Log.getLog(MembershipIndex.class);
+
+    private static final String USER_TYPE = "USER";
+
+    /**
+     * Tells whether an index can replace the per-user lookup: the index covers the groups of the configured domain
+     * only, while a full scan returns the users of all domains owned by the customer; hence, when the customer
+     * owns more than one domain, memberships are left to the per-user lookup.
+     *
+     * @param directory Directory client
+     * @return whether the customer owns one domain only
+     */
+    public static boolean isApplicable(final Directory directory) {
+        try {
+            return execute(directory.domains().list(GoogleAppsUtil.MY_CUSTOMER_ID).setFields("domains/domainName"),
+                    new RequestResultHandler<Directory.Domains.List, Domains2, Boolean>() {
+
+                @Override
+                public Boolean handleResult(final Directory.Domains.List request, final Domains2 value) {
+                    int domains = null == value.getDomains() ? 0 : value.getDomains().size();
+                    if (domains > 1) {
+                        LOG.ok("{0} domains found, memberships are resolved per user", domains);
+                    }
+                    return domains <= 1;
+                }
+
+                @Override
+                public Boolean handleError(final Throwable e) {
+                    LOG.warn(e, "Could not list domains, memberships are resolved per user");
+                    return false;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn(e, "Failed to initialize Domains#List");
+            throw ConnectorException.wrap(e);
+        }
+    }
+
+    public static MembershipIndex build(final Directory directory, final String domain) {
+        MembershipIndex index = new MembershipIndex();
+
+        // 1. all groups in the domain
+        List<String> groupIds = new ArrayList<>();
+        try {
+            Directory.Groups.List request = directory.groups().list().
+                    setDomain(domain).
+                    setMaxResults(200).
+                    setFields(FieldMask.page("groups", GoogleAppsUtil.ID_ATTR));
+
+            String nextPageToken;
+            do {
+                nextPageToken = execute(request, new RequestResultHandler<Directory.Groups.List, Groups, String>() {
+
+                    @Override
+                    public String handleResult(final Directory.Groups.List request, final Groups value) {
+                        if (null != value.getGroups()) {
+                            value.getGroups().stream().map(Group::getId).forEach(groupIds::add);
+                        }
+                        return value.getNextPageToken();
+                    }
+                });
+                request.setPageToken(nextPageToken);
+            } while (StringUtil.isNotBlank(nextPageToken));
+        } catch (IOException e) {
+            LOG.warn(e, "Failed to initialize Groups#List");
+            throw ConnectorException.wrap(e);
+        }
+
+        // 2. direct user members of each group, one batch round trip per page level
+        GoogleApiBatch batch = new GoogleApiBatch();
+        for (String groupId : groupIds) {
+            index.queueMembers(batch, directory.members(), groupId, null);
+        }
+        while (!batch.isEmpty()) {
+            batch.execute();
+        }
+
+        LOG.ok("Membership index built for {0} groups and {1} users", groupIds.size(), index.groups.size());
+        return index;
+    }
+
+    private final Map<String, Set<String>> groups = new HashMap<>();
+
+    private MembershipIndex() {
+        // use build()
+    }
+
+    private void queueMembers(
+            final GoogleApiBatch batch,
+            final Directory.Members service,
+            final String groupId,
+            final String pageToken) {
+
+        try {
+            Directory.Members.List request = service.list(groupId).
+                    setRoles("OWNER,MANAGER,MEMBER").
+                    setMaxResults(200).
+                    setPageToken(pageToken).
+                    setFields(FieldMask.page("members", "id,type"));
+            batch.queue(request, new RequestResultHandler<Directory.Members.List, Members, Void>() {
+
+                @Override
+                public Void handleResult(final Directory.Members.List request, final Members value) {
+                    if (null != value.getMembers()) {
+                        for (Member member : value.getMembers()) {
+                            if (USER_TYPE.equals(member.getType())) {
+                                groups.computeIfAbsent(member.getId(), k -> CollectionUtil.newCaseInsensitiveSet()).
+                                        add(groupId);
+                            }
+                        }
+                    }
+                    if (StringUtil.isNotBlank(value.getNextPageToken())) {
+                        // next page goes into the next round trip of the same batch
+                        queueMembers(batch, service, groupId, value.getNextPageToken());
+                    }
+                    return null;
+                }
+
+                @Override
+                public Void handleNotFound(final IOException e) {
+                    // group removed in the meantime
+                    return null;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn(e, "Failed to initialize Members#List");
+            throw ConnectorException.wrap(e);
+        }
+    }
+
+    /**
+     * @param userId user id
+     * @return ids of the groups the given user is direct member of
+     */
+    public Set<String> groupsOf(final String userId) {
+        return groups.getOrDefault(userId, Collections.emptySet());
+    }
+}
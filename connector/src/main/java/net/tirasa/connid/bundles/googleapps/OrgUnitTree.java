@@ -0,0 +1,121 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.services.directory.model.OrgUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Immutable snapshot of all organizational units of the customer, indexed by path (case-insensitive) and by
+ * parent path, so that exact-path, one-level and subtree queries are answered without network calls.
+ */
+public final class OrgUnitTree {
+
+    /**
+     * Normalizes the given org unit path or Uid value to a path starting with {@code /}.
+     *
+     * @param path org unit path, with or without leading {@code /}
+     * @return normalized path
+     */
+    public static String normalize(final String path) {
+        if (null == path || path.isEmpty()) {
+            return "/";
+        }
+        String normalized = path.startsWith("/") ? path : "/" + path;
+        return normalized.length() > 1 && normalized.endsWith("/")
+                ? normalized.substring(0, normalized.length() - 1)
+                : normalized;
+    }
+
+    private final Map<String, OrgUnit> byPath = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final Map<String, List<OrgUnit>> byParent = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final String etag;
+
+    /**
+     * @param orgUnits all org units, as returned by {@code orgunits.list(type=all)}
+     * @param etag etag of the list response, for revalidation
+     */
+    public OrgUnitTree(final Collection<OrgUnit> orgUnits, final String etag) {
+        this.etag = etag;
+        for (OrgUnit orgUnit : orgUnits) {
+            byPath.put(normalize(orgUnit.getOrgUnitPath()), orgUnit);
+            byParent.computeIfAbsent(normalize(orgUnit.getParentOrgUnitPath()), k -> new ArrayList<>()).
+                    add(orgUnit);
+        }
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public int size() {
+        return byPath.size();
+    }
+
+    /**
+     * @param path org unit path or Uid value
+     * @return org unit at the given path, if any
+     */
+    public Optional<OrgUnit> get(final String path) {
+        return Optional.ofNullable(byPath.get(normalize(path)));
+    }
+
+    /**
+     * @param path org unit path or Uid value
+     * @return direct children of the org unit at the given path
+     */
+    public List<OrgUnit> children(final String path) {
+        return Collections.unmodifiableList(byParent.getOrDefault(normalize(path), Collections.emptyList()));
+    }
+
+    /**
+     * Passes all descendants of the org unit at the given path, parents before children, to the given consumer,
+     * until it returns {@code false}.
+     *
+     * @param path org unit path or Uid value
+     * @param consumer org unit consumer
+     * @return whether all descendants were consumed
+     */
+    public boolean forEachDescendant(final String path, final Predicate<OrgUnit> consumer) {
+        Deque<OrgUnit> pending = new ArrayDeque<>(children(path));
+        while (!pending.isEmpty()) {
+            OrgUnit orgUnit = pending.poll();
+            if (!consumer.test(orgUnit)) {
+                return false;
+            }
+            pending.addAll(children(orgUnit.getOrgUnitPath()));
+        }
+        return true;
+    }
+}
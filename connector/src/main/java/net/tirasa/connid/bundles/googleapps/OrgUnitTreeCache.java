@@ -0,0 +1,112 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.services.directory.Directory;
+import com.google.api.services.directory.model.OrgUnits;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * Keeps the {@link OrgUnitTree} of the customer for a configurable time; once expired, the tree is revalidated
+ * via {@code If-None-Match} on its etag, and only downloaded again if changed.
+ * The tree is also dropped whenever org units are created, updated or deleted via this connector.
+ */
+public final class OrgUnitTreeCache {
+
+    private static final Log LOG = Log.getLog(OrgUnitTreeCache.class);
+
+    private final long ttlNanos;
+
+    private OrgUnitTree tree;
+
+    private long loaded;
+
+    /**
+     * @param ttl time to live, in seconds; 0 disables caching
+     */
+    public OrgUnitTreeCache(final long ttl) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttl);
+    }
+
+    public boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+    /**
+     * Returns the current tree, fetching or revalidating it if expired.
+     *
+     * @param directory directory service
+     * @return org unit tree
+     */
+    public synchronized OrgUnitTree get(final Directory directory) {
+        if (null != tree && System.nanoTime() - loaded < ttlNanos) {
+            return tree;
+        }
+
+        try {
+            Directory.Orgunits.List request = directory.orgunits().list(GoogleAppsUtil.MY_CUSTOMER_ID).
+                    setOrgUnitPath("/").
+                    setType("all");
+            OrgUnitTree cached = tree;
+            if (null != cached && null != cached.getEtag()) {
+                request.getRequestHeaders().setIfNoneMatch(cached.getEtag());
+            }
+
+            tree = GoogleApiExecutor.execute(request,
+                    new RequestResultHandler<Directory.Orgunits.List, OrgUnits, OrgUnitTree>() {
+
+                @Override
+                public OrgUnitTree handleResult(final Directory.Orgunits.List request, final OrgUnits value) {
+                    OrgUnitTree fetched = new OrgUnitTree(
+                            Optional.ofNullable(value.getOrganizationUnits()).orElse(Collections.emptyList()),
+                            value.getEtag());
+                    LOG.ok("Fetched {0} org units", fetched.size());
+                    return fetched;
+                }
+
+                @Override
+                public OrgUnitTree handleNotModified(final IOException e) {
+                    LOG.ok("Org units not modified");
+                    return cached;
+                }
+            });
+            loaded = System.nanoTime();
+            return tree;
+        } catch (IOException e) {
+            LOG.warn(e, "Failed to initialize OrgUnits#List");
+            throw ConnectorException.wrap(e);
+        }
+    }
+
+    /**
+     * Drops the current tree, e.g. after org units were changed.
+     */
+    public synchronized void invalidate() {
+        tree = null;
+    }
+}
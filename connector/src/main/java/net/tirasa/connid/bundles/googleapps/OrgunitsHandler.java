@@ -26,6 +26,9 @@ package net.tirasa.connid.bundles.googleapps;
 import com.google.api.services.directory.Directory;
 import com.google.api.services.directory.model.OrgUnit;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
@@ -34,7 +37,6 @@ import org.identityconnectors.common.StringUtil;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 import org.identityconnectors.framework.common.exceptions.InvalidAttributeValueException;
-import org.identityconnectors.framework.common.objects.AttributeBuilder;
 import org.identityconnectors.framework.common.objects.AttributeDelta;
 import org.identityconnectors.framework.common.objects.AttributeDeltaUtil;
 import org.identityconnectors.framework.common.objects.AttributeInfoBuilder;
@@ -59,6 +61,19 @@ public final class OrgunitsHandler {
      */
     private static final Log LOG = Log.getLog(OrgunitsHandler.class);
 
+    private static final Map<String, AttributeProjection.Extractor<OrgUnit>> EXTRACTORS = new LinkedHashMap<>();
+
+    static {
+        EXTRACTORS.put(GoogleAppsUtil.DESCRIPTION_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.DESCRIPTION_ATTR, OrgUnit::getDescription));
+        EXTRACTORS.put(GoogleAppsUtil.ORG_UNIT_PATH_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.ORG_UNIT_PATH_ATTR, OrgUnit::getOrgUnitPath));
+        EXTRACTORS.put(GoogleAppsUtil.PARENT_ORG_UNIT_PATH_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.PARENT_ORG_UNIT_PATH_ATTR, OrgUnit::getParentOrgUnitPath));
+        EXTRACTORS.put(GoogleAppsUtil.BLOCK_INHERITANCE_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.BLOCK_INHERITANCE_ATTR, OrgUnit::getBlockInheritance));
+    }
+
     // /////////////
     //
     // ORGUNIT
@@ -213,7 +228,28 @@ public final class OrgunitsHandler {
         }
     }
 
+    /**
+     * @return names of the org unit attributes returned by default
+     */
+    public static Set<String> defaultAttributes() {
+        return Collections.unmodifiableSet(EXTRACTORS.keySet());
+    }
+
+    /**
+     * Compiles the organization unit attributes to be returned, to be done once per operation.
+     *
+     * @param attributesToGet attributes to get, null for default
+     * @return projection
+     */
+    public static AttributeProjection<OrgUnit> projection(final Set<String> attributesToGet) {
+        return AttributeProjection.compile(EXTRACTORS, attributesToGet);
+    }
+
     public static ConnectorObject from(final OrgUnit content, final Set<String> attributesToGet) {
+        return from(content, projection(attributesToGet));
+    }
+
+    public static ConnectorObject from(final OrgUnit content, final AttributeProjection<OrgUnit> projection) {
         ConnectorObjectBuilder builder = new ConnectorObjectBuilder();
         builder.setObjectClass(GoogleAppsUtil.ORG_UNIT);
 
@@ -221,21 +257,7 @@ public final class OrgunitsHandler {
         builder.setName(content.getName());
 
         // Optional
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.DESCRIPTION_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.DESCRIPTION_ATTR, content.getDescription()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.ORG_UNIT_PATH_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.ORG_UNIT_PATH_ATTR, content.getOrgUnitPath()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.PARENT_ORG_UNIT_PATH_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.PARENT_ORG_UNIT_PATH_ATTR, content.getParentOrgUnitPath()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.BLOCK_INHERITANCE_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.BLOCK_INHERITANCE_ATTR, content.getBlockInheritance()));
-        }
+        projection.apply(content, builder);
 
         return builder.build();
     }
@@ -27,6 +27,7 @@ import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRe
 import java.io.IOException;
 import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.PreconditionFailedException;
 import org.identityconnectors.framework.common.exceptions.UnknownUidException;
 
 public abstract class RequestResultHandler<G extends AbstractGoogleJsonClientRequest<T>, T, R> {
@@ -37,6 +38,27 @@ public abstract class RequestResultHandler<G extends AbstractGoogleJsonClientReq
         throw new UnknownUidException(e.getMessage(), e);
     }
 
+    /**
+     * Invoked when a conditional read ({@code If-None-Match}) gets 304 Not Modified.
+     *
+     * @param e error response
+     * @return handler result
+     */
+    public R handleNotModified(final IOException e) {
+        throw ConnectorException.wrap(e);
+    }
+
+    /**
+     * Invoked when a conditional write ({@code If-Match}) gets 412 Precondition Failed, e.g. the object was
+     * modified since the given revision was read.
+     *
+     * @param e error response
+     * @return handler result
+     */
+    public R handlePreconditionFailed(final IOException e) {
+        throw new PreconditionFailedException(e.getMessage(), e);
+    }
+
     public R handleDuplicate(final IOException e) {
         throw new AlreadyExistsException(e.getMessage(), e);
     }
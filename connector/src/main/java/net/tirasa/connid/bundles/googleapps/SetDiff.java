@@ -0,0 +1,114 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.identityconnectors.common.CollectionUtil;
+
+/**
+ * Minimal changes turning the current values of a multi-valued attribute, e.g. aliases, into the desired ones;
+ * values are compared case-insensitively, as email addresses.
+ */
+public final class SetDiff {
+
+    /**
+     * Computes the values to add and to remove.
+     *
+     * @param current current values
+     * @param desired desired values; null elements are ignored
+     * @return diff
+     */
+    public static SetDiff of(final Collection<String> current, final Collection<?> desired) {
+        Set<String> currentSet = CollectionUtil.newCaseInsensitiveSet();
+        currentSet.addAll(CollectionUtil.nullAsEmpty(current));
+
+        Set<String> desiredSet = CollectionUtil.newCaseInsensitiveSet();
+        List<String> toAdd = new ArrayList<>();
+        for (Object value : CollectionUtil.nullAsEmpty(desired)) {
+            if (null != value && desiredSet.add(value.toString()) && !currentSet.contains(value.toString())) {
+                toAdd.add(value.toString());
+            }
+        }
+
+        List<String> toRemove = new ArrayList<>();
+        for (String value : currentSet) {
+            if (!desiredSet.contains(value)) {
+                toRemove.add(value);
+            }
+        }
+
+        return new SetDiff(toAdd, toRemove);
+    }
+
+    /**
+     * Wraps changes already known, e.g. from an attribute delta, without comparing to the current values.
+     *
+     * @param toAdd values to add
+     * @param toRemove values to remove
+     * @return diff
+     */
+    public static SetDiff explicit(final Collection<?> toAdd, final Collection<?> toRemove) {
+        return new SetDiff(distinct(toAdd), distinct(toRemove));
+    }
+
+    private static List<String> distinct(final Collection<?> values) {
+        Set<String> seen = CollectionUtil.newCaseInsensitiveSet();
+        List<String> distinct = new ArrayList<>();
+        for (Object value : CollectionUtil.nullAsEmpty(values)) {
+            if (null != value && seen.add(value.toString())) {
+                distinct.add(value.toString());
+            }
+        }
+        return distinct;
+    }
+
+    private final List<String> toAdd;
+
+    private final List<String> toRemove;
+
+    private SetDiff(final List<String> toAdd, final List<String> toRemove) {
+        this.toAdd = Collections.unmodifiableList(toAdd);
+        this.toRemove = Collections.unmodifiableList(toRemove);
+    }
+
+    public List<String> getToAdd() {
+        return toAdd;
+    }
+
+    public List<String> getToRemove() {
+        return toRemove;
+    }
+
+    public boolean isEmpty() {
+        return toAdd.isEmpty() && toRemove.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return SetDiff.class.getSimpleName() + "{toAdd=" + toAdd + ", toRemove=" + toRemove + '}';
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the snapshots taken by {@link GoogleAppsSync}: for each sync token, the etag of every object which
+ * existed when the token was issued.
+ */
+public interface SyncTokenStore {
+
+    /**
+     * Stores the given snapshot.
+     *
+     * @param key snapshot key, made of object class and sync token value
+     * @param snapshot object id to etag
+     */
+    void save(String key, Map<String, String> snapshot);
+
+    /**
+     * Loads the snapshot with the given key.
+     *
+     * @param key snapshot key, made of object class and sync token value
+     * @return object id to etag, or null if no such snapshot is available
+     */
+    Map<String, String> load(String key);
+
+    /**
+     * Removes the snapshot with the given key, if present.
+     *
+     * @param key snapshot key, made of object class and sync token value
+     */
+    void remove(String key);
+
+    /**
+     * Lists the keys of all stored snapshots.
+     *
+     * @return snapshot keys
+     */
+    Set<String> keys();
+}
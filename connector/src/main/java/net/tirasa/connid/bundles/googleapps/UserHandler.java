@@ -46,6 +46,7 @@ import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -53,6 +54,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.identityconnectors.common.CollectionUtil;
 import org.identityconnectors.common.StringUtil;
@@ -103,6 +105,75 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
      */
     private static final Log LOG = Log.getLog(UserHandler.class);
 
+    private static final Map<String, AttributeProjection.Extractor<User>> EXTRACTORS = new LinkedHashMap<>();
+
+    static {
+        EXTRACTORS.put(GoogleAppsUtil.ID_ATTR, AttributeProjection.single(GoogleAppsUtil.ID_ATTR, User::getId));
+        EXTRACTORS.put(GoogleAppsUtil.PRIMARY_EMAIL_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.PRIMARY_EMAIL_ATTR, User::getPrimaryEmail));
+        // If both givenName and familyName are empty then Google didn't return with 'name'
+        EXTRACTORS.put(GoogleAppsUtil.GIVEN_NAME_ATTR, AttributeProjection.single(GoogleAppsUtil.GIVEN_NAME_ATTR,
+                user -> null != user.getName() ? user.getName().getGivenName() : null));
+        EXTRACTORS.put(GoogleAppsUtil.FAMILY_NAME_ATTR, AttributeProjection.single(GoogleAppsUtil.FAMILY_NAME_ATTR,
+                user -> null != user.getName() ? user.getName().getFamilyName() : null));
+        EXTRACTORS.put(GoogleAppsUtil.FULL_NAME_ATTR, AttributeProjection.single(GoogleAppsUtil.FULL_NAME_ATTR,
+                user -> null != user.getName() ? user.getName().getFullName() : null));
+        EXTRACTORS.put(GoogleAppsUtil.IS_ADMIN_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.IS_ADMIN_ATTR, User::getIsAdmin));
+        EXTRACTORS.put(GoogleAppsUtil.IS_DELEGATED_ADMIN_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.IS_DELEGATED_ADMIN_ATTR, User::getIsDelegatedAdmin));
+        EXTRACTORS.put(GoogleAppsUtil.LAST_LOGIN_TIME_ATTR, (user, builder) -> {
+            if (null != user.getLastLoginTime()) {
+                builder.addAttribute(AttributeBuilder.build(
+                        GoogleAppsUtil.LAST_LOGIN_TIME_ATTR, user.getLastLoginTime().toString()));
+            }
+        });
+        EXTRACTORS.put(GoogleAppsUtil.CREATION_TIME_ATTR, (user, builder) -> {
+            if (null != user.getCreationTime()) {
+                builder.addAttribute(AttributeBuilder.build(
+                        GoogleAppsUtil.CREATION_TIME_ATTR, user.getCreationTime().toString()));
+            }
+        });
+        EXTRACTORS.put(GoogleAppsUtil.AGREED_TO_TERMS_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.AGREED_TO_TERMS_ATTR, User::getAgreedToTerms));
+        EXTRACTORS.put(GoogleAppsUtil.SUSPENSION_REASON_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.SUSPENSION_REASON_ATTR, User::getSuspensionReason));
+        EXTRACTORS.put(GoogleAppsUtil.CHANGE_PASSWORD_AT_NEXT_LOGIN_ATTR, AttributeProjection.single(
+                GoogleAppsUtil.CHANGE_PASSWORD_AT_NEXT_LOGIN_ATTR, User::getChangePasswordAtNextLogin));
+        EXTRACTORS.put(GoogleAppsUtil.IP_WHITELISTED_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.IP_WHITELISTED_ATTR, User::getIpWhitelisted));
+        EXTRACTORS.put(GoogleAppsUtil.IMS_ATTR,
+                AttributeProjection.multi(GoogleAppsUtil.IMS_ATTR, user -> (Collection<?>) user.getIms()));
+        EXTRACTORS.put(GoogleAppsUtil.EMAILS_ATTR,
+                AttributeProjection.multi(GoogleAppsUtil.EMAILS_ATTR, user -> (Collection<?>) user.getEmails()));
+        EXTRACTORS.put(GoogleAppsUtil.EXTERNAL_IDS_ATTR, AttributeProjection.multi(
+                GoogleAppsUtil.EXTERNAL_IDS_ATTR, user -> (Collection<?>) user.getExternalIds()));
+        EXTRACTORS.put(GoogleAppsUtil.RELATIONS_ATTR, AttributeProjection.multi(
+                GoogleAppsUtil.RELATIONS_ATTR, user -> (Collection<?>) user.getRelations()));
+        EXTRACTORS.put(GoogleAppsUtil.ADDRESSES_ATTR, AttributeProjection.multi(
+                GoogleAppsUtil.ADDRESSES_ATTR, user -> (Collection<?>) user.getAddresses()));
+        EXTRACTORS.put(GoogleAppsUtil.ORGANIZATIONS_ATTR, AttributeProjection.multi(
+                GoogleAppsUtil.ORGANIZATIONS_ATTR, user -> (Collection<?>) user.getOrganizations()));
+        EXTRACTORS.put(GoogleAppsUtil.PHONES_ATTR,
+                AttributeProjection.multi(GoogleAppsUtil.PHONES_ATTR, user -> (Collection<?>) user.getPhones()));
+        EXTRACTORS.put(GoogleAppsUtil.ALIASES_ATTR,
+                AttributeProjection.multi(GoogleAppsUtil.ALIASES_ATTR, User::getAliases));
+        EXTRACTORS.put(GoogleAppsUtil.NON_EDITABLE_ALIASES_ATTR,
+                AttributeProjection.multi(GoogleAppsUtil.NON_EDITABLE_ALIASES_ATTR, User::getNonEditableAliases));
+        EXTRACTORS.put(GoogleAppsUtil.CUSTOMER_ID_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.CUSTOMER_ID_ATTR, User::getCustomerId));
+        EXTRACTORS.put(GoogleAppsUtil.ORG_UNIT_PATH_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.ORG_UNIT_PATH_ATTR, User::getOrgUnitPath));
+        EXTRACTORS.put(GoogleAppsUtil.IS_MAILBOX_SETUP_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.IS_MAILBOX_SETUP_ATTR, User::getIsMailboxSetup));
+        EXTRACTORS.put(GoogleAppsUtil.INCLUDE_IN_GLOBAL_ADDRESS_LIST_ATTR, AttributeProjection.single(
+                GoogleAppsUtil.INCLUDE_IN_GLOBAL_ADDRESS_LIST_ATTR, User::getIncludeInGlobalAddressList));
+        EXTRACTORS.put(GoogleAppsUtil.THUMBNAIL_PHOTO_URL_ATTR,
+                AttributeProjection.single(GoogleAppsUtil.THUMBNAIL_PHOTO_URL_ATTR, User::getThumbnailPhotoUrl));
+        EXTRACTORS.put(GoogleAppsUtil.DELETION_TIME_ATTR, AttributeProjection.single(GoogleAppsUtil.DELETION_TIME_ATTR,
+                user -> null != user.getDeletionTime() ? user.getDeletionTime().toString() : null));
+    }
+
     private static final Map<String, String> NAME_DICTIONARY;
 
     private static final Set<String> S;
@@ -380,7 +451,7 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
     // USER https://developers.google.com/admin-sdk/directory/v1/reference/users
     //
     // /////////////
-    public static ObjectClassInfo getObjectClassInfo(final String customSchemasJSON) {
+    public static ObjectClassInfo getObjectClassInfo(final GoogleAppsCustomSchemas customSchemas) {
         ObjectClassInfoBuilder builder = new ObjectClassInfoBuilder();
 
         // primaryEmail
@@ -463,52 +534,19 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
         builder.addAttributeInfo(PredefinedAttributeInfos.GROUPS);
 
         // custom schemas
-        if (StringUtil.isNotBlank(customSchemasJSON)) {
-            List<GoogleAppsCustomSchema> customSchemas = GoogleAppsUtil.extractCustomSchemas(customSchemasJSON);
-            for (GoogleAppsCustomSchema customSchema : customSchemas) {
-                if (customSchema.getType().equals("object")) {
-                    // parse inner schemas
-                    String basicName = customSchema.getName();
-                    // manage only first level inner schemas
-                    for (GoogleAppsCustomSchema innerSchema : customSchema.getInnerSchemas()) {
-                        builder.addAttributeInfo(getAttributeInfoBuilder(basicName + "." + innerSchema.getName(),
-                                innerSchema).build());
-                    }
-                } else {
-                    LOG.warn("CustomSchema type {0} not allowed at this level", customSchema.getType());
-                }
-            }
+        for (GoogleAppsCustomSchemas.Field field : customSchemas.getFields()) {
+            builder.addAttributeInfo(AttributeInfoBuilder.define(field.getName(), field.getType()).
+                    setMultiValued(field.isMultiValued()).build());
         }
 
         return builder.build();
     }
 
-    private static AttributeInfoBuilder getAttributeInfoBuilder(
-            final String name,
-            final GoogleAppsCustomSchema schema) {
-
-        AttributeInfoBuilder attributeInfoBuilder = AttributeInfoBuilder.define(name);
-        attributeInfoBuilder.setMultiValued(schema.getMultiValued());
-        switch (schema.getType()) {
-            case "string":
-                attributeInfoBuilder.setType(String.class);
-                break;
-            case "boolean":
-                attributeInfoBuilder.setType(Boolean.class);
-                break;
-            case "int":
-                attributeInfoBuilder.setType(Integer.class);
-                break;
-            default:
-        }
-        return attributeInfoBuilder;
-    }
-
     // https://support.google.com/a/answer/33386
     public static Directory.Users.Insert createUser(
             final Directory.Users service,
             final AttributesAccessor attributes,
-            final String customSchemas) {
+            final GoogleAppsCustomSchemas customSchemas) {
 
         User user = new User();
         user.setPrimaryEmail(GoogleAppsUtil.getName(attributes.getName()));
@@ -562,7 +600,7 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
                 attributes.findBoolean(GoogleAppsUtil.INCLUDE_IN_GLOBAL_ADDRESS_LIST_ATTR));
 
         // customSchemas
-        if (StringUtil.isNotBlank(customSchemas)) {
+        if (!customSchemas.isEmpty()) {
             user.setCustomSchemas(buildCustomAttrs(customSchemas, attributes));
         }
 
@@ -589,40 +627,21 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
     }
 
     private static Object getValueByType(
-            final GoogleAppsCustomSchema innerSchema,
-            final AttributesAccessor attributes,
-            final String innerSchemaName) {
+            final GoogleAppsCustomSchemas.Field field,
+            final AttributesAccessor attributes) {
 
-        return innerSchema.getMultiValued()
-                ? attributes.findStringList(innerSchemaName)
-                : attributes.findString(innerSchemaName);
+        return field.isMultiValued()
+                ? attributes.findStringList(field.getName())
+                : attributes.findString(field.getName());
     }
 
     private static Map<String, Map<String, Object>> buildCustomAttrs(
-            final String customSchemas, final AttributesAccessor attributes) {
+            final GoogleAppsCustomSchemas customSchemas, final AttributesAccessor attributes) {
 
-        List<GoogleAppsCustomSchema> schemas = GoogleAppsUtil.extractCustomSchemas(customSchemas);
         Map<String, Map<String, Object>> attrsToAdd = new HashMap<>();
-        for (GoogleAppsCustomSchema customSchema : schemas) {
-            if (customSchema.getType().equals("object")) {
-                // parse inner schemas
-                String basicName = customSchema.getName();
-                // manage only first level inner schemas
-                for (GoogleAppsCustomSchema innerSchema : customSchema.getInnerSchemas()) {
-                    final String innerSchemaName = basicName + "." + innerSchema.getName();
-                    if (attrsToAdd.containsKey(basicName)) {
-                        attrsToAdd.get(basicName).put(
-                                innerSchema.getName(),
-                                getValueByType(innerSchema, attributes, innerSchemaName));
-                    } else {
-                        Map<String, Object> value = new HashMap<>();
-                        value.put(innerSchema.getName(), getValueByType(innerSchema, attributes, innerSchemaName));
-                        attrsToAdd.put(basicName, value);
-                    }
-                }
-            } else {
-                LOG.warn("CustomSchema type {0} not allowed at this level", customSchema.getType());
-            }
+        for (GoogleAppsCustomSchemas.Field field : customSchemas.getFields()) {
+            attrsToAdd.computeIfAbsent(field.getSchemaName(), k -> new HashMap<>()).
+                    put(field.getFieldName(), getValueByType(field, attributes));
         }
         return attrsToAdd;
     }
@@ -638,7 +657,7 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
             final Directory.Users service,
             final String userKey,
             final AttributesAccessor attributes,
-            final String customSchemas) {
+            final GoogleAppsCustomSchemas customSchemas) {
 
         AtomicReference<User> content = new AtomicReference<>();
 
@@ -703,7 +722,7 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
         Optional.ofNullable(attributes.findList(GoogleAppsUtil.PHONES_ATTR))
                 .ifPresent(value -> set(content, u -> u.setPhones(buildObjs(value, UserPhone.class))));
 
-        if (StringUtil.isNotBlank(customSchemas)) {
+        if (!customSchemas.isEmpty()) {
             set(content, u -> u.setCustomSchemas(buildCustomAttrs(customSchemas, attributes)));
         }
 
@@ -719,41 +738,22 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
     }
 
     private static Object getValueByType(
-            final GoogleAppsCustomSchema innerSchema,
-            final Set<AttributeDelta> modifications,
-            final String innerSchemaName) {
+            final GoogleAppsCustomSchemas.Field field,
+            final Set<AttributeDelta> modifications) {
 
-        return Optional.ofNullable(AttributeDeltaUtil.find(innerSchemaName, modifications)).
-                map(attrDelta -> innerSchema.getMultiValued()
+        return Optional.ofNullable(AttributeDeltaUtil.find(field.getName(), modifications)).
+                map(attrDelta -> field.isMultiValued()
                 ? attrDelta.getValuesToReplace() : AttributeDeltaUtil.getStringValue(attrDelta)).
                 orElse(null);
     }
 
     private static Map<String, Map<String, Object>> buildCustomAttrs(
-            final String customSchemas, final Set<AttributeDelta> modifications) {
+            final GoogleAppsCustomSchemas customSchemas, final Set<AttributeDelta> modifications) {
 
-        List<GoogleAppsCustomSchema> schemas = GoogleAppsUtil.extractCustomSchemas(customSchemas);
         Map<String, Map<String, Object>> attrsToAdd = new HashMap<>();
-        for (GoogleAppsCustomSchema customSchema : schemas) {
-            if (customSchema.getType().equals("object")) {
-                // parse inner schemas
-                String basicName = customSchema.getName();
-                // manage only first level inner schemas
-                for (GoogleAppsCustomSchema innerSchema : customSchema.getInnerSchemas()) {
-                    final String innerSchemaName = basicName + "." + innerSchema.getName();
-                    if (attrsToAdd.containsKey(basicName)) {
-                        attrsToAdd.get(basicName).put(
-                                innerSchema.getName(),
-                                getValueByType(innerSchema, modifications, innerSchemaName));
-                    } else {
-                        Map<String, Object> value = new HashMap<>();
-                        value.put(innerSchema.getName(), getValueByType(innerSchema, modifications, innerSchemaName));
-                        attrsToAdd.put(basicName, value);
-                    }
-                }
-            } else {
-                LOG.warn("CustomSchema type {0} not allowed at this level", customSchema.getType());
-            }
+        for (GoogleAppsCustomSchemas.Field field : customSchemas.getFields()) {
+            attrsToAdd.computeIfAbsent(field.getSchemaName(), k -> new HashMap<>()).
+                    put(field.getFieldName(), getValueByType(field, modifications));
         }
         return attrsToAdd;
     }
@@ -762,7 +762,7 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
             final Directory.Users service,
             final String userKey,
             final Set<AttributeDelta> modifications,
-            final String customSchemas) {
+            final GoogleAppsCustomSchemas customSchemas) {
 
         if (AttributeDeltaUtil.getUidAttributeDelta(modifications) != null
                 || AttributeDeltaUtil.getAttributeDeltaForName(modifications) != null) {
@@ -836,7 +836,7 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
                 .ifPresent(a -> set(content, u -> u.setPhones(
                 buildObjs(a.getValuesToReplace(), UserPhone.class))));
 
-        if (StringUtil.isNotBlank(customSchemas)) {
+        if (!customSchemas.isEmpty()) {
             set(content, u -> u.setCustomSchemas(buildCustomAttrs(customSchemas, modifications)));
         }
 
@@ -868,7 +868,7 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
     public static Set<String> listAliases(final Directory.Users.Aliases service, final String userKey) {
         try {
             return execute(
-                    service.list(userKey),
+                    service.list(userKey).setFields("aliases(" + FieldMask.ALIAS_FIELDS + ")"),
                     new RequestResultHandler<Directory.Users.Aliases.List, Aliases, Set<String>>() {
 
                 @SuppressWarnings("unchecked")
@@ -917,13 +917,28 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
     }
 
     private static Object getValueFromKey(
-            final String customSchema,
+            final GoogleAppsCustomSchemas.Field field,
             final Map<String, Map<String, Object>> customSchemas) {
 
-        String[] names = customSchema.split("\\.");
-        return names.length > 1
-                ? customSchemas.get(names[0]) != null ? customSchemas.get(names[0]).get(names[1]) : null
-                : null;
+        Map<String, Object> values = customSchemas.get(field.getSchemaName());
+        return null == values ? null : values.get(field.getFieldName());
+    }
+
+    /**
+     * @return names of the user attributes returned by default
+     */
+    public static Set<String> defaultAttributes() {
+        return Collections.unmodifiableSet(EXTRACTORS.keySet());
+    }
+
+    /**
+     * Compiles the user attributes to be returned, to be done once per operation.
+     *
+     * @param attributesToGet attributes to get, null for default
+     * @return projection
+     */
+    public static AttributeProjection<User> projection(final Set<String> attributesToGet) {
+        return AttributeProjection.compile(EXTRACTORS, attributesToGet);
     }
 
     public static ConnectorObject fromUser(
@@ -932,6 +947,34 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
             final Set<String> attributesToGet,
             final Directory.Groups service) {
 
+        return fromUser(configuration, user, projection(attributesToGet),
+                userKey -> GroupHandler.listGroups(service, userKey, configuration.getDomain()));
+    }
+
+    public static ConnectorObject fromUser(
+            final GoogleAppsConfiguration configuration,
+            final User user,
+            final Set<String> attributesToGet,
+            final Function<String, Set<String>> groups) {
+
+        return fromUser(configuration, user, projection(attributesToGet), groups);
+    }
+
+    /**
+     * Builds the connector object for the given user.
+     *
+     * @param configuration configuration
+     * @param user user
+     * @param projection attributes to get, as compiled by {@link #projection(java.util.Set)}
+     * @param groups provides the ids of the groups the user is member of, only invoked for {@code __GROUPS__}
+     * @return connector object
+     */
+    public static ConnectorObject fromUser(
+            final GoogleAppsConfiguration configuration,
+            final User user,
+            final AttributeProjection<User> projection,
+            final Function<String, Set<String>> groups) {
+
         ConnectorObjectBuilder builder = new ConnectorObjectBuilder();
         if (null != user.getEtag()) {
             builder.setUid(new Uid(user.getId(), user.getEtag()));
@@ -942,139 +985,21 @@ public class UserHandler implements FilterVisitor<StringBuilder, Directory.Users
         Optional.ofNullable(user.getSuspended()).
                 ifPresent(suspended -> builder.addAttribute(AttributeBuilder.buildEnabled(!suspended)));
 
-        if ((null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.ID_ATTR))) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.ID_ATTR, user.getId()));
-        }
-        if ((null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.PRIMARY_EMAIL_ATTR))) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.PRIMARY_EMAIL_ATTR, user.getPrimaryEmail()));
-        }
-        // Optional
-        // If both givenName and familyName are empty then Google didn't return with 'name'
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.GIVEN_NAME_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.GIVEN_NAME_ATTR,
-                    null != user.getName() ? user.getName().getGivenName() : null));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.FAMILY_NAME_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.FAMILY_NAME_ATTR,
-                    null != user.getName() ? user.getName().getFamilyName() : null));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.FULL_NAME_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.FULL_NAME_ATTR,
-                    null != user.getName() ? user.getName().getFullName() : null));
-        }
-
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.IS_ADMIN_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.IS_ADMIN_ATTR, user.getIsAdmin()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.IS_DELEGATED_ADMIN_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.IS_DELEGATED_ADMIN_ATTR, user.getIsDelegatedAdmin()));
-        }
-        if ((null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.LAST_LOGIN_TIME_ATTR))
-                && user.getLastLoginTime() != null) {
-
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.LAST_LOGIN_TIME_ATTR, user.getLastLoginTime().toString()));
-        }
-        if ((null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.CREATION_TIME_ATTR))
-                && user.getCreationTime() != null) {
+        projection.apply(user, builder);
 
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.CREATION_TIME_ATTR, user.getCreationTime().toString()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.AGREED_TO_TERMS_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.AGREED_TO_TERMS_ATTR, user.getAgreedToTerms()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.SUSPENSION_REASON_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.SUSPENSION_REASON_ATTR, user.getSuspensionReason()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.CHANGE_PASSWORD_AT_NEXT_LOGIN_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.CHANGE_PASSWORD_AT_NEXT_LOGIN_ATTR, user.getChangePasswordAtNextLogin()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.IP_WHITELISTED_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.IP_WHITELISTED_ATTR, user.getIpWhitelisted()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.IMS_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.IMS_ATTR, (Collection) user.getIms()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.EMAILS_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.EMAILS_ATTR, (Collection) user.getEmails()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.EXTERNAL_IDS_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.EXTERNAL_IDS_ATTR, (Collection) user.getExternalIds()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.RELATIONS_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.RELATIONS_ATTR, (Collection) user.getRelations()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.ADDRESSES_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.ADDRESSES_ATTR, (Collection) user.getAddresses()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.ORGANIZATIONS_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.ORGANIZATIONS_ATTR, (Collection) user.getOrganizations()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.PHONES_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.PHONES_ATTR, (Collection) user.getPhones()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.ALIASES_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.ALIASES_ATTR, user.getAliases()));
-        }
-
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.NON_EDITABLE_ALIASES_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.NON_EDITABLE_ALIASES_ATTR, user.getNonEditableAliases()));
-        }
-
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.CUSTOMER_ID_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.CUSTOMER_ID_ATTR, user.getCustomerId()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.ORG_UNIT_PATH_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.ORG_UNIT_PATH_ATTR, user.getOrgUnitPath()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.IS_MAILBOX_SETUP_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.IS_MAILBOX_SETUP_ATTR, user.getIsMailboxSetup()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.INCLUDE_IN_GLOBAL_ADDRESS_LIST_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(
-                    GoogleAppsUtil.INCLUDE_IN_GLOBAL_ADDRESS_LIST_ATTR, user.getIncludeInGlobalAddressList()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.THUMBNAIL_PHOTO_URL_ATTR)) {
-            builder.addAttribute(
-                    AttributeBuilder.build(GoogleAppsUtil.THUMBNAIL_PHOTO_URL_ATTR, user.getThumbnailPhotoUrl()));
-        }
-        if (null == attributesToGet || attributesToGet.contains(GoogleAppsUtil.DELETION_TIME_ATTR)) {
-            builder.addAttribute(AttributeBuilder.build(GoogleAppsUtil.DELETION_TIME_ATTR,
-                    null != user.getDeletionTime() ? user.getDeletionTime().toString() : null));
-        }
-        if (null == attributesToGet || ("full".equals(configuration.getProjection())
-                && StringUtil.isNotBlank(configuration.getCustomSchemasJSON()))) {
-
-            GoogleAppsUtil.extractCustomSchemas(configuration.getCustomSchemasJSON()).forEach(customSchema -> {
-                if (customSchema.getType().equals("object")) {
-                    // manage only first level inner schemas
-                    for (GoogleAppsCustomSchema innerSchema : customSchema.getInnerSchemas()) {
-                        String innerSchemaName = customSchema.getName() + "." + innerSchema.getName();
-                        builder.addAttribute(AttributeBuilder.build(
-                                innerSchemaName,
-                                null != user.getCustomSchemas()
-                                ? getValueFromKey(innerSchemaName, user.getCustomSchemas())
-                                : null));
-                    }
-                } else {
-                    LOG.warn("CustomSchema type {0} not allowed at this level", customSchema.getType());
-                }
-            });
+        boolean allFields = projection.isDefault() || "full".equals(configuration.getProjection());
+        for (GoogleAppsCustomSchemas.Field field : configuration.getCustomSchemas().getFields()) {
+            if (allFields || projection.isRequested(field.getName())) {
+                builder.addAttribute(AttributeBuilder.build(
+                        field.getName(),
+                        null != user.getCustomSchemas()
+                        ? getValueFromKey(field, user.getCustomSchemas())
+                        : null));
+            }
         }
         // Expensive to get
-        if (null != attributesToGet && attributesToGet.contains(PredefinedAttributes.GROUPS_NAME)) {
-            builder.addAttribute(AttributeBuilder.build(PredefinedAttributes.GROUPS_NAME,
-                    GroupHandler.listGroups(service, user.getId(), configuration.getDomain())));
+        if (projection.isRequested(PredefinedAttributes.GROUPS_NAME)) {
+            builder.addAttribute(AttributeBuilder.build(PredefinedAttributes.GROUPS_NAME, groups.apply(user.getId())));
         }
 
         return builder.build();
@@ -0,0 +1,119 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.directory.model.Group;
+import com.google.api.services.directory.model.User;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.AttributeUtil;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.PredefinedAttributes;
+import org.junit.jupiter.api.Test;
+
+class AttributeProjectionTests {
+
+    private static final String USER = "{\"id\":\"u1\",\"etag\":\"e1\",\"primaryEmail\":\"jane@example.com\","
+            + "\"name\":{\"givenName\":\"Jane\",\"familyName\":\"Doe\",\"fullName\":\"Jane Doe\"},"
+            + "\"isAdmin\":false,\"isDelegatedAdmin\":false,\"lastLoginTime\":\"2024-01-02T03:04:05.000Z\","
+            + "\"creationTime\":\"2020-01-02T03:04:05.000Z\",\"agreedToTerms\":true,\"suspended\":false,"
+            + "\"suspensionReason\":\"none\",\"changePasswordAtNextLogin\":false,\"ipWhitelisted\":false,"
+            + "\"ims\":[{\"im\":\"jane\"}],\"emails\":[{\"address\":\"jane@example.com\"}],"
+            + "\"externalIds\":[{\"value\":\"1\"}],\"relations\":[{\"value\":\"john\"}],"
+            + "\"addresses\":[{\"formatted\":\"Rome\"}],\"organizations\":[{\"name\":\"Tirasa\"}],"
+            + "\"phones\":[{\"value\":\"555\"}],\"aliases\":[\"j@example.com\"],"
+            + "\"nonEditableAliases\":[\"j@example.net\"],\"customerId\":\"C1\",\"orgUnitPath\":\"/Sales\","
+            + "\"isMailboxSetup\":true,\"includeInGlobalAddressList\":true,\"thumbnailPhotoUrl\":\"http://photo\","
+            + "\"deletionTime\":\"2025-01-02T03:04:05.000Z\",\"customSchemas\":{\"HR\":{\"Level\":\"3\"}}}";
+
+    private static final String GROUP = "{\"id\":\"g1\",\"etag\":\"e1\",\"email\":\"sales@example.com\","
+            + "\"name\":\"Sales\",\"description\":\"Sales team\",\"adminCreated\":true,"
+            + "\"aliases\":[\"s@example.com\"],\"nonEditableAliases\":[\"s@example.net\"],"
+            + "\"directMembersCount\":\"2\"}";
+
+    /**
+     * Attribute names returned by default for a fully populated user, as before projections were introduced.
+     */
+    private static final Set<String> DEFAULT_USER_ATTRS = Set.of(
+            "__UID__", "__NAME__", "__ENABLE__", "id", "primaryEmail", "givenName", "familyName", "fullName",
+            "isAdmin", "isDelegatedAdmin", "lastLoginTime", "creationTime", "agreedToTerms", "suspensionReason",
+            "changePasswordAtNextLogin", "ipWhitelisted", "ims", "emails", "externalIds", "relations", "addresses",
+            "organizations", "phones", "aliases", "nonEditableAliases", "customerId", "orgUnitPath",
+            "isMailboxSetup", "includeInGlobalAddressList", "thumbnailPhotoUrl", "deletionTime", "HR.Level");
+
+    private static <T> T parse(final String json, final Class<T> type) throws IOException {
+        return GsonFactory.getDefaultInstance().fromString(json, type);
+    }
+
+    private static GoogleAppsConfiguration configuration(final String projection) {
+        GoogleAppsConfiguration configuration = new GoogleAppsConfiguration();
+        configuration.setProjection(projection);
+        configuration.setCustomSchemasJSON("[{\"name\": \"HR\", \"multiValued\": false, \"type\": \"object\","
+                + "\"innerSchemas\": [{\"name\": \"Level\", \"multiValued\": false, \"type\": \"String\"}]}]");
+        return configuration;
+    }
+
+    private static Set<String> names(final ConnectorObject object) {
+        return object.getAttributes().stream().map(Attribute::getName).collect(Collectors.toSet());
+    }
+
+    @Test
+    void userAsBefore() throws IOException {
+        User user = parse(USER, User.class);
+
+        ConnectorObject all = UserHandler.fromUser(configuration("basic"), user, (Set<String>) null, id -> null);
+        assertEquals(DEFAULT_USER_ATTRS, names(all));
+        assertEquals("e1", all.getUid().getRevision());
+        assertEquals("Jane", AttributeUtil.getStringValue(all.getAttributeByName("givenName")));
+        assertEquals(user.getLastLoginTime().toString(),
+                AttributeUtil.getStringValue(all.getAttributeByName("lastLoginTime")));
+        assertEquals(1, all.getAttributeByName("emails").getValue().size());
+        assertEquals("3", AttributeUtil.getStringValue(all.getAttributeByName("HR.Level")));
+
+        // groups only when asked for; custom fields all with full projection, as before
+        ConnectorObject some = UserHandler.fromUser(configuration("full"), user,
+                Set.of("givenName", PredefinedAttributes.GROUPS_NAME), id -> Set.of("g1"));
+        assertEquals(Set.of("__UID__", "__NAME__", "__ENABLE__", "givenName", "HR.Level",
+                PredefinedAttributes.GROUPS_NAME), names(some));
+        assertEquals(List.of("g1"), some.getAttributeByName(PredefinedAttributes.GROUPS_NAME).getValue());
+    }
+
+    @Test
+    void groupAsBefore() throws IOException {
+        Group group = parse(GROUP, Group.class);
+
+        ConnectorObject all = GroupHandler.fromGroup(group, (Set<String>) null, null);
+        assertEquals(Set.of("__UID__", "__NAME__", "name", "email", "description", "adminCreated", "aliases",
+                "nonEditableAliases", "directMembersCount"), names(all));
+        assertEquals(2L, AttributeUtil.getSingleValue(all.getAttributeByName("directMembersCount")));
+
+        ConnectorObject some = GroupHandler.fromGroup(group, Set.of("description"), null);
+        assertEquals(Set.of("__UID__", "__NAME__", "description"), names(some));
+    }
+}
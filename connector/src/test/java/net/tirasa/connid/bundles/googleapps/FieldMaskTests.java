@@ -0,0 +1,64 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.OperationalAttributes;
+import org.identityconnectors.framework.common.objects.PredefinedAttributes;
+import org.junit.jupiter.api.Test;
+
+class FieldMaskTests {
+
+    private static List<String> split(final String fields) {
+        return Arrays.asList(fields.split(","));
+    }
+
+    @Test
+    void attributesToGet() {
+        GoogleAppsConfiguration configuration = new GoogleAppsConfiguration();
+
+        List<String> fields = split(FieldMask.users(configuration, new OperationOptionsBuilder().
+                setAttributesToGet(GoogleAppsUtil.GIVEN_NAME_ATTR, GoogleAppsUtil.ORG_UNIT_PATH_ATTR,
+                        OperationalAttributes.ENABLE_NAME, PredefinedAttributes.GROUPS_NAME).build()));
+        assertEquals(6, fields.size());
+        assertTrue(fields.containsAll(List.of(
+                "id", "etag", "primaryEmail", "suspended", "name/givenName", "orgUnitPath")));
+    }
+
+    @Test
+    void defaults() {
+        GoogleAppsConfiguration configuration = new GoogleAppsConfiguration();
+
+        List<String> fields = split(FieldMask.groups(configuration, new OperationOptionsBuilder().build()));
+        assertTrue(fields.containsAll(List.of("id", "etag", "email", "name", "description", "directMembersCount")));
+        assertFalse(fields.stream().anyMatch(field -> field.startsWith("__")));
+
+        assertEquals("nextPageToken,groups(id)", FieldMask.page("groups", GoogleAppsUtil.ID_ATTR));
+    }
+}
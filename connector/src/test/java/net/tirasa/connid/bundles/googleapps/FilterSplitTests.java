@@ -0,0 +1,85 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.services.directory.Directory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
+import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
+import org.junit.jupiter.api.Test;
+
+class FilterSplitTests {
+
+    private static final Directory DIRECTORY = new Directory.Builder(
+            new MockHttpTransport(), GsonFactory.getDefaultInstance(), null).setApplicationName("test").build();
+
+    private static FilterSplit split(final Filter filter) {
+        return FilterSplit.split(filter, new UserHandler(), () -> {
+            try {
+                return DIRECTORY.users().list();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Test
+    void split() {
+        Filter givenName = FilterBuilder.equalTo(AttributeBuilder.build(GoogleAppsUtil.GIVEN_NAME_ATTR, "Jane"));
+        Filter customer = FilterBuilder.equalTo(AttributeBuilder.build("customer", "C01"));
+        Filter endsWith = FilterBuilder.endsWith(AttributeBuilder.build(GoogleAppsUtil.FAMILY_NAME_ATTR, "oe"));
+        Filter not = FilterBuilder.not(
+                FilterBuilder.equalTo(AttributeBuilder.build(GoogleAppsUtil.ORG_UNIT_PATH_ATTR, "/Test")));
+
+        FilterSplit split = split(givenName);
+        assertEquals(givenName, split.getPushdown());
+        assertNull(split.getResidual());
+
+        split = split(FilterBuilder.and(FilterBuilder.and(givenName, endsWith), FilterBuilder.and(customer, not)));
+        assertEquals(FilterBuilder.and(givenName, customer).toString(), split.getPushdown().toString());
+        assertEquals(FilterBuilder.and(endsWith, not).toString(), split.getResidual().toString());
+        assertEquals(2, split.getResidualAttributes().size());
+        assertTrue(split.getResidualAttributes().contains(GoogleAppsUtil.FAMILY_NAME_ATTR));
+
+        ConnectorObjectBuilder builder = new ConnectorObjectBuilder().setUid("1").setName("jane.doe@test").
+                addAttribute(GoogleAppsUtil.FAMILY_NAME_ATTR, "Doe").
+                addAttribute(GoogleAppsUtil.ORG_UNIT_PATH_ATTR, "/");
+        assertTrue(split.accept(builder.build()));
+        builder.addAttribute(GoogleAppsUtil.ORG_UNIT_PATH_ATTR, "/Test");
+        assertFalse(split.accept(builder.build()));
+
+        // no OR in Google query syntax
+        split = split(FilterBuilder.or(givenName, endsWith));
+        assertNull(split.getPushdown());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.directory.Directory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class GoogleApiBatchTests {
+
+    private static MockLowLevelHttpResponse ok(final String part) {
+        return GoogleApiMocks.json(204, "");
+    }
+
+    /**
+     * Queues one user delete per given key, recording how many times each outcome was handled.
+     */
+    private static GoogleApiBatch batch(
+            final Directory directory, final List<String> keys, final Map<String, Integer> outcomes)
+            throws IOException {
+
+        GoogleApiBatch batch = new GoogleApiBatch();
+        for (String key : keys) {
+            batch.queue(directory.users().delete(key), new RequestResultHandler<Directory.Users.Delete, Void, Void>() {
+
+                @Override
+                public Void handleResult(final Directory.Users.Delete request, final Void value) {
+                    outcomes.merge(key, 1, Integer::sum);
+                    return null;
+                }
+            });
+        }
+        return batch;
+    }
+
+    @Test
+    void retryFailedPartsOnly() throws IOException {
+        List<List<String>> sent = new ArrayList<>();
+        Directory directory = GoogleApiMocks.directory((method, url, content) -> {
+            List<String> parts = GoogleApiMocks.batchParts(content);
+            sent.add(parts);
+            // second part is unavailable at first attempt
+            return GoogleApiMocks.batch(parts.stream().map(part -> sent.size() == 1 && part.endsWith("/b")
+                    ? GoogleApiMocks.json(503, GoogleApiMocks.error(503, "backendError"))
+                    : ok(part)).collect(Collectors.toList()));
+        });
+
+        Map<String, Integer> outcomes = new ConcurrentHashMap<>();
+        batch(directory, List.of("a", "b", "c"), outcomes).execute();
+
+        assertEquals(2, sent.size());
+        assertEquals(3, sent.get(0).size());
+        assertEquals(1, sent.get(1).size());
+        assertEquals(Map.of("a", 1, "b", 1, "c", 1), outcomes);
+    }
+
+    @Test
+    void resendUnfinishedPartsOnly() throws IOException {
+        List<List<String>> sent = new ArrayList<>();
+        Directory directory = GoogleApiMocks.directory((method, url, content) -> {
+            List<String> parts = GoogleApiMocks.batchParts(content);
+            sent.add(parts);
+            MockLowLevelHttpResponse response = GoogleApiMocks.batch(
+                    parts.stream().map(GoogleApiBatchTests::ok).collect(Collectors.toList()));
+            if (sent.size() > 1) {
+                return response;
+            }
+
+            // connection drops right after the first part
+            MockLowLevelHttpResponse first = GoogleApiMocks.batch(List.of(ok(parts.get(0))));
+            String truncated = new String(first.getContent().readAllBytes(), StandardCharsets.UTF_8).
+                    replaceAll("--\\r\\n$", "\r\n");
+            return response.setContent(new SequenceInputStream(
+                    new ByteArrayInputStream(truncated.getBytes(StandardCharsets.UTF_8)),
+                    new InputStream() {
+
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Connection reset");
+                }
+            }));
+        });
+
+        Map<String, Integer> outcomes = new ConcurrentHashMap<>();
+        batch(directory, List.of("a", "b", "c"), outcomes).execute();
+
+        assertEquals(2, sent.size());
+        assertEquals(List.of(sent.get(0).get(1), sent.get(0).get(2)), sent.get(1));
+        assertEquals(Map.of("a", 1, "b", 1, "c", 1), outcomes);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.directory.Directory;
+import com.google.api.services.licensing.Licensing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Directory and Licensing clients backed by {@link MockHttpTransport}, for tests which need to go through real
+ * requests.
+ */
+final class GoogleApiMocks {
+
+    @FunctionalInterface
+    interface Responder {
+
+        LowLevelHttpResponse respond(String method, String url, String content) throws IOException;
+    }
+
+    /**
+     * Same as {@link Responder}, for tests which also need the request headers.
+     */
+    @FunctionalInterface
+    interface RequestResponder {
+
+        LowLevelHttpResponse respond(String method, String url, MockLowLevelHttpRequest request) throws IOException;
+    }
+
+    private static final Pattern BATCH_PART = Pattern.compile("^(GET|POST|PUT|PATCH|DELETE) (\\S+) HTTP/1.1\\r?$",
+            Pattern.MULTILINE);
+
+    private static final String BOUNDARY = "batch_boundary";
+
+    /**
+     * Fast retry policy, so that retries do not slow tests down.
+     */
+    static final GoogleApiRetryPolicy RETRY_POLICY = new GoogleApiRetryPolicy(3, 1, 2, 10000);
+
+    static Directory directory(final Responder responder) {
+        return directoryWithHeaders(
+                (method, url, request) -> responder.respond(method, url, request.getContentAsString()));
+    }
+
+    static Directory directoryWithHeaders(final RequestResponder responder) {
+        return new Directory.Builder(transport(responder), GsonFactory.getDefaultInstance(),
+                new GoogleApiRequestInitializer(request -> {
+                }, null, RETRY_POLICY)).
+                setApplicationName("test").build();
+    }
+
+    static Licensing licensing(final Responder responder) {
+        return new Licensing.Builder(transport(
+                (method, url, request) -> responder.respond(method, url, request.getContentAsString())),
+                GsonFactory.getDefaultInstance(),
+                new GoogleApiRequestInitializer(request -> {
+                }, null, RETRY_POLICY)).
+                setApplicationName("test").build();
+    }
+
+    private static MockHttpTransport transport(final RequestResponder responder) {
+        return new MockHttpTransport() {
+
+            @Override
+            public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+                return new MockLowLevelHttpRequest(url) {
+
+                    @Override
+                    public LowLevelHttpResponse execute() throws IOException {
+                        return responder.respond(method, url, this);
+                    }
+                };
+            }
+        };
+    }
+
+    static GoogleAppsConfiguration configuration(final Directory directory) {
+        return configuration(directory, null);
+    }
+
+    static GoogleAppsConfiguration configuration(final Directory directory, final Licensing licensing) {
+        GoogleAppsConfiguration configuration = new GoogleAppsConfiguration() {
+
+            @Override
+            public Directory getDirectory() {
+                return directory;
+            }
+
+            @Override
+            public Licensing getLicensing() {
+                return licensing;
+            }
+        };
+        configuration.setDomain("example.com");
+        configuration.setMaxRequestsPerSecond(0);
+        return configuration;
+    }
+
+    static MockLowLevelHttpResponse json(final int status, final String content) {
+        return new MockLowLevelHttpResponse().
+                setStatusCode(status).
+                setContentType(Json.MEDIA_TYPE).
+                setContent(content);
+    }
+
+    static String error(final int status, final String reason) {
+        return "{\"error\":{\"code\":" + status + ",\"message\":\"" + reason + "\","
+                + "\"errors\":[{\"reason\":\"" + reason + "\",\"message\":\"" + reason + "\"}]}}";
+    }
+
+    /**
+     * @param content body of a batch request
+     * @return method and URL of each part, in order
+     */
+    static List<String> batchParts(final String content) {
+        List<String> parts = new ArrayList<>();
+        Matcher matcher = BATCH_PART.matcher(content);
+        while (matcher.find()) {
+            parts.add(matcher.group(1) + " " + matcher.group(2));
+        }
+        return parts;
+    }
+
+    /**
+     * @param parts status and JSON content of each part, in order
+     * @return batch response
+     */
+    static MockLowLevelHttpResponse batch(final List<MockLowLevelHttpResponse> parts) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (MockLowLevelHttpResponse part : parts) {
+            String body = new String(part.getContent().readAllBytes(), StandardCharsets.UTF_8);
+            content.append("--").append(BOUNDARY).append("\r\n").
+                    append("Content-Type: application/http\r\n\r\n").
+                    append("HTTP/1.1 ").append(part.getStatusCode()).append(" Status\r\n").
+                    append("Content-Type: ").append(Json.MEDIA_TYPE).append("\r\n\r\n").
+                    append(body).append("\r\n");
+        }
+        content.append("--").append(BOUNDARY).append("--\r\n");
+
+        return new MockLowLevelHttpResponse().
+                setContentType("multipart/mixed; boundary=" + BOUNDARY).
+                setContent(content.toString());
+    }
+
+    private GoogleApiMocks() {
+        // private constructor for static utility class
+    }
+}
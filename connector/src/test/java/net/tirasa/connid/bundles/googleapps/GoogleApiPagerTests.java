@@ -0,0 +1,174 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.directory.Directory;
+import com.google.api.services.directory.model.Users;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+class GoogleApiPagerTests {
+
+    private static final int PAGES = 5;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+
+    @AfterAll
+    static void tearDown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    /**
+     * Serves {@link #PAGES} pages of one user each, page token being the index of the page; user id is prefixed by
+     * the requested domain, if any.
+     */
+    private static Directory directory(final AtomicInteger requests) {
+        MockHttpTransport transport = new MockHttpTransport() {
+
+            @Override
+            public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+                requests.incrementAndGet();
+                Matcher matcher = Pattern.compile("pageToken=(\\d+)").matcher(url);
+                int page = matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+                String next = page + 1 < PAGES ? ",\"nextPageToken\":\"" + (page + 1) + "\"" : "";
+                Matcher domain = Pattern.compile("domain=(\\w+)").matcher(url);
+                String id = (domain.find() ? domain.group(1) + "-" : "") + page;
+
+                return new MockLowLevelHttpRequest(url).setResponse(new MockLowLevelHttpResponse().
+                        setContentType(Json.MEDIA_TYPE).
+                        setContent("{\"users\":[{\"id\":\"" + id + "\"}]" + next + "}"));
+            }
+        };
+        return new Directory.Builder(transport, GsonFactory.getDefaultInstance(), null).
+                setApplicationName("test").build();
+    }
+
+    private static String forEachPage(
+            final Directory directory,
+            final ExecutorService executor,
+            final int prefetchDepth,
+            final int stopAt,
+            final List<String> ids) throws IOException {
+
+        return GoogleApiPager.forEachPage(
+                directory.users().list().setCustomer(GoogleAppsUtil.MY_CUSTOMER_ID),
+                Users::getNextPageToken,
+                Directory.Users.List::setPageToken,
+                executor,
+                prefetchDepth,
+                false,
+                page -> {
+                    ids.add(page.getUsers().get(0).getId());
+                    return ids.size() < stopAt;
+                });
+    }
+
+    @Test
+    void allPagesInOrder() throws IOException {
+        for (int depth = 0; depth < 3; depth++) {
+            AtomicInteger requests = new AtomicInteger();
+            List<String> ids = new ArrayList<>();
+            assertNull(forEachPage(directory(requests), EXECUTOR, depth, Integer.MAX_VALUE, ids));
+            assertEquals(List.of("0", "1", "2", "3", "4"), ids);
+            assertEquals(PAGES, requests.get());
+        }
+    }
+
+    @Test
+    void stopEarly() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        List<String> ids = new ArrayList<>();
+        assertEquals("1", forEachPage(directory(requests), EXECUTOR, 0, 1, ids));
+        assertEquals(List.of("0"), ids);
+        assertEquals(1, requests.get());
+
+        requests.set(0);
+        ids.clear();
+        assertEquals("1", forEachPage(directory(requests), EXECUTOR, 1, 1, ids));
+        assertEquals(List.of("0"), ids);
+        // prefetching went no further than the queue allows
+        assertTrue(requests.get() < PAGES);
+    }
+
+    @Test
+    void prefetchCancelledOnStop() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            AtomicInteger requests = new AtomicInteger();
+            List<String> ids = new ArrayList<>();
+            assertEquals("1", forEachPage(directory(requests), single, 1, 1, ids));
+
+            // the producer, otherwise blocked on the full queue, was cancelled and released the only thread
+            single.submit(() -> null).get(5, TimeUnit.SECONDS);
+            int sent = requests.get();
+            assertTrue(sent < PAGES);
+            Thread.sleep(100);
+            assertEquals(sent, requests.get());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void merged() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        Directory directory = directory(requests);
+        List<Directory.Users.List> lists = new ArrayList<>();
+        for (String domain : List.of("a", "b", "c")) {
+            lists.add(directory.users().list().setDomain(domain));
+        }
+
+        List<String> ids = Collections.synchronizedList(new ArrayList<>());
+        assertTrue(GoogleApiPager.forEachPageMerged(
+                lists, Users::getNextPageToken, Directory.Users.List::setPageToken, EXECUTOR, 2, 0,
+                page -> ids.add(page.getUsers().get(0).getId())));
+        assertEquals(3 * PAGES, ids.size());
+        assertEquals(3 * PAGES, requests.get());
+        // pages of the same list are still in order
+        for (String domain : List.of("a", "b", "c")) {
+            List<String> pages = new ArrayList<>();
+            ids.stream().filter(id -> id.startsWith(domain + "-")).forEach(pages::add);
+            assertEquals(List.of(domain + "-0", domain + "-1", domain + "-2", domain + "-3", domain + "-4"), pages);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GoogleApiRateLimiterTests {
+
+    @Test
+    void sharedByDomainAndApi() {
+        GoogleApiRateLimiter directory = GoogleApiRateLimiter.get("shared.test", "directory", 10);
+        assertSame(directory, GoogleApiRateLimiter.get("shared.test", "directory", 10));
+        assertTrue(directory != GoogleApiRateLimiter.get("shared.test", "licensing", 10));
+        assertTrue(directory != GoogleApiRateLimiter.get("other.test", "directory", 10));
+
+        // the lowest configured rate applies to all
+        assertSame(directory, GoogleApiRateLimiter.get("shared.test", "directory", 20));
+        assertEquals(10, directory.getMaxRate());
+        assertSame(directory, GoogleApiRateLimiter.get("shared.test", "directory", 5));
+        assertEquals(5, directory.getMaxRate());
+        assertEquals(5, directory.getRate());
+    }
+
+    @Test
+    void adaptRate() {
+        GoogleApiRateLimiter limiter = new GoogleApiRateLimiter("adapt.test/directory", 40);
+        assertEquals(40, limiter.getRate());
+        assertEquals(40, limiter.getAvailablePermits());
+
+        limiter.acquire(10);
+        assertTrue(limiter.getAvailablePermits() <= 31);
+
+        // throttled: rate is halved and bucket emptied
+        limiter.onThrottled();
+        assertEquals(20, limiter.getRate());
+        assertTrue(limiter.getAvailablePermits() < 10);
+
+        // further throttled responses to requests sent at the same time do not count
+        limiter.onThrottled();
+        assertEquals(20, limiter.getRate());
+
+        // successful responses bring the rate back to the maximum, not beyond
+        for (int i = 0; i < 1000; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(40, limiter.getRate());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class GoogleApiRetryPolicyTests {
+
+    private static GoogleJsonResponseException error(final int code, final String reason, final HttpHeaders headers) {
+        GoogleJsonError.ErrorInfo errorInfo = new GoogleJsonError.ErrorInfo();
+        errorInfo.setReason(reason);
+        GoogleJsonError error = new GoogleJsonError();
+        error.setCode(code);
+        error.setErrors(List.of(errorInfo));
+        return new GoogleJsonResponseException(new HttpResponseException.Builder(code, reason, headers), error);
+    }
+
+    @Test
+    void classification() {
+        GoogleApiRetryPolicy policy = GoogleApiRetryPolicy.DEFAULT;
+        HttpHeaders headers = new HttpHeaders();
+
+        assertTrue(policy.isRetryable(new SocketTimeoutException()));
+        assertTrue(policy.isRetryable(error(403, "userRateLimitExceeded", headers)));
+        assertTrue(policy.isRetryable(error(403, "rateLimitExceeded", headers)));
+        assertTrue(policy.isRetryable(error(429, "rateLimitExceeded", headers)));
+        assertTrue(policy.isRetryable(error(500, "backendError", headers)));
+        assertTrue(policy.isRetryable(error(503, "backendError", headers)));
+
+        assertFalse(policy.isRetryable(error(403, "forbidden", headers)));
+        assertFalse(policy.isRetryable(error(404, "notFound", headers)));
+        assertFalse(policy.isRetryable(error(409, "duplicate", headers)));
+    }
+
+    @Test
+    void delay() {
+        GoogleApiRetryPolicy policy = new GoogleApiRetryPolicy(3, 100, 150, 0);
+        long start = System.nanoTime();
+        IOException e = new SocketTimeoutException();
+
+        // full jitter, bounded by max delay
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.nextDelay(e, 2, start);
+            assertTrue(delay >= 0 && delay <= 150);
+        }
+        // attempts exhausted
+        assertEquals(-1, policy.nextDelay(e, 3, start));
+        // not retryable
+        assertEquals(-1, policy.nextDelay(error(404, "notFound", new HttpHeaders()), 1, start));
+
+        // Retry-After wins over computed delay
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Retry-After", "7");
+        assertEquals(7000, policy.nextDelay(error(429, "rateLimitExceeded", headers), 1, start));
+
+        // deadline
+        GoogleApiRetryPolicy deadline = new GoogleApiRetryPolicy(10, 100, 150, 5000);
+        assertEquals(-1, deadline.nextDelay(error(429, "rateLimitExceeded", headers), 1, start));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class GoogleApiTokenRefresherTests {
+
+    private static GoogleCredentials credentials(final long expiresIn, final AtomicInteger refreshes) {
+        return new GoogleCredentials(new AccessToken("token", new Date(System.currentTimeMillis() + expiresIn))) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public AccessToken refreshAccessToken() {
+                refreshes.incrementAndGet();
+                return new AccessToken(
+                        "token" + refreshes.get(), new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+            }
+        };
+    }
+
+    @Test
+    void refreshBeforeExpiry() {
+        AtomicInteger refreshes = new AtomicInteger();
+        GoogleCredentials fresh = credentials(TimeUnit.MINUTES.toMillis(50), refreshes);
+        GoogleApiTokenRefresher.refreshIfExpiring(fresh);
+        assertEquals(0, refreshes.get());
+        assertEquals("token", fresh.getAccessToken().getTokenValue());
+
+        GoogleCredentials expiring = credentials(TimeUnit.MINUTES.toMillis(5), refreshes);
+        GoogleApiTokenRefresher.refreshIfExpiring(expiring);
+        assertEquals(1, refreshes.get());
+        assertEquals("token1", expiring.getAccessToken().getTokenValue());
+
+        // renewed token is not renewed again
+        GoogleApiTokenRefresher.refreshIfExpiring(expiring);
+        assertEquals(1, refreshes.get());
+    }
+}
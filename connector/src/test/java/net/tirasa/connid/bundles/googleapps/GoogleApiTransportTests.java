@@ -0,0 +1,54 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpTransport;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import org.junit.jupiter.api.Test;
+
+class GoogleApiTransportTests {
+
+    @Test
+    void credentialsTimeouts() throws Exception {
+        HttpTransport transport = GoogleApiTransport.credentials(null, 1000, 200);
+        assertSame(transport, GoogleApiTransport.credentials(null, 1000, 200));
+        assertTrue(transport != GoogleApiTransport.credentials(null, 1000, 300));
+
+        // connections are queued in the backlog, but never answered
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            // token requests are built by google-auth with the default 20 seconds read timeout
+            long start = System.currentTimeMillis();
+            assertThrows(SocketTimeoutException.class, () -> transport.createRequestFactory().
+                    buildGetRequest(new GenericUrl("http://127.0.0.1:" + server.getLocalPort() + "/token")).
+                    execute());
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        }
+    }
+}
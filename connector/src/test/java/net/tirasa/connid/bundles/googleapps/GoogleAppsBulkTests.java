@@ -0,0 +1,121 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.identityconnectors.framework.common.exceptions.InvalidAttributeValueException;
+import org.junit.jupiter.api.Test;
+
+class GoogleAppsBulkTests {
+
+    @Test
+    void invalidOperations() {
+        assertThrows(InvalidAttributeValueException.class,
+                () -> new GoogleAppsBulk(new GoogleAppsConfiguration(), "x"));
+
+        List<Map<String, Object>> results = new GoogleAppsBulk(new GoogleAppsConfiguration(), List.of(
+                "not a map",
+                Map.of(GoogleAppsBulk.OPERATION, "RENAME", GoogleAppsBulk.OBJECT_CLASS, "__ACCOUNT__"),
+                Map.of(GoogleAppsBulk.OPERATION, "UPDATE", GoogleAppsBulk.OBJECT_CLASS, "__ACCOUNT__"),
+                Map.of(GoogleAppsBulk.OPERATION, "CREATE", GoogleAppsBulk.OBJECT_CLASS, "__GROUP__"))).execute();
+
+        assertEquals(4, results.size());
+        assertEquals("InvalidAttributeValueException", results.get(0).get(GoogleAppsBulk.ERROR_TYPE));
+        assertEquals("IllegalArgumentException", results.get(1).get(GoogleAppsBulk.ERROR_TYPE));
+        assertEquals("InvalidAttributeValueException", results.get(2).get(GoogleAppsBulk.ERROR_TYPE));
+        assertEquals("InvalidAttributeValueException", results.get(3).get(GoogleAppsBulk.ERROR_TYPE));
+    }
+
+    private static MockLowLevelHttpResponse respond(final String url) {
+        String key = url.replaceAll(".*/", "").replaceAll("\\?.*", "");
+        switch (key) {
+            case "missing":
+                return GoogleApiMocks.json(404, GoogleApiMocks.error(404, "notFound"));
+            case "bad":
+            case "legal":
+                return GoogleApiMocks.json(400, GoogleApiMocks.error(400, "invalid"));
+            case "denied":
+                return GoogleApiMocks.json(403, GoogleApiMocks.error(403, "forbidden"));
+            case "down":
+                return GoogleApiMocks.json(503, GoogleApiMocks.error(503, "backendError"));
+            default:
+                return GoogleApiMocks.json(204, "");
+        }
+    }
+
+    @Test
+    void mixedOutcomes() {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directory(
+                (method, url, content) -> {
+                    if (!url.endsWith("/batch")) {
+                        sent.add(url);
+                        return respond(url);
+                    }
+                    List<String> parts = GoogleApiMocks.batchParts(content);
+                    sent.addAll(parts);
+                    return GoogleApiMocks.batch(parts.stream().
+                            map(GoogleAppsBulkTests::respond).collect(Collectors.toList()));
+                }));
+
+        List<Map<String, Object>> results = new GoogleAppsBulk(configuration, List.of(
+                Map.of(GoogleAppsBulk.OPERATION, "DELETE", GoogleAppsBulk.OBJECT_CLASS, "__ACCOUNT__",
+                        GoogleAppsBulk.UID, "ok"),
+                Map.of(GoogleAppsBulk.OPERATION, "DELETE", GoogleAppsBulk.OBJECT_CLASS, "__ACCOUNT__",
+                        GoogleAppsBulk.UID, "missing"),
+                Map.of(GoogleAppsBulk.OPERATION, "DELETE", GoogleAppsBulk.OBJECT_CLASS, "__ACCOUNT__",
+                        GoogleAppsBulk.UID, "bad"),
+                Map.of(GoogleAppsBulk.OPERATION, "DELETE", GoogleAppsBulk.OBJECT_CLASS, "__ACCOUNT__",
+                        GoogleAppsBulk.UID, "denied"),
+                Map.of(GoogleAppsBulk.OPERATION, "DELETE", GoogleAppsBulk.OBJECT_CLASS, "__ACCOUNT__",
+                        GoogleAppsBulk.UID, "down"),
+                Map.of(GoogleAppsBulk.OPERATION, "DELETE", GoogleAppsBulk.OBJECT_CLASS,
+                        GoogleAppsUtil.ORG_UNIT.getObjectClassValue(), GoogleAppsBulk.UID, "sales"),
+                Map.of(GoogleAppsBulk.OPERATION, "DELETE", GoogleAppsBulk.OBJECT_CLASS,
+                        GoogleAppsUtil.ORG_UNIT.getObjectClassValue(), GoogleAppsBulk.UID, "legal"))).execute();
+
+        assertEquals(7, results.size());
+        assertEquals("ok", results.get(0).get(GoogleAppsBulk.UID));
+        assertNull(results.get(0).get(GoogleAppsBulk.ERROR_TYPE));
+        assertEquals("UnknownUidException", results.get(1).get(GoogleAppsBulk.ERROR_TYPE));
+        assertEquals("ConnectorException", results.get(2).get(GoogleAppsBulk.ERROR_TYPE));
+        assertEquals("ConnectorException", results.get(3).get(GoogleAppsBulk.ERROR_TYPE));
+        assertEquals("RetryableException", results.get(4).get(GoogleAppsBulk.ERROR_TYPE));
+        assertEquals("sales", results.get(5).get(GoogleAppsBulk.UID));
+        assertEquals("ConnectorException", results.get(6).get(GoogleAppsBulk.ERROR_TYPE));
+
+        // only the unavailable part is sent again
+        assertEquals(GoogleApiMocks.RETRY_POLICY.getMaxAttempts(),
+                sent.stream().filter(url -> url.endsWith("/users/down")).count());
+        assertEquals(1, sent.stream().filter(url -> url.endsWith("/users/bad")).count());
+    }
+}
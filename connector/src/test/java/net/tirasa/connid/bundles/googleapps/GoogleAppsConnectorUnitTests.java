@@ -22,9 +22,12 @@
  */
 package net.tirasa.connid.bundles.googleapps;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.Set;
 import org.identityconnectors.common.security.GuardedString;
 import org.identityconnectors.framework.api.APIConfiguration;
 import org.identityconnectors.framework.api.ConnectorFacade;
@@ -132,4 +135,20 @@ class GoogleAppsConnectorUnitTests {
         assertTrue(customSingleValuedSchemaFound2);
         assertTrue(customMultivaluedSchemaFound);
     }
+
+    @Test
+    void customSchemasReparsedOnChange() {
+        GoogleAppsConfiguration conf = new GoogleAppsConfiguration();
+        assertTrue(conf.getCustomSchemas().isEmpty());
+
+        conf.setCustomSchemasJSON(CONN_CONF.getCustomSchemasJSON());
+        GoogleAppsCustomSchemas parsed = conf.getCustomSchemas();
+        assertSame(parsed, conf.getCustomSchemas());
+        assertEquals(Set.of("Classificazione.Funzionale", "Classificazione.Multivalue", "Classificazione2.Funzionale2"),
+                parsed.getFieldNames());
+
+        conf.setCustomSchemasJSON("[{\"name\": \"HR\", \"multiValued\": false, \"type\": \"object\","
+                + "\"innerSchemas\": [{\"name\": \"Level\", \"multiValued\": false, \"type\": \"String\"}]}]");
+        assertEquals(Set.of("HR.Level"), conf.getCustomSchemas().getFieldNames());
+    }
 }
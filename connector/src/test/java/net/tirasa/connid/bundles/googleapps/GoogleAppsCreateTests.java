@@ -0,0 +1,69 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import org.identityconnectors.common.security.GuardedString;
+import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.RetryableException;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.junit.jupiter.api.Test;
+
+class GoogleAppsCreateTests {
+
+    @Test
+    void failedStepKeepsUid() {
+        GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directory(
+                (method, url, content) -> {
+                    if (url.matches(".*/users(\\?.*)?")) {
+                        return GoogleApiMocks.json(200, "{\"id\":\"u1\",\"etag\":\"e1\"}");
+                    }
+                    if (url.contains("/users/u1/photos")) {
+                        return GoogleApiMocks.json(400, GoogleApiMocks.error(400, "invalid"));
+                    }
+                    return GoogleApiMocks.json(200, "{}");
+                }));
+
+        RetryableException e = assertThrows(RetryableException.class, () -> new GoogleAppsCreate(
+                configuration,
+                ObjectClass.ACCOUNT,
+                Set.of(new Name("jane@example.com"),
+                        AttributeBuilder.buildPassword(new GuardedString("password".toCharArray())),
+                        AttributeBuilder.build(GoogleAppsUtil.GIVEN_NAME_ATTR, "Jane"),
+                        AttributeBuilder.build(GoogleAppsUtil.FAMILY_NAME_ATTR, "Doe"),
+                        AttributeBuilder.build(GoogleAppsUtil.PHOTO_ATTR, new byte[] { 1 }))).execute());
+
+        assertEquals("u1", assertInstanceOf(AlreadyExistsException.class, e.getCause()).getUid().getUidValue());
+        assertTrue(e.getMessage().contains("photo"));
+        assertEquals(1, e.getSuppressed().length);
+        assertInstanceOf(ConnectorException.class, e.getSuppressed()[0]);
+    }
+}
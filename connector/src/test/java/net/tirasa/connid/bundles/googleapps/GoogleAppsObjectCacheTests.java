@@ -0,0 +1,109 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.directory.Directory;
+import com.google.api.services.directory.model.User;
+import java.io.IOException;
+import java.util.Set;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.junit.jupiter.api.Test;
+
+class GoogleAppsObjectCacheTests {
+
+    private static ConnectorObject object(final String id) {
+        return new ConnectorObjectBuilder().setUid(id).setName(id).build();
+    }
+
+    @Test
+    void leastRecentlyUsedEviction() {
+        GoogleAppsObjectCache cache = new GoogleAppsObjectCache(2);
+        cache.put("a", "1", object("a"));
+        cache.put("b", "1", object("b"));
+        cache.get("a");
+        cache.put("c", "1", object("c"));
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a").getEtag());
+        assertNull(cache.get("b"));
+
+        GoogleAppsObjectCache disabled = new GoogleAppsObjectCache(0);
+        disabled.put("a", "1", object("a"));
+        assertNull(disabled.get("a"));
+    }
+
+    @Test
+    void keyIgnoresAttributesOrder() {
+        assertEquals(
+                GoogleAppsObjectCache.key(ObjectClass.ACCOUNT, "id", Set.of("a", "b", "c")),
+                GoogleAppsObjectCache.key(ObjectClass.ACCOUNT, "id", Set.of("c", "b", "a")));
+    }
+
+    @Test
+    void notModified() throws IOException {
+        MockHttpTransport transport = new MockHttpTransport() {
+
+            @Override
+            public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+                return new MockLowLevelHttpRequest(url) {
+
+                    @Override
+                    public MockLowLevelHttpResponse execute() throws IOException {
+                        assertEquals("\"etag\"", getFirstHeaderValue("If-None-Match"));
+                        return new MockLowLevelHttpResponse().setStatusCode(304);
+                    }
+                };
+            }
+        };
+        Directory directory = new Directory.Builder(transport, GsonFactory.getDefaultInstance(), null).
+                setApplicationName("test").build();
+
+        ConnectorObject cached = object("id");
+        Directory.Users.Get request = directory.users().get("id");
+        request.getRequestHeaders().setIfNoneMatch("\"etag\"");
+        assertSame(cached, GoogleApiExecutor.execute(request,
+                new RequestResultHandler<Directory.Users.Get, User, ConnectorObject>() {
+
+            @Override
+            public ConnectorObject handleResult(final Directory.Users.Get request, final User value) {
+                return object(value.getId());
+            }
+
+            @Override
+            public ConnectorObject handleNotModified(final IOException e) {
+                return cached;
+            }
+        }));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+class GoogleAppsParallelTests {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+
+    @AfterAll
+    static void tearDown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    private static List<Integer> items(final int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    void inOrder() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> outcomes = new ArrayList<>();
+
+        // earlier items take longer
+        assertTrue(GoogleAppsParallel.forEachOrdered(EXECUTOR, 3, items(6), item -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep((6 - item) * 20L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return item;
+        }, outcomes::add));
+
+        assertEquals(items(6), outcomes);
+        assertTrue(maxRunning.get() > 1 && maxRunning.get() <= 3);
+    }
+
+    @Test
+    void cancelOnStop() throws InterruptedException {
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+
+        assertFalse(GoogleAppsParallel.forEachOrdered(EXECUTOR, 3, items(10), item -> {
+            if (item > 0) {
+                started.incrementAndGet();
+                try {
+                    never.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                }
+            }
+            return item;
+        }, outcome -> false));
+
+        // no more than the window was ever submitted, and whatever was running got interrupted
+        assertTrue(started.get() <= 3);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (interrupted.get() < started.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(started.get(), interrupted.get());
+    }
+}
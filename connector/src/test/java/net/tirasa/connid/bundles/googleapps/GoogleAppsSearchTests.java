@@ -0,0 +1,190 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.AttributeUtil;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
+import org.junit.jupiter.api.Test;
+
+class GoogleAppsSearchTests {
+
+    private static final Filter JANE_OR_JOHN = FilterBuilder.or(
+            FilterBuilder.equalTo(AttributeBuilder.build(GoogleAppsUtil.GIVEN_NAME_ATTR, "Jane")),
+            FilterBuilder.equalTo(AttributeBuilder.build(GoogleAppsUtil.GIVEN_NAME_ATTR, "John")));
+
+    private static String user(final String id) {
+        return "{\"id\":\"" + id + "\",\"primaryEmail\":\"" + id + "@example.com\"}";
+    }
+
+    private static String user(final String id, final String familyName) {
+        return "{\"id\":\"" + id + "\",\"primaryEmail\":\"" + id + "@example.com\","
+                + "\"name\":{\"familyName\":\"" + familyName + "\"}}";
+    }
+
+    /**
+     * Users named Jane come in two pages, users named John in one; u2 matches both.
+     */
+    private static GoogleAppsConfiguration configuration() {
+        return GoogleApiMocks.configuration(GoogleApiMocks.directory((method, url, content) -> {
+            if (url.contains("Jane")) {
+                return url.contains("pageToken=2")
+                        ? GoogleApiMocks.json(200, "{\"users\":[" + user("u3") + "]}")
+                        : GoogleApiMocks.json(200, "{\"users\":[" + user("u1") + "," + user("u2") + "],"
+                                + "\"nextPageToken\":\"2\"}");
+            }
+            return GoogleApiMocks.json(200, "{\"users\":[" + user("u2") + "," + user("u4") + "]}");
+        }));
+    }
+
+    private static List<String> search(final OperationOptions options) {
+        List<ConnectorObject> objects = new ArrayList<>();
+        new GoogleAppsSearch(configuration(), ObjectClass.ACCOUNT, JANE_OR_JOHN, objects::add, options).execute();
+        return objects.stream().map(object -> object.getUid().getUidValue()).collect(Collectors.toList());
+    }
+
+    private static OperationOptionsBuilder options() {
+        return new OperationOptionsBuilder().setAttributesToGet(Name.NAME);
+    }
+
+    @Test
+    void fanOut() {
+        List<String> uids = search(options().build());
+        assertEquals(4, uids.size());
+        assertEquals(Set.of("u1", "u2", "u3", "u4"), Set.copyOf(uids));
+        // pages of the same search keep their order
+        assertEquals(List.of("u1", "u3"), uids.stream().
+                filter(uid -> "u1".equals(uid) || "u3".equals(uid)).collect(Collectors.toList()));
+    }
+
+    @Test
+    void pagedOr() {
+        List<String> urls = new ArrayList<>();
+        GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directory(
+                (method, url, content) -> {
+                    urls.add(url);
+                    return GoogleApiMocks.json(200, "{\"users\":["
+                            + "{\"id\":\"u1\",\"primaryEmail\":\"u1@example.com\",\"name\":{\"givenName\":\"Jane\"}},"
+                            + "{\"id\":\"u5\",\"primaryEmail\":\"u5@example.com\",\"name\":{\"givenName\":\"Bob\"}}]}");
+                }));
+
+        List<ConnectorObject> objects = new ArrayList<>();
+        new GoogleAppsSearch(configuration, ObjectClass.ACCOUNT, JANE_OR_JOHN, objects::add,
+                options().setPageSize(10).build()).execute();
+
+        // one paged list, with OR evaluated on returned users
+        assertEquals(1, urls.size());
+        assertTrue(urls.get(0).contains("maxResults=10") && !urls.get(0).contains("query="));
+        assertEquals(List.of("u1"),
+                objects.stream().map(object -> object.getUid().getUidValue()).collect(Collectors.toList()));
+    }
+
+    @Test
+    void residualAttributesNotRequested() {
+        List<String> urls = new ArrayList<>();
+        GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directory(
+                (method, url, content) -> {
+                    urls.add(url);
+                    return GoogleApiMocks.json(200, "{\"users\":["
+                            + user("u1", "Doe") + "," + user("u2", "Roe") + "," + user("u3", "Smith") + "]}");
+                }));
+
+        List<ConnectorObject> objects = new ArrayList<>();
+        new GoogleAppsSearch(configuration, ObjectClass.ACCOUNT, FilterBuilder.and(
+                FilterBuilder.equalTo(AttributeBuilder.build(GoogleAppsUtil.GIVEN_NAME_ATTR, "Jane")),
+                FilterBuilder.endsWith(AttributeBuilder.build(GoogleAppsUtil.FAMILY_NAME_ATTR, "oe"))),
+                objects::add, options().build()).execute();
+
+        assertEquals(1, urls.size());
+        assertTrue(urls.get(0).contains("familyName"));
+        assertEquals(List.of("u1", "u2"),
+                objects.stream().map(object -> object.getUid().getUidValue()).collect(Collectors.toList()));
+        assertTrue(objects.stream().allMatch(object -> null != object.getName()
+                && null == object.getAttributeByName(GoogleAppsUtil.FAMILY_NAME_ATTR)));
+    }
+
+    @Test
+    void residualFilterKeepsDefaultAttributes() {
+        GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directory(
+                (method, url, content) -> GoogleApiMocks.json(200, "{\"users\":[{\"id\":\"u1\","
+                        + "\"primaryEmail\":\"u1@example.com\",\"suspended\":false,"
+                        + "\"customSchemas\":{\"HR\":{\"Level\":\"3\"}}}]}")));
+        configuration.setCustomSchemasJSON("[{\"name\":\"HR\",\"multiValued\":false,\"type\":\"object\","
+                + "\"innerSchemas\":[{\"name\":\"Level\",\"multiValued\":false,\"type\":\"String\","
+                + "\"innerSchemas\":[]}]}]");
+
+        List<ConnectorObject> objects = new ArrayList<>();
+        new GoogleAppsSearch(configuration, ObjectClass.ACCOUNT, FilterBuilder.not(
+                FilterBuilder.equalTo(AttributeBuilder.buildEnabled(false))),
+                objects::add, new OperationOptionsBuilder().build()).execute();
+
+        assertEquals(1, objects.size());
+        assertEquals("3", AttributeUtil.getStringValue(objects.get(0).getAttributeByName("HR.Level")));
+        assertTrue(AttributeUtil.isEnabled(objects.get(0)));
+        assertNull(objects.get(0).getAttributeByName(GoogleAppsUtil.SUSPENDED_ATTR));
+    }
+
+    @Test
+    void batchedGets() throws IOException {
+        List<String> urls = new ArrayList<>();
+        List<String> parts = new ArrayList<>();
+        GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directory(
+                (method, url, content) -> {
+                    urls.add(url);
+                    parts.addAll(GoogleApiMocks.batchParts(content));
+                    return GoogleApiMocks.batch(List.of(
+                            GoogleApiMocks.json(200, user("u1")),
+                            GoogleApiMocks.json(404, GoogleApiMocks.error(404, "notFound")),
+                            GoogleApiMocks.json(200, user("u3"))));
+                }));
+
+        List<ConnectorObject> objects = new ArrayList<>();
+        new GoogleAppsSearch(configuration, ObjectClass.ACCOUNT, FilterBuilder.or(FilterBuilder.or(
+                FilterBuilder.equalTo(new Uid("u1")), FilterBuilder.equalTo(new Uid("u2"))),
+                FilterBuilder.equalTo(new Name("u3@example.com"))), objects::add, options().build()).execute();
+
+        // one batch with a read per key, the one not found being skipped
+        assertEquals(1, urls.size());
+        assertTrue(urls.get(0).endsWith("/batch"));
+        assertEquals(3, parts.size());
+        assertTrue(parts.get(1).startsWith("GET ") && parts.get(1).contains("/users/u2"));
+        assertEquals(List.of("u1", "u3"),
+                objects.stream().map(object -> object.getUid().getUidValue()).collect(Collectors.toList()));
+    }
+}
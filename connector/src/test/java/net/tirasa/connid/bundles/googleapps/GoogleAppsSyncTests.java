@@ -0,0 +1,166 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.SyncDelta;
+import org.identityconnectors.framework.common.objects.SyncDeltaType;
+import org.identityconnectors.framework.common.objects.SyncToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GoogleAppsSyncTests {
+
+    private static final OperationOptions OPTIONS = new OperationOptionsBuilder().setAttributesToGet(Name.NAME).build();
+
+    /**
+     * Current users, id to etag.
+     */
+    private final Map<String, String> users = new ConcurrentHashMap<>();
+
+    /**
+     * Users which are listed, but no longer found when read.
+     */
+    private final Map<String, String> vanished = new ConcurrentHashMap<>();
+
+    private MockLowLevelHttpResponse get(final String part) {
+        String id = part.replaceAll(".*/users/", "").replaceAll("\\?.*", "");
+        String etag = users.get(id);
+        return null == etag || vanished.containsKey(id)
+                ? GoogleApiMocks.json(404, GoogleApiMocks.error(404, "notFound"))
+                : GoogleApiMocks.json(200, "{\"id\":\"" + id + "\",\"etag\":\"" + etag + "\","
+                        + "\"primaryEmail\":\"" + id + "@example.com\"}");
+    }
+
+    private final GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directory(
+            (method, url, content) -> {
+                if (url.endsWith("/batch")) {
+                    return GoogleApiMocks.batch(GoogleApiMocks.batchParts(content).stream().
+                            map(this::get).collect(Collectors.toList()));
+                }
+                return GoogleApiMocks.json(200, "{\"users\":[" + users.entrySet().stream().
+                        map(user -> "{\"id\":\"" + user.getKey() + "\",\"etag\":\"" + user.getValue() + "\"}").
+                        collect(Collectors.joining(",")) + "]}");
+            }));
+
+    private final GoogleAppsSync sync = new GoogleAppsSync(configuration, ObjectClass.ACCOUNT);
+
+    private List<SyncDelta> sync(final SyncToken token) {
+        List<SyncDelta> deltas = new ArrayList<>();
+        sync.sync(token, deltas::add, OPTIONS);
+        return deltas;
+    }
+
+    private static SyncToken last(final List<SyncDelta> deltas) {
+        return deltas.get(deltas.size() - 1).getToken();
+    }
+
+    private int snapshots() {
+        return configuration.getSyncTokenStore().keys().size();
+    }
+
+    @Test
+    void firstSyncThenChanges() {
+        users.put("u1", "e1");
+        users.put("u2", "e2");
+
+        List<SyncDelta> deltas = sync(null);
+        assertEquals(2, deltas.size());
+        assertTrue(deltas.stream().allMatch(delta -> delta.getDeltaType() == SyncDeltaType.CREATE_OR_UPDATE));
+        SyncToken token = last(deltas);
+        assertFalse(token.equals(deltas.get(0).getToken()));
+
+        // one updated, one created, one deleted
+        users.put("u2", "e2bis");
+        users.put("u3", "e3");
+        users.remove("u1");
+
+        deltas = sync(token);
+        assertEquals(3, deltas.size());
+        assertEquals(SyncDeltaType.DELETE, deltas.get(0).getDeltaType());
+        assertEquals("u1", deltas.get(0).getUid().getUidValue());
+        assertEquals(List.of("u2", "u3"), deltas.subList(1, 3).stream().
+                map(delta -> delta.getUid().getUidValue()).sorted().collect(Collectors.toList()));
+        assertEquals(token, deltas.get(0).getToken());
+        assertEquals(token, deltas.get(1).getToken());
+        SyncToken next = last(deltas);
+        assertFalse(token.equals(next));
+
+        // nothing changed since then; snapshots older than the token synced from are removed
+        assertTrue(sync(next).isEmpty());
+        assertEquals(1, snapshots());
+    }
+
+    @Test
+    void lastDeltaCarriesNewTokenWhenObjectsVanish() {
+        users.put("u1", "e1");
+        SyncToken token = sync.getLatestSyncToken();
+
+        users.put("u2", "e2");
+        users.put("u3", "e3");
+        vanished.put("u2", "e2");
+        vanished.put("u3", "e3");
+        users.put("u1", "e1bis");
+
+        List<SyncDelta> deltas = sync(token);
+        assertEquals(1, deltas.size());
+        assertFalse(token.equals(deltas.get(0).getToken()));
+    }
+
+    @Test
+    void sharedStoreDirectory(@TempDir final Path directory) {
+        users.put("u1", "e1");
+        users.put("u2", "e2");
+        GoogleAppsConfiguration other = GoogleApiMocks.configuration(configuration.getDirectory());
+        other.setDomain("other.example.com");
+        configuration.setSyncTokenStoreDirectory(directory.toString());
+        other.setSyncTokenStoreDirectory(directory.toString());
+
+        SyncToken token = sync.getLatestSyncToken();
+
+        // syncing the other domain prunes its own older snapshots only
+        GoogleAppsSync otherSync = new GoogleAppsSync(other, ObjectClass.ACCOUNT);
+        SyncToken otherToken = otherSync.getLatestSyncToken();
+        users.put("u1", "e1bis");
+        List<SyncDelta> deltas = new ArrayList<>();
+        otherSync.sync(otherToken, deltas::add, OPTIONS);
+        otherSync.sync(last(deltas), delta -> true, OPTIONS);
+
+        assertEquals(List.of("u1"), sync(token).stream().
+                map(delta -> delta.getUid().getUidValue()).collect(Collectors.toList()));
+    }
+}
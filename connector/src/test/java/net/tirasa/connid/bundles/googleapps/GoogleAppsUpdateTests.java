@@ -0,0 +1,69 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.junit.jupiter.api.Test;
+
+class GoogleAppsUpdateTests {
+
+    @Test
+    void revisionAfterAliasChanges() {
+        // every write changes the etag, patch is rejected unless If-Match carries the current one
+        AtomicInteger version = new AtomicInteger();
+        GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directoryWithHeaders(
+                (method, url, request) -> {
+                    if (url.endsWith("/batch")) {
+                        List<String> parts = GoogleApiMocks.batchParts(request.getContentAsString());
+                        version.addAndGet(parts.size());
+                        return GoogleApiMocks.batch(parts.stream().
+                                map(part -> GoogleApiMocks.json(200, "{}")).collect(Collectors.toList()));
+                    }
+                    if ("PATCH".equals(method)) {
+                        if (!("e" + version.get()).equals(request.getFirstHeaderValue("If-Match"))) {
+                            return GoogleApiMocks.json(412, GoogleApiMocks.error(412, "conditionNotMet"));
+                        }
+                        version.incrementAndGet();
+                    }
+                    return GoogleApiMocks.json(200, "{\"id\":\"u1\",\"etag\":\"e" + version.get() + "\"}");
+                }));
+        configuration.setOptimisticConcurrency(true);
+
+        Uid uid = new GoogleAppsUpdate(configuration, ObjectClass.ACCOUNT, new Uid("u1", "e0")).update(Set.of(
+                AttributeBuilder.build(GoogleAppsUtil.GIVEN_NAME_ATTR, "Jane"),
+                AttributeBuilder.build(GoogleAppsUtil.ALIASES_ATTR, "jd@example.com", "jane.doe@example.com")));
+        assertEquals("e3", uid.getRevision());
+
+        uid = new GoogleAppsUpdate(configuration, ObjectClass.ACCOUNT, uid).update(Set.of(
+                AttributeBuilder.build(GoogleAppsUtil.GIVEN_NAME_ATTR, "Janet")));
+        assertEquals("e4", uid.getRevision());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.junit.jupiter.api.Test;
+
+class LicenseInventoryTests {
+
+    /**
+     * Jane holds SKUs A and C, John holds B; C is not among the configured SKUs.
+     */
+    private static GoogleAppsConfiguration configuration(final List<String> requests) {
+        GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(
+                GoogleApiMocks.directory((method, url, content) -> GoogleApiMocks.json(200,
+                        "{\"id\":\"u1\",\"etag\":\"e1\",\"primaryEmail\":\"jane@example.com\"}")),
+                GoogleApiMocks.licensing((method, url, content) -> {
+                    if (url.endsWith("/batch")) {
+                        List<String> parts = GoogleApiMocks.batchParts(content);
+                        requests.addAll(parts);
+                        return GoogleApiMocks.batch(Collections.nCopies(parts.size(), GoogleApiMocks.json(200, "{}")));
+                    }
+                    requests.add(method + " " + url);
+                    return "GET".equals(method)
+                            ? GoogleApiMocks.json(200, "{\"items\":["
+                                    + "{\"userId\":\"jane@example.com\",\"skuId\":\"A\"},"
+                                    + "{\"userId\":\"jane@example.com\",\"skuId\":\"C\"},"
+                                    + "{\"userId\":\"john@example.com\",\"skuId\":\"B\"}]}")
+                            : GoogleApiMocks.json(200, "{}");
+                }));
+        configuration.setProductId("Google-Apps");
+        configuration.setSkuIds(new String[] { "A", "B" });
+        return configuration;
+    }
+
+    @Test
+    void refreshedOnceExpired() throws InterruptedException {
+        List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        GoogleAppsConfiguration configuration = configuration(requests);
+        assertFalse(new LicenseInventory(0).isEnabled());
+
+        LicenseInventory inventory = new LicenseInventory(1);
+        assertEquals(Set.of("A"), inventory.getSkus(configuration, "Jane@example.com"));
+        inventory.add("jane@example.com", "B");
+        inventory.remove("john@example.com", "B");
+        assertEquals(Set.of("A", "B"), inventory.getSkus(configuration, "jane@example.com"));
+        assertEquals(Set.of(), inventory.getSkus(configuration, "john@example.com"));
+        assertEquals(1, requests.size());
+
+        Thread.sleep(1100);
+        assertEquals(Set.of("B"), inventory.getSkus(configuration, "john@example.com"));
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void removeHeldLicensesOnDisable() {
+        List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        GoogleAppsConfiguration configuration = configuration(requests);
+        configuration.setRemoveLicenseOnDisable(true);
+        configuration.setLicenseInventoryTtl(300);
+
+        for (int i = 0; i < 2; i++) {
+            new GoogleAppsUpdate(configuration, ObjectClass.ACCOUNT, new Uid("u1")).update(Set.of(
+                    AttributeBuilder.buildEnabled(false),
+                    AttributeBuilder.build(GoogleAppsUtil.PRIMARY_EMAIL_ATTR, "jane@example.com")));
+        }
+
+        // one scan, then only the configured SKU actually held is deleted, once
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(0).startsWith("GET "));
+        assertTrue(requests.get(1).startsWith("DELETE "));
+        assertEquals(Set.of(), configuration.getLicenseInventory().getSkus(configuration, "jane@example.com"));
+    }
+}
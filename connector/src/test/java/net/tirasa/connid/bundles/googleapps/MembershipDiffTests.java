@@ -0,0 +1,74 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MembershipDiffTests {
+
+    private static Map<String, String> member(final String email, final String role) {
+        Map<String, String> member = new LinkedHashMap<>();
+        member.put(GoogleAppsUtil.EMAIL_ATTR, email);
+        member.put(GoogleAppsUtil.ROLE_ATTR, role);
+        return member;
+    }
+
+    @Test
+    void insertPatchDelete() {
+        List<Map<String, String>> current = List.of(
+                member("owner@x.org", "OWNER"),
+                member("keep@x.org", "MEMBER"),
+                member("gone@x.org", "MEMBER"));
+
+        Map<String, String> desired = new LinkedHashMap<>();
+        desired.put("OWNER@x.org", "MEMBER");
+        desired.put("keep@x.org", null);
+        desired.put("new@x.org", "MANAGER");
+
+        MembershipDiff diff = MembershipDiff.of(current, desired);
+        assertEquals(Map.of("new@x.org", "MANAGER"), diff.getToInsert());
+        assertEquals(Map.of("owner@x.org", "MEMBER"), diff.getToPatch());
+        assertEquals(List.of("gone@x.org"), diff.getToDelete());
+    }
+
+    @Test
+    void largeGroup() {
+        List<Map<String, String>> current = new ArrayList<>();
+        Map<String, String> desired = new LinkedHashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            current.add(member("user" + i + "@x.org", "MEMBER"));
+            desired.put("user" + (i + 10) + "@x.org", "MEMBER");
+        }
+
+        MembershipDiff diff = MembershipDiff.of(current, desired);
+        assertEquals(10, diff.getToInsert().size());
+        assertEquals(0, diff.getToPatch().size());
+        assertEquals(10, diff.getToDelete().size());
+    }
+}
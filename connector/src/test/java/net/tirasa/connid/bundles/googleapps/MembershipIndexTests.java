@@ -0,0 +1,98 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.directory.Directory;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class MembershipIndexTests {
+
+    private static final String DOMAIN = "example.com";
+
+    /**
+     * Group id to direct members, users or groups.
+     */
+    private static final Map<String, List<String>> MEMBERS = Map.of(
+            "g1", List.of("u1", "u2", "g2"),
+            "g2", List.of("u2", "u3"),
+            "g3", List.of());
+
+    private static final Set<String> USERS = Set.of("u1", "u2", "u3", "u4");
+
+    private static MockLowLevelHttpResponse groups(final Set<String> ids) {
+        return GoogleApiMocks.json(200, "{\"groups\":[" + ids.stream().sorted().
+                map(id -> "{\"id\":\"" + id + "\"}").collect(Collectors.joining(",")) + "]}");
+    }
+
+    private static MockLowLevelHttpResponse respond(final String url) {
+        Matcher members = Pattern.compile(".*/groups/(\\w+)/members.*").matcher(url);
+        if (members.matches()) {
+            return GoogleApiMocks.json(200, "{\"members\":[" + MEMBERS.get(members.group(1)).stream().
+                    map(id -> "{\"id\":\"" + id + "\",\"type\":\"" + (USERS.contains(id) ? "USER" : "GROUP") + "\"}").
+                    collect(Collectors.joining(",")) + "]}");
+        }
+
+        Matcher userKey = Pattern.compile(".*[?&]userKey=(\\w+).*").matcher(url);
+        if (userKey.matches()) {
+            return groups(MEMBERS.entrySet().stream().filter(group -> group.getValue().contains(userKey.group(1))).
+                    map(Map.Entry::getKey).collect(Collectors.toSet()));
+        }
+        return groups(MEMBERS.keySet());
+    }
+
+    private static Directory directory(final String domains) {
+        return GoogleApiMocks.directory((method, url, content) -> url.endsWith("/batch")
+                ? GoogleApiMocks.batch(GoogleApiMocks.batchParts(content).stream().
+                        map(MembershipIndexTests::respond).collect(Collectors.toList()))
+                : url.contains("/domains")
+                ? GoogleApiMocks.json(200, "{\"domains\":[" + domains + "]}")
+                : respond(url));
+    }
+
+    @Test
+    void sameAsPerUserLookup() {
+        Directory directory = directory("{\"domainName\":\"" + DOMAIN + "\"}");
+        assertTrue(MembershipIndex.isApplicable(directory));
+
+        MembershipIndex index = MembershipIndex.build(directory, DOMAIN);
+        for (String user : USERS) {
+            assertEquals(GroupHandler.listGroups(directory.groups(), user, DOMAIN), index.groupsOf(user), user);
+        }
+        assertEquals(Set.of("g1", "g2"), index.groupsOf("u2"));
+
+        // groups of other domains would be missed
+        assertFalse(MembershipIndex.isApplicable(directory(
+                "{\"domainName\":\"" + DOMAIN + "\"},{\"domainName\":\"other.example.com\"}")));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.services.directory.model.OrgUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
+import org.junit.jupiter.api.Test;
+
+class OrgUnitTreeTests {
+
+    private static OrgUnit orgUnit(final String path) {
+        int idx = path.lastIndexOf('/');
+        return new OrgUnit().
+                setOrgUnitPath(path).
+                setName(path.substring(idx + 1)).
+                setParentOrgUnitPath(idx == 0 ? "/" : path.substring(0, idx));
+    }
+
+    private static List<String> paths(final List<OrgUnit> orgUnits) {
+        return orgUnits.stream().map(OrgUnit::getOrgUnitPath).collect(Collectors.toList());
+    }
+
+    private final OrgUnitTree tree = new OrgUnitTree(Arrays.asList(
+            orgUnit("/Sales"),
+            orgUnit("/Sales/EMEA"),
+            orgUnit("/Sales/EMEA/Italy"),
+            orgUnit("/Sales/APAC"),
+            orgUnit("/Engineering")), "etag");
+
+    @Test
+    void get() {
+        assertEquals(5, tree.size());
+        assertEquals("/Sales/EMEA", tree.get("/sales/emea").get().getOrgUnitPath());
+        assertEquals("/Sales/EMEA", tree.get("Sales/EMEA").get().getOrgUnitPath());
+        assertFalse(tree.get("/Sales/LATAM").isPresent());
+    }
+
+    @Test
+    void children() {
+        assertEquals(Arrays.asList("/Sales", "/Engineering"), paths(tree.children("/")));
+        assertEquals(Arrays.asList("/Sales/EMEA", "/Sales/APAC"), paths(tree.children("/Sales/")));
+        assertTrue(tree.children("/Engineering").isEmpty());
+    }
+
+    @Test
+    void descendants() {
+        List<OrgUnit> descendants = new ArrayList<>();
+        assertTrue(tree.forEachDescendant("/Sales", descendants::add));
+        assertEquals(Arrays.asList("/Sales/EMEA", "/Sales/APAC", "/Sales/EMEA/Italy"), paths(descendants));
+
+        descendants.clear();
+        assertFalse(tree.forEachDescendant("/", orgUnit -> descendants.add(orgUnit) && descendants.size() < 2));
+        assertEquals(2, descendants.size());
+    }
+
+    @Test
+    void sameScopeWithAndWithoutCache() {
+        String sales = "{\"orgUnitPath\":\"/Sales\",\"name\":\"Sales\",\"parentOrgUnitPath\":\"/\"}";
+        String emea = "{\"orgUnitPath\":\"/Sales/EMEA\",\"name\":\"EMEA\",\"parentOrgUnitPath\":\"/Sales\"}";
+        for (long ttl : new long[] { 0, 300 }) {
+            GoogleAppsConfiguration configuration = GoogleApiMocks.configuration(GoogleApiMocks.directory(
+                    (method, url, content) -> GoogleApiMocks.json(200, url.contains("type=children")
+                            ? "{\"organizationUnits\":[" + emea + "]}"
+                            : "{\"organizationUnits\":[" + sales + "," + emea + "]}")));
+            configuration.setOrgUnitCacheTtl(ttl);
+
+            List<ConnectorObject> objects = new ArrayList<>();
+            new GoogleAppsSearch(configuration, GoogleAppsUtil.ORG_UNIT,
+                    FilterBuilder.startsWith(AttributeBuilder.build(GoogleAppsUtil.ORG_UNIT_PATH_ATTR, "/Sales")),
+                    objects::add,
+                    new OperationOptionsBuilder().setScope(OperationOptions.SCOPE_OBJECT).build()).execute();
+            assertEquals(List.of("EMEA"), objects.stream().
+                    map(object -> object.getName().getNameValue()).collect(Collectors.toList()), "TTL " + ttl);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * ====================
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 ConnId. All Rights Reserved
+ *
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License("CDDL") (the "License").  You may not use this file
+ * except in compliance with the License.
+ *
+ * You can obtain a copy of the License at
+ * http://opensource.org/licenses/cddl1.php
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * When distributing the Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://opensource.org/licenses/cddl1.php.
+ * If applicable, add the following below this CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ * ====================
+ */
+package net.tirasa.connid.bundles.googleapps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SetDiffTests {
+
+    @Test
+    void minimalChanges() {
+        SetDiff diff = SetDiff.of(List.of("a@x.org", "B@x.org", "c@x.org"), List.of("b@x.org", "d@x.org", "d@x.org"));
+        assertEquals(List.of("d@x.org"), diff.getToAdd());
+        assertEquals(2, diff.getToRemove().size());
+        assertTrue(diff.getToRemove().containsAll(List.of("a@x.org", "c@x.org")));
+
+        assertTrue(SetDiff.of(List.of("a@x.org"), List.of("A@X.ORG")).isEmpty());
+        assertEquals(List.of("a@x.org"), SetDiff.of(List.of("a@x.org"), List.of()).getToRemove());
+    }
+}